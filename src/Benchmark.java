@@ -0,0 +1,527 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Micro benchmarks for the storage and hash hot paths.
+ *
+ * Every benchmark runs on a synthetic workload generated from a fixed seed,
+ * so two runs (before and after a change) measure the same thing. Each case
+ * is set up outside the timed region, warmed up, then measured over several
+ * iterations and reported as the mean and standard deviation in ns per
+ * operation. Results are folded into a sink so the JIT can't drop the work.
+ *
+ * Usage: java Benchmark [filter [iterations]]
+ * where filter selects the cases whose name contains it.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class Benchmark {
+    private static final int WARMUP = 5;
+    private static final int SEQUENCES = 10000;
+    private static final int SEQ_LEN = 100;
+    private static final int ID_LEN = 12;
+    private static final int[] TABLE_SIZES = { 1024, 16384, 131072 };
+    private static final double[] FILLS = { 0.25, 0.5, 0.75 };
+    private static final String MEM_FILE = "benchMem.bin";
+    private static final String DB_FILE = "benchDb.bin";
+
+    private static long sink;
+
+    private List<Case> cases;
+
+
+    /**
+     * Build the benchmark cases
+     */
+    public Benchmark() {
+        cases = new ArrayList<>();
+
+        addCodec();
+        addMemManager();
+        for (int size : TABLE_SIZES) {
+            for (double fill : FILLS) {
+                addHash(size, fill);
+                addSearch(size, fill);
+            }
+        }
+        for (int threads = 1; threads <= 8; threads *= 2) {
+            addConcurrentHash(threads);
+        }
+    }
+
+
+    /**
+     * Run the benchmarks
+     *
+     * @param args
+     *            optional name filter and number of measured iterations
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        String filter = args.length > 0 ? args[0] : "";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        new Benchmark().run(filter, iterations);
+    }
+
+
+    /**
+     * Run every case whose name contains the filter
+     *
+     * @param filter
+     *            name filter, empty for all
+     * @param iterations
+     *            measured iterations per case
+     * @throws IOException
+     */
+    public void run(String filter, int iterations) throws IOException {
+        System.out.println(String.format("%-40s %12s %10s", "Benchmark",
+            "ns/op", "+/-"));
+
+        for (Case c : cases) {
+            if (!c.name.contains(filter)) {
+                continue;
+            }
+
+            for (int i = 0; i < WARMUP; i++) {
+                time(c);
+            }
+
+            double[] ns = new double[iterations];
+            double mean = 0;
+            for (int i = 0; i < iterations; i++) {
+                ns[i] = time(c);
+                mean += ns[i] / iterations;
+            }
+
+            double var = 0;
+            for (double x : ns) {
+                var += (x - mean) * (x - mean);
+            }
+            double dev = iterations > 1
+                ? Math.sqrt(var / (iterations - 1))
+                : 0;
+
+            System.out.println(String.format("%-40s %12.1f %10.1f", c.name,
+                mean, dev));
+            c.finish();
+        }
+
+        new File(MEM_FILE).delete();
+        if (sink == 42) {
+            System.out.println(); // keeps sink alive
+        }
+    }
+
+
+    /**
+     * One iteration of a case
+     *
+     * @param c
+     *            case
+     * @return ns per operation
+     * @throws IOException
+     */
+    private static double time(Case c) throws IOException {
+        c.setUp();
+
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            public void write(int b) {
+                // results aren't printed while timing
+            }
+        }));
+
+        long start = System.nanoTime();
+        int ops;
+        try {
+            ops = c.run();
+        }
+        finally {
+            long end = System.nanoTime();
+            System.setOut(out);
+            start = end - start;
+        }
+
+        c.tearDown();
+        return (double)start / ops;
+    }
+
+
+    /**
+     * Codec round trip of the synthetic sequences
+     */
+    private void addCodec() {
+        final String[] seqs = sequences(new Random(1), SEQUENCES, SEQ_LEN);
+        final byte[] buf = new byte[NucleotideCodec.byteLength(SEQ_LEN)];
+        final char[] text = new char[SEQ_LEN];
+
+        cases.add(new Case("codec.roundTrip") {
+            int run() {
+                for (String s : seqs) {
+                    NucleotideCodec.encode(s, buf, 0);
+                    NucleotideCodec.decode(buf, s.length(), text, 0);
+                    sink += text[s.length() - 1];
+                }
+                return seqs.length;
+            }
+        });
+
+        cases.add(new Case("hash.sfold") {
+            int run() {
+                for (String s : seqs) {
+                    sink += BucketHash.sfold(s, 131072);
+                }
+                return seqs.length;
+            }
+        });
+
+        cases.add(new Case("hash.murmur") {
+            int run() {
+                for (String s : seqs) {
+                    sink += HashStrategy.MURMUR.hash(s) % 131072;
+                }
+                return seqs.length;
+            }
+        });
+    }
+
+
+    /**
+     * MemManager insert, getSequence and release
+     */
+    private void addMemManager() {
+        final String[] seqs = sequences(new Random(2), SEQUENCES, SEQ_LEN);
+        final MemHandle[] handles = new MemHandle[seqs.length];
+        final MemManager[] mem = new MemManager[1];
+
+        // a file holding every sequence, for the read and release cases
+        abstract class Filled extends Case {
+            Filled(String name) {
+                super(name);
+            }
+
+
+            void setUp() throws IOException {
+                mem[0] = new MemManager(MEM_FILE);
+                for (int i = 0; i < seqs.length; i++) {
+                    handles[i] = mem[0].insert(seqs[i], SEQ_LEN);
+                }
+            }
+
+
+            void tearDown() throws IOException {
+                mem[0].close();
+            }
+        }
+
+        cases.add(new Filled("mem.insert") {
+            void setUp() throws IOException {
+                mem[0] = new MemManager(MEM_FILE);
+            }
+
+
+            int run() throws IOException {
+                for (int i = 0; i < seqs.length; i++) {
+                    handles[i] = mem[0].insert(seqs[i], SEQ_LEN);
+                }
+                return seqs.length;
+            }
+        });
+
+        cases.add(new Filled("mem.getSequence") {
+            int run() throws IOException {
+                for (MemHandle h : handles) {
+                    sink += mem[0].getSequence(h)[0];
+                }
+                return handles.length;
+            }
+        });
+
+        cases.add(new Filled("mem.getSequence pooled") {
+            void setUp() throws IOException {
+                new File(MEM_FILE).delete();
+                mem[0] = new MemManager(new BufferPool(new FileStorage(
+                    MEM_FILE), 256), false);
+                for (int i = 0; i < seqs.length; i++) {
+                    handles[i] = mem[0].insert(seqs[i], SEQ_LEN);
+                }
+            }
+
+
+            int run() throws IOException {
+                for (MemHandle h : handles) {
+                    sink += mem[0].getSequence(h)[0];
+                }
+                return handles.length;
+            }
+        });
+
+        // every other record, so most releases go to the free list
+        cases.add(new Filled("mem.release") {
+            int run() throws IOException {
+                for (int i = 0; i < handles.length; i += 2) {
+                    mem[0].release(handles[i]);
+                }
+                return handles.length / 2;
+            }
+        });
+    }
+
+
+    /**
+     * BucketHash.insert and PackedBucketHash.insert up to a fill factor,
+     * and LinearBucketHash.insert of as many IDs from its smallest size
+     *
+     * @param size
+     *            table size
+     * @param fill
+     *            fraction of the table filled
+     */
+    private void addHash(final int size, double fill) {
+        final String[] ids = sequences(new Random(size), (int)(size * fill),
+            ID_LEN);
+        final MemHandle h = new MemHandle(0, ID_LEN);
+        final BucketHash[] table = new BucketHash[1];
+
+        cases.add(new Case("hash.insert size=" + size + " fill=" + fill) {
+            void setUp() {
+                table[0] = new BucketHash(size);
+            }
+
+
+            int run() {
+                for (String id : ids) {
+                    sink += table[0].insert(id, h, h);
+                }
+                return ids.length;
+            }
+        });
+
+        final PackedBucketHash[] packed = new PackedBucketHash[1];
+        final LinearBucketHash[] linear = new LinearBucketHash[1];
+
+        cases.add(new Case("hash.packedInsert size=" + size + " fill="
+            + fill) {
+            void setUp() {
+                packed[0] = new PackedBucketHash(size, null);
+            }
+
+
+            int run() {
+                for (String id : ids) {
+                    sink += packed[0].insert(id, h, h);
+                }
+                return ids.length;
+            }
+        });
+
+        // the same IDs, growing from a single bucket
+        cases.add(new Case("hash.linearInsert size=" + size + " fill="
+            + fill) {
+            void setUp() {
+                linear[0] = new LinearBucketHash(32, null);
+            }
+
+
+            int run() {
+                for (String id : ids) {
+                    sink += linear[0].insert(id, h, h);
+                }
+                return ids.length;
+            }
+        });
+    }
+
+
+    /**
+     * ConcurrentBucketHash.insert from several threads at once, each thread
+     * taking its share of the IDs
+     *
+     * @param threads
+     *            number of inserting threads
+     */
+    private void addConcurrentHash(final int threads) {
+        final int size = TABLE_SIZES[TABLE_SIZES.length - 1];
+        final String[] ids = sequences(new Random(3), size / 2, ID_LEN);
+        final MemHandle h = new MemHandle(0, ID_LEN);
+        final ConcurrentBucketHash[] table = new ConcurrentBucketHash[1];
+
+        cases.add(new Case("hash.concurrentInsert threads=" + threads) {
+            void setUp() {
+                table[0] = new ConcurrentBucketHash(size, null);
+            }
+
+
+            int run() throws IOException {
+                Thread[] workers = new Thread[threads];
+                for (int t = 0; t < threads; t++) {
+                    final int first = t;
+                    workers[t] = new Thread(new Runnable() {
+                        public void run() {
+                            long sum = 0;
+                            for (int i = first; i < ids.length; i += threads) {
+                                sum += table[0].insert(ids[i], h, h);
+                            }
+                            sink += sum; // racy, only has to be kept
+                        }
+                    });
+                    workers[t].start();
+                }
+
+                try {
+                    for (Thread w : workers) {
+                        w.join();
+                    }
+                }
+                catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return ids.length;
+            }
+        });
+    }
+
+
+    /**
+     * DNADataBase.search, half hits and half misses, on a table filled up to
+     * a fill factor
+     *
+     * @param size
+     *            table size
+     * @param fill
+     *            fraction of the table filled
+     */
+    private void addSearch(final int size, double fill) {
+        Random rnd = new Random(size + 1);
+        final String[] ids = sequences(rnd, (int)(size * fill), ID_LEN);
+        final String[] seqs = sequences(rnd, ids.length, SEQ_LEN);
+        final String[] misses = sequences(rnd, ids.length, ID_LEN + 1);
+        final DNADataBase[] db = new DNADataBase[1];
+
+        cases.add(new Case("db.search size=" + size + " fill=" + fill) {
+            void setUp() throws IOException {
+                if (db[0] != null) {
+                    return; // searches don't change the database
+                }
+
+                PrintStream out = System.out;
+                System.setOut(new PrintStream(new OutputStream() {
+                    public void write(int b) {
+                        // bucket full messages
+                    }
+                }));
+                db[0] = new DNADataBase(DB_FILE, size);
+                for (int i = 0; i < ids.length; i++) {
+                    db[0].insert(ids[i], String.valueOf(SEQ_LEN), seqs[i]);
+                }
+                System.setOut(out);
+            }
+
+
+            int run() throws IOException {
+                for (int i = 0; i < ids.length; i++) {
+                    db[0].search(ids[i]);
+                    db[0].search(misses[i]);
+                }
+                return ids.length * 2;
+            }
+
+
+            void finish() throws IOException {
+                db[0].close();
+                db[0] = null;
+                new File(DB_FILE).delete();
+            }
+        });
+    }
+
+
+    /**
+     * Random DNA strings
+     *
+     * @param rnd
+     *            random source
+     * @param n
+     *            number of strings
+     * @param len
+     *            length of each
+     * @return strings
+     */
+    public static String[] sequences(Random rnd, int n, int len) {
+        String[] out = new String[n];
+        char[] c = new char[len];
+
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < len; k++) {
+                c[k] = "ACGT".charAt(rnd.nextInt(4));
+            }
+            out[i] = new String(c);
+        }
+        return out;
+    }
+
+
+    /**
+     * A benchmark case, only run is timed
+     */
+    private abstract static class Case {
+        private String name;
+
+
+        /**
+         * Named case
+         *
+         * @param n
+         *            name
+         */
+        Case(String n) {
+            name = n;
+        }
+
+
+        /**
+         * Prepare one iteration
+         *
+         * @throws IOException
+         */
+        void setUp() throws IOException {
+            // nothing by default
+        }
+
+
+        /**
+         * The timed work
+         *
+         * @return number of operations performed
+         * @throws IOException
+         */
+        abstract int run() throws IOException;
+
+
+        /**
+         * Clean up after one iteration
+         *
+         * @throws IOException
+         */
+        void tearDown() throws IOException {
+            // nothing by default
+        }
+
+
+        /**
+         * Clean up after the last iteration
+         *
+         * @throws IOException
+         */
+        void finish() throws IOException {
+            // nothing by default
+        }
+    }
+}
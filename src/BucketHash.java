@@ -1,14 +1,62 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
 /**
  * A generic hashtable for the bucket hash
  * 
+ * A bucket whose 32 slots are all taken spills into a chain of 32 slot
+ * overflow pages kept beside the table, so a hot bucket gets slower instead
+ * of refusing IDs. Overflow slots are numbered after the table's own, and
+ * a lookup only follows a bucket's chain once it has probed the whole
+ * bucket without meeting a slot that was never used.
+ * 
+ * Tombstones are counted per bucket. Once a remove leaves PURGE_RATIO of a
+ * bucket's slots (overflow included) as tombstones, the bucket is rebuilt
+ * without them, so probes stop at the end of its entries again. Rebuilding
+ * works the home slots out from the stored IDs, so it needs the memory
+ * manager and may move a bucket's entries to other slots of the bucket.
+ * 
  * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
  * @version 5/1/19
  */
-public class BucketHash implements BucketHashInterface {
+public class BucketHash
+    implements BucketHashInterface<String, MemHandle, MemHandle> {
+    /**
+     * Share of a bucket's slots that are tombstones past which it is
+     * rebuilt
+     */
+    public static final double PURGE_RATIO = 0.5;
+
+    private static final int FP_MAGIC = 0x46505253; // "FPRS"
+
+    // starts a snapshot naming its hash strategy, negative so it can't be
+    // the table size an older snapshot starts with
+    private static final int HEADER_MAGIC = 0xBA5EBA11;
+    private static final int FP_VERSION = 1;
+
     // variables
     private TableEntry[] hTable;
     private int maxSize;
     private int size;
+    private MemManager memManager;
+    private HashStrategy hash;
+
+    private ArrayList<TableEntry[]> overflow; // overflow pages
+    private int[] heads; // first overflow page of each bucket, -1 if none
+    private int[] pageNext; // next page in the same chain, -1 at the end
+    private int[] pageBucket; // bucket each page belongs to
+    private int[] depth; // overflow pages of each bucket
+    private int maxDepth;
+
+    private int[] tombs; // tombstones in each bucket and its chain
+    private int tombCount;
+    private long purged;
+    private double purgeRatio = PURGE_RATIO;
 
     /**
      * Creates a hashtable with the size provided
@@ -16,9 +64,44 @@ public class BucketHash implements BucketHashInterface {
      * @param s  intended size
      */
     public BucketHash(int s) {
+        this(s, null);
+    }
+
+
+    /**
+     * Creates a hashtable with the size provided whose ID handles point into
+     * the given memory manager (needed by find)
+     * 
+     * @param s
+     *            intended size
+     * @param mem
+     *            memory manager holding the sequence IDs
+     */
+    public BucketHash(int s, MemManager mem) {
+        this(s, mem, HashStrategy.SFOLD);
+    }
+
+
+    /**
+     * Creates a hashtable with the size provided that places IDs with the
+     * given hash function. A snapshot only restores into a table using the
+     * same one.
+     * 
+     * @param s
+     *            intended size
+     * @param mem
+     *            memory manager holding the sequence IDs
+     * @param h
+     *            hash function
+     */
+    public BucketHash(int s, MemManager mem, HashStrategy h) {
+        hash = h;
         maxSize = s;
         hTable = new TableEntry[maxSize];
         size = 0;
+        memManager = mem;
+        clearOverflow();
+        tombs = new int[heads.length];
     }
 
     /**
@@ -32,18 +115,95 @@ public class BucketHash implements BucketHashInterface {
 
 
     /**
-     * Get the maximum size
+     * Get the number of slots, overflow slots included
      * 
      * @return size
      */
     public int getMaxSize() {
-        return maxSize;
+        return maxSize + overflow.size() * 32;
+    }
+
+
+    /**
+     * Number of overflow pages in use
+     * 
+     * @return pages
+     */
+    public int getOverflowPages() {
+        return overflow.size();
+    }
+
+
+    /**
+     * Length of a bucket's overflow chain
+     * 
+     * @param bucket
+     *            bucket number
+     * @return pages
+     */
+    public int getOverflowDepth(int bucket) {
+        return depth[bucket];
+    }
+
+
+    /**
+     * Length of the longest overflow chain
+     * 
+     * @return pages
+     */
+    public int getMaxOverflowDepth() {
+        return maxDepth;
+    }
+
+
+    /**
+     * Get the number of tombstones in the table
+     * 
+     * @return tombstones
+     */
+    public int getTombstones() {
+        return tombCount;
+    }
+
+
+    /**
+     * Number of tombstones in a bucket and its overflow chain
+     * 
+     * @param bucket
+     *            bucket number
+     * @return tombstones
+     */
+    public int getTombstones(int bucket) {
+        return tombs[bucket];
+    }
+
+
+    /**
+     * Number of tombstones cleared by purges so far, automatic or not
+     * 
+     * @return tombstones
+     */
+    public long getPurged() {
+        return purged;
+    }
+
+
+    /**
+     * Share of a bucket's slots that are tombstones past which a remove
+     * rebuilds it
+     * 
+     * @param ratio
+     *            tombstone share, 1 turns automatic purges off
+     */
+    public void setPurgeRatio(double ratio) {
+        this.purgeRatio = ratio;
     }
 
     /**
      * Assumes insertion is possible
-     * (No Duplicates, Full Bucket)
-     * Then Inserts and returns the slot it was inserted
+     * (No Duplicates)
+     * Then Inserts and returns the slot it was inserted, in the bucket's
+     * overflow chain if the bucket is full
      * 
      * @param key
      *            Key Handle
@@ -53,32 +213,95 @@ public class BucketHash implements BucketHashInterface {
      *            the sequence for sFold
      * @return the slot
      */
-    public int insert(Object seqID, Object key, Object value) {
+    public int insert(String seqID, MemHandle key, MemHandle value) {
         // if (insertion possible) { run sFold, find slot, insert, increment
         // size, return slot}
         // Get slot
-        String k = (String)seqID;
-        int i = sfold(k, maxSize);
+        int i = (int)(hash.hash(seqID) % maxSize);
         // int bucket = (i % bucketSize);
 
         for (int j = 0; j < 32; j++) {
             if (hTable[i] == null || hTable[i].getSlot() == -1) {
                 break;
             }
-            else if ((i + 1) % 32 == 0) {
-                i -= 31;
-            }
-            else {
-                i++;
+            i = nextSlot(i);
+        }
+        if (hTable[i] != null && hTable[i].getSlot() != -1) {
+            i = spill(i / 32);
+        }
+        if (entry(i) != null) { // reusing a tombstone
+            tombs[bucketOf(i)]--;
+            tombCount--;
+        }
+
+        TableEntry temp = new TableEntry(key, value);
+        temp.setSlot(i);
+        temp.setFingerprint(fingerprint(seqID));
+        set(i, temp);
+        size++;
+        return i;
+    }
+
+
+    /**
+     * Find the slot holding a sequence ID.
+     * Only the bucket the ID hashes to is probed, in the same order insert
+     * fills it, and the probe stops at the first slot that was never used.
+     * A slot is compared by ID length and fingerprint first, so only a
+     * slot that almost certainly matches reads its ID from the file
+     * 
+     * @param seqID
+     *            the sequence ID to look for
+     * @return the slot, or -1 if the ID is not in the table
+     * @throws IOException
+     */
+    public int find(String seqID) throws IOException {
+        int fp = fingerprint(seqID);
+        int i = (int)(hash.hash(seqID) % maxSize);
+        byte[] key = null;
+
+        for (int j = 0; j < 32; j++) {
+            TableEntry temp = hTable[i];
+
+            // never used, the ID can't be further along the bucket
+            if (temp == null) {
+                return -1;
             }
 
+            // skip tombstones, then rule out in memory what we can
+            if (temp.getSlot() != -1 && temp.getID().getLength() == seqID
+                .length() && temp.getFingerprint() == fp) {
+                // encode once, stored IDs are compared in their 2 bit form
+                if (key == null) {
+                    key = NucleotideCodec.encode(seqID);
+                }
+                if (memManager.matches(temp.getID(), key)) {
+                    return i;
+                }
+            }
+            i = nextSlot(i);
         }
-        if (hTable[i] == null || hTable[i].getSlot() == -1) {
-            TableEntry temp = new TableEntry((MemHandle)key, (MemHandle)value);
-            temp.setSlot(i);
-            hTable[i] = temp;
-            size++;
-            return i;
+
+        // the whole bucket is in use, carry on down its overflow chain
+        for (int p = heads[i / 32]; p != -1; p = pageNext[p]) {
+            TableEntry[] page = overflow.get(p);
+
+            for (int off = 0; off < 32; off++) {
+                TableEntry temp = page[off];
+                if (temp == null) {
+                    return -1;
+                }
+
+                if (temp.getSlot() != -1 && temp.getID().getLength() == seqID
+                    .length() && temp.getFingerprint() == fp) {
+                    if (key == null) {
+                        key = NucleotideCodec.encode(seqID);
+                    }
+                    if (memManager.matches(temp.getID(), key)) {
+                        return maxSize + p * 32 + off;
+                    }
+                }
+            }
         }
 
         return -1;
@@ -94,8 +317,8 @@ public class BucketHash implements BucketHashInterface {
      * @return the tableEntry at the slot
      */
     public TableEntry get(int i) {
-        if (hTable[i] != null && hTable[i].getSlot() != -1) {
-            TableEntry temp = hTable[i];
+        TableEntry temp = entry(i);
+        if (temp != null && temp.getSlot() != -1) {
             return temp;
         }
         return null;
@@ -103,16 +326,520 @@ public class BucketHash implements BucketHashInterface {
 
 
     /**
-     * Insert tombstone
+     * Insert tombstone, rebuilding the bucket if it is then mostly
+     * tombstones
      * 
      * @param slot
      *            the slot to insert
+     * @throws IOException
      */
-    public void insertTomb(int slot) {
+    public void insertTomb(int slot) throws IOException {
         TableEntry tomb = new TableEntry(null, null);
         tomb.setSlot(-1);
-        hTable[slot] = tomb;
+        set(slot, tomb);
         size--;
+
+        int b = bucketOf(slot);
+        tombs[b]++;
+        tombCount++;
+        if (purgeRatio < 1 && tombs[b] >= purgeRatio * 32 * (1 + depth[b])) {
+            purgeBucket(b);
+        }
+    }
+
+
+    /**
+     * Rebuild every bucket holding tombstones without them
+     * 
+     * @return tombstones cleared
+     * @throws IOException
+     */
+    public int purge() throws IOException {
+        int n = 0;
+        for (int b = 0; b < tombs.length && tombCount > 0; b++) {
+            if (tombs[b] > 0) {
+                n += purgeBucket(b);
+            }
+        }
+        return n;
+    }
+
+
+    /**
+     * Point a used slot at its records after they moved
+     * 
+     * @param slot
+     *            the slot to update
+     * @param key
+     *            new ID handle
+     * @param value
+     *            new sequence handle
+     */
+    public void update(int slot, MemHandle key, MemHandle value) {
+        TableEntry temp = new TableEntry(key, value);
+        temp.setSlot(slot);
+        temp.setFingerprint(entry(slot).getFingerprint());
+        set(slot, temp);
+    }
+
+
+    /**
+     * Snapshot of every used slot, tombstones included so probes still stop
+     * in the same places after a restore. The header names the hash
+     * strategy. Overflow slots follow the table's
+     * own, and the bucket of each overflow page comes after the end mark,
+     * followed by the fingerprints.
+     * 
+     * @return snapshot bytes
+     * @throws IOException
+     */
+    public byte[] snapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeHeader(out, hash, maxSize);
+        out.writeInt(size);
+        int[] fps = new int[size];
+        int n = 0;
+
+        for (int i = 0; i < getMaxSize(); i++) {
+            TableEntry temp = entry(i);
+            if (temp == null) {
+                continue;
+            }
+
+            out.writeInt(i);
+            if (temp.getSlot() == -1) { // tombstone
+                out.writeInt(0);
+                out.writeInt(-1);
+                out.writeInt(0);
+                out.writeInt(0);
+            }
+            else {
+                fps[n++] = temp.getFingerprint();
+                out.writeInt(temp.getID().getPosition());
+                out.writeInt(temp.getID().getLength());
+                out.writeInt(temp.getSequence().getPosition());
+                out.writeInt(temp.getSequence().getLength());
+            }
+        }
+
+        out.writeInt(-1); // end
+        out.writeInt(overflow.size());
+        for (int p = 0; p < overflow.size(); p++) {
+            out.writeInt(pageBucket[p]);
+        }
+        writeFingerprints(out, fps, n);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * Restore the table from a snapshot. Fingerprints are worked out again
+     * from the stored IDs only for a snapshot written without them
+     * 
+     * @param snap
+     *            snapshot bytes
+     * @throws IOException
+     *             snapshot is for a different size table or hash strategy
+     */
+    public void restore(byte[] snap) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+            snap));
+
+        if (readHeader(in, hash) != maxSize) {
+            throw new IOException("Hash table size does not match.");
+        }
+
+        hTable = new TableEntry[maxSize];
+        size = in.readInt();
+        clearOverflow();
+        ArrayList<TableEntry> used = new ArrayList<>();
+
+        for (int i = in.readInt(); i != -1; i = in.readInt()) {
+            int idPos = in.readInt();
+            int idLen = in.readInt();
+            int seqPos = in.readInt();
+            int seqLen = in.readInt();
+
+            TableEntry temp;
+            if (idLen == -1) {
+                temp = new TableEntry(null, null);
+                temp.setSlot(-1);
+            }
+            else {
+                temp = new TableEntry(new MemHandle(idPos, idLen),
+                    new MemHandle(seqPos, seqLen));
+                temp.setSlot(i);
+                used.add(temp);
+            }
+            while (i >= getMaxSize()) { // its page, chained below
+                overflow.add(new TableEntry[32]);
+            }
+            set(i, temp);
+        }
+
+        // chain the overflow pages, in page order
+        int pages = in.available() > 0 ? in.readInt() : 0;
+        if (pages < overflow.size()) {
+            throw new IOException("Hash table size does not match.");
+        }
+        for (int p = 0; p < pages; p++) {
+            link(p, in.readInt());
+            if (p >= overflow.size()) {
+                overflow.add(new TableEntry[32]);
+            }
+        }
+
+        int[] fps = readFingerprints(in, used.size());
+        for (int k = 0; k < used.size(); k++) {
+            TableEntry temp = used.get(k);
+            temp.setFingerprint(fps != null ? fps[k]
+                : storedFingerprint(temp.getID()));
+        }
+
+        // count the tombstones once every page knows its bucket
+        tombs = new int[heads.length];
+        tombCount = 0;
+        for (int i = 0; i < getMaxSize(); i++) {
+            TableEntry temp = entry(i);
+            if (temp != null && temp.getSlot() == -1) {
+                tombs[bucketOf(i)]++;
+                tombCount++;
+            }
+        }
+    }
+
+
+    /**
+     * Rebuild a bucket and its overflow chain without tombstones, putting
+     * each entry back in the first free slot from its home. The chain's
+     * pages stay with the bucket for later spills.
+     * 
+     * @param b
+     *            bucket number
+     * @return tombstones cleared, 0 without a memory manager
+     * @throws IOException
+     */
+    private int purgeBucket(int b) throws IOException {
+        if (memManager == null) {
+            return 0; // home slots can't be worked out
+        }
+
+        ArrayList<TableEntry> live = new ArrayList<>();
+        for (int off = 0; off < 32; off++) {
+            if (hTable[b * 32 + off] != null && hTable[b * 32 + off]
+                .getSlot() != -1) {
+                live.add(hTable[b * 32 + off]);
+            }
+            hTable[b * 32 + off] = null;
+        }
+        for (int p = heads[b]; p != -1; p = pageNext[p]) {
+            TableEntry[] page = overflow.get(p);
+            for (int off = 0; off < 32; off++) {
+                if (page[off] != null && page[off].getSlot() != -1) {
+                    live.add(page[off]);
+                }
+                page[off] = null;
+            }
+        }
+
+        for (TableEntry temp : live) {
+            String id = NucleotideCodec.decode(memManager.getSequence(temp
+                .getID()), temp.getID().getLength());
+            int i = (int)(hash.hash(id) % maxSize);
+
+            for (int j = 0; j < 32 && hTable[i] != null; j++) {
+                i = nextSlot(i);
+            }
+            if (hTable[i] != null) {
+                i = spill(b);
+            }
+            temp.setSlot(i);
+            set(i, temp);
+        }
+
+        int n = tombs[b];
+        tombs[b] = 0;
+        tombCount -= n;
+        purged += n;
+        return n;
+    }
+
+
+    /**
+     * Bucket a slot belongs to, the bucket of its page for overflow slots
+     * 
+     * @param i
+     *            slot
+     * @return bucket number
+     */
+    private int bucketOf(int i) {
+        if (i < maxSize) {
+            return i / 32;
+        }
+        return pageBucket[(i - maxSize) / 32];
+    }
+
+
+    /**
+     * Fingerprint of an ID stored in the memory file
+     * 
+     * @param id
+     *            ID handle
+     * @return fingerprint, 0 without a memory manager
+     * @throws IOException
+     */
+    private int storedFingerprint(MemHandle id) throws IOException {
+        if (memManager == null) {
+            return 0;
+        }
+        return fingerprint(NucleotideCodec.decode(memManager.getSequence(id),
+            id.getLength()));
+    }
+
+
+    /**
+     * A free slot in a full bucket's overflow chain, adding a page to the
+     * chain if every page is in use
+     * 
+     * @param bucket
+     *            bucket number
+     * @return overflow slot
+     */
+    private int spill(int bucket) {
+        for (int p = heads[bucket]; p != -1; p = pageNext[p]) {
+            TableEntry[] page = overflow.get(p);
+            for (int off = 0; off < 32; off++) {
+                if (page[off] == null || page[off].getSlot() == -1) {
+                    return maxSize + p * 32 + off;
+                }
+            }
+        }
+
+        int p = overflow.size();
+        overflow.add(new TableEntry[32]);
+        link(p, bucket);
+        return maxSize + p * 32;
+    }
+
+
+    /**
+     * Put an overflow page at the end of a bucket's chain
+     * 
+     * @param p
+     *            page number
+     * @param bucket
+     *            bucket number
+     */
+    private void link(int p, int bucket) {
+        if (p >= pageNext.length) {
+            pageNext = Arrays.copyOf(pageNext, p * 2 + 1);
+            pageBucket = Arrays.copyOf(pageBucket, p * 2 + 1);
+        }
+        pageNext[p] = -1;
+        pageBucket[p] = bucket;
+
+        if (heads[bucket] == -1) {
+            heads[bucket] = p;
+        }
+        else {
+            int last = heads[bucket];
+            while (pageNext[last] != -1) {
+                last = pageNext[last];
+            }
+            pageNext[last] = p;
+        }
+
+        depth[bucket]++;
+        maxDepth = Math.max(maxDepth, depth[bucket]);
+    }
+
+
+    /**
+     * Drop every overflow page
+     */
+    private void clearOverflow() {
+        overflow = new ArrayList<>();
+        heads = new int[(maxSize + 31) / 32];
+        Arrays.fill(heads, -1);
+        pageNext = new int[0];
+        pageBucket = new int[0];
+        depth = new int[heads.length];
+        maxDepth = 0;
+    }
+
+
+    /**
+     * Entry at a slot, in the table or an overflow page
+     * 
+     * @param i
+     *            slot
+     * @return entry, null if never used
+     */
+    private TableEntry entry(int i) {
+        if (i < maxSize) {
+            return hTable[i];
+        }
+        return overflow.get((i - maxSize) / 32)[(i - maxSize) % 32];
+    }
+
+
+    /**
+     * Set the entry at a slot, in the table or an overflow page
+     * 
+     * @param i
+     *            slot
+     * @param temp
+     *            entry
+     */
+    private void set(int i, TableEntry temp) {
+        if (i < maxSize) {
+            hTable[i] = temp;
+        }
+        else {
+            overflow.get((i - maxSize) / 32)[(i - maxSize) % 32] = temp;
+        }
+    }
+
+
+    /**
+     * Nothing to release for the in-memory table
+     */
+    public void close() {
+        // nothing to do
+    }
+
+
+    /**
+     * Next slot in the probe sequence, wrapping around to the start of the
+     * 32 slot bucket
+     * 
+     * @param i
+     *            current slot
+     * @return next slot
+     */
+    private int nextSlot(int i) {
+        if ((i + 1) % 32 == 0) {
+            return i - 31;
+        }
+        return i + 1;
+    }
+
+
+    /**
+     * 32 bit fingerprint of a sequence ID (FNV-1a), kept next to a slot's
+     * handles so most mismatches are rejected without reading the ID
+     * 
+     * @param s
+     *            sequence ID
+     * @return fingerprint
+     */
+    public static int fingerprint(String s) {
+        int h = 0x811c9dc5;
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0x01000193;
+        }
+        return h;
+    }
+
+
+    /**
+     * Start a snapshot with the name of the table's hash strategy and its
+     * size
+     * 
+     * @param out
+     *            snapshot stream
+     * @param h
+     *            hash strategy
+     * @param max
+     *            table size
+     * @throws IOException
+     */
+    public static void writeHeader(DataOutputStream out, HashStrategy h,
+        int max) throws IOException {
+        out.writeInt(HEADER_MAGIC);
+        out.writeUTF(h.toString());
+        out.writeInt(max);
+    }
+
+
+    /**
+     * Read the header written by writeHeader. A snapshot from before the
+     * header starts with the size, and its table hashed with sfold.
+     * 
+     * @param in
+     *            snapshot stream, at the start
+     * @param h
+     *            hash strategy of the table being restored
+     * @return table size
+     * @throws IOException
+     *             the snapshot's table used another hash strategy
+     */
+    public static int readHeader(DataInputStream in, HashStrategy h)
+        throws IOException {
+        int max = in.readInt();
+        String name = HashStrategy.SFOLD.toString();
+        if (max == HEADER_MAGIC) {
+            name = in.readUTF();
+            max = in.readInt();
+        }
+
+        if (!name.equals(h.toString())) {
+            throw new IOException("Hash strategy does not match.");
+        }
+        return max;
+    }
+
+
+    /**
+     * Write the fingerprints of a snapshot's used slots, in record order,
+     * after its end mark and overflow pages, so a restore doesn't read
+     * every ID back. Readers that don't know the section skip it.
+     * 
+     * @param out
+     *            snapshot stream
+     * @param fps
+     *            fingerprints
+     * @param n
+     *            number of fingerprints
+     * @throws IOException
+     */
+    public static void writeFingerprints(DataOutputStream out, int[] fps,
+        int n) throws IOException {
+        out.writeInt(FP_MAGIC);
+        out.writeInt(FP_VERSION);
+        out.writeInt(n);
+        for (int k = 0; k < n; k++) {
+            out.writeInt(fps[k]);
+        }
+    }
+
+
+    /**
+     * Read the fingerprints written by writeFingerprints
+     * 
+     * @param in
+     *            snapshot stream, just past the overflow pages
+     * @param n
+     *            number of used slots read
+     * @return fingerprints, null for a snapshot without them or of another
+     *         version, whose IDs have to be read
+     * @throws IOException
+     */
+    public static int[] readFingerprints(DataInputStream in, int n)
+        throws IOException {
+        if (in.available() < 12 || in.readInt() != FP_MAGIC
+            || in.readInt() != FP_VERSION || in.readInt() != n
+            || in.available() < n * 4L) {
+            return null;
+        }
+
+        int[] fps = new int[n];
+        for (int k = 0; k < n; k++) {
+            fps[k] = in.readInt();
+        }
+        return fps;
     }
 
 
@@ -125,26 +852,20 @@ public class BucketHash implements BucketHashInterface {
      *            size
      * @return slot
      */
-    public int sfold(String s, int m) {
-        int intLength = s.length() / 4;
-        long sum = 0;
-        for (int j = 0; j < intLength; j++) {
-            char[] c = s.substring(j * 4, (j * 4) + 4).toCharArray();
-            long mult = 1;
-            for (int k = 0; k < c.length; k++) {
-                sum += c[k] * mult;
-                mult *= 256;
-            }
-        }
+    public static int sfold(String s, int m) {
+        return (int)(sfold(s) % m);
+    }
 
-        char[] c = s.substring(intLength * 4).toCharArray();
-        long mult = 1;
-        for (int k = 0; k < c.length; k++) {
-            sum += c[k] * mult;
-            mult *= 256;
-        }
 
-        sum = (sum * sum) >> 8;
-        return (int)(Math.abs(sum) % m);
+    /**
+     * Sfold before it is taken modulo the table size, so a table that grows
+     * can work out the slot for any size from it
+     * 
+     * @param s
+     *            string
+     * @return non-negative hash
+     */
+    public static long sfold(String s) {
+        return HashStrategy.SFOLD.hash(s);
     }
 }
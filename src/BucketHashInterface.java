@@ -1,3 +1,5 @@
+import java.io.IOException;
+
 /**
  * The interface for the hashtable
  * 
@@ -20,8 +22,109 @@ public interface BucketHashInterface<T, K, V> {
      * @param value Handle
      * @param string string
      * @return the slot
+     * @throws IOException
+     */
+    public int insert(T string, K key, V value) throws IOException;
+
+
+    /**
+     * Find the slot holding a string
+     * 
+     * @param string string
+     * @return the slot, or -1 if not found
+     * @throws IOException
+     */
+    public int find(T string) throws IOException;
+
+
+    /**
+     * Return the table entry at the slot, null if empty or a tombstone
+     * 
+     * @param slot the slot to peek
+     * @return the table entry
+     * @throws IOException
+     */
+    public TableEntry get(int slot) throws IOException;
+
+
+    /**
+     * Insert tombstone
+     * 
+     * @param slot the slot to insert
+     * @throws IOException
+     */
+    public void insertTomb(int slot) throws IOException;
+
+
+    /**
+     * Point a used slot at its records after they moved
+     * 
+     * @param slot the slot to update
+     * @param key new key handle
+     * @param value new value handle
+     * @throws IOException
+     */
+    public void update(int slot, K key, V value) throws IOException;
+
+
+    /**
+     * Clear the tombstones out of every bucket holding any, so probes
+     * stop at the end of the bucket's entries again
+     *
+     * @return tombstones cleared
+     * @throws IOException
+     */
+    public int purge() throws IOException;
+
+
+    /**
+     * Get the number of tombstones in the table
+     *
+     * @return tombstones
+     */
+    public int getTombstones();
+
+
+    /**
+     * Get the size
+     * 
+     * @return size
+     */
+    public int getSize();
+
+
+    /**
+     * Get the maximum size
+     * 
+     * @return size
+     */
+    public int getMaxSize();
+
+
+    /**
+     * Snapshot of the table for a memory manager checkpoint
+     * 
+     * @return snapshot bytes
+     * @throws IOException
+     */
+    public byte[] snapshot() throws IOException;
+
+
+    /**
+     * Restore the table from a snapshot
+     * 
+     * @param snap snapshot bytes
+     * @throws IOException snapshot doesn't match this table
+     */
+    public void restore(byte[] snap) throws IOException;
+
+
+    /**
+     * Release any file held by the table
+     * 
+     * @throws IOException
      */
-    public int insert(T string, K key, V value);
+    public void close() throws IOException;
  
 
 }
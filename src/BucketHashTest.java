@@ -1,3 +1,7 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
 import student.TestCase;
 
 /**
@@ -44,4 +48,244 @@ public class BucketHashTest extends TestCase {
         assertEquals(7, hTable.getSize());
     }
 
+
+    /**
+     * Test find only probes the bucket and skips tombstones
+     * 
+     * @throws IOException
+     */
+    public void testFind() throws IOException {
+        MemManager mem = new MemManager("mFile.bin");
+        hTable = new BucketHash(64, mem);
+
+        MemHandle id = mem.insert("AAAAA", 5);
+        MemHandle seq = mem.insert("ACGT", 4);
+        assertEquals(6, hTable.insert("AAAAA", id, seq));
+        assertEquals(6, hTable.find("AAAAA"));
+
+        // same encoding, different length
+        assertEquals(-1, hTable.find("AAAA"));
+        assertEquals(-1, hTable.find("TTTT"));
+
+        // GAAAGA also starts at slot 6, so it goes one further along
+        MemHandle id3 = mem.insert("GAAAGA", 6);
+        assertEquals(7, hTable.insert("GAAAGA", id3, seq));
+
+        // tombstone in front of the entry is skipped
+        MemHandle id2 = mem.insert("AAAAA", 5);
+        hTable.insertTomb(6);
+        assertEquals(-1, hTable.find("AAAAA"));
+        assertEquals(7, hTable.find("GAAAGA"));
+        assertEquals(6, hTable.insert("AAAAA", id2, seq));
+        assertEquals(6, hTable.find("AAAAA"));
+    }
+
+
+    /**
+     * Test fingerprints keep non-matching probes off the memory file
+     * 
+     * @throws IOException
+     */
+    public void testFingerprint() throws IOException {
+        final int[] reads = new int[1];
+        MemManager mem = new MemManager(new FileStorage("mFile.bin") {
+            public void read(long pos, byte[] b, int off, int len)
+                throws IOException {
+                reads[0]++;
+                super.read(pos, b, off, len);
+            }
+        }, false);
+        hTable = new BucketHash(64, mem);
+
+        // all the same length, only fingerprints tell them apart
+        String[] ids = { "AAAAA", "CAAAA", "GAAAA", "TAAAA" };
+        for (String id : ids) {
+            MemHandle h = mem.insert(id, id.length());
+            assertTrue(hTable.insert(id, h, h) != -1);
+        }
+        assertEquals(BucketHash.fingerprint("CAAAA"), hTable.get(hTable.find(
+            "CAAAA")).getFingerprint());
+
+        // a hit reads only its own ID, a miss reads nothing
+        reads[0] = 0;
+        for (String id : ids) {
+            assertTrue(hTable.find(id) != -1);
+        }
+        assertEquals(ids.length, reads[0]);
+
+        reads[0] = 0;
+        assertEquals(-1, hTable.find("ACGTA"));
+        assertEquals(-1, hTable.find("AAAAC"));
+        assertEquals(0, reads[0]);
+
+        // fingerprints come back with a restored table
+        BucketHash copy = new BucketHash(64, mem);
+        copy.restore(hTable.snapshot());
+        reads[0] = 0;
+        assertEquals(hTable.find("TAAAA"), copy.find("TAAAA"));
+        assertEquals(2, reads[0]);
+    }
+
+
+    /**
+     * Test a full bucket spills into overflow pages that lookups follow
+     * 
+     * @throws IOException
+     */
+    public void testOverflow() throws IOException {
+        MemManager mem = new MemManager("mFile.bin");
+        hTable = new BucketHash(32, mem); // one bucket
+        String[] ids = Benchmark.sequences(new Random(2), 100, 8);
+        int[] slots = new int[ids.length];
+
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(-1, hTable.find(ids[i]));
+            MemHandle h = mem.insert(ids[i], ids[i].length());
+            slots[i] = hTable.insert(ids[i], h, h);
+        }
+        assertEquals(100, hTable.getSize());
+        assertEquals(3, hTable.getOverflowPages());
+        assertEquals(3, hTable.getOverflowDepth(0));
+        assertEquals(3, hTable.getMaxOverflowDepth());
+        assertEquals(128, hTable.getMaxSize());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(slots[i], hTable.find(ids[i]));
+        }
+
+        // an overflow tombstone is skipped, then reused
+        hTable.insertTomb(slots[70]);
+        assertEquals(-1, hTable.find(ids[70]));
+        assertEquals(slots[99], hTable.find(ids[99]));
+        MemHandle h = mem.insert(ids[70], ids[70].length());
+        assertEquals(slots[70], hTable.insert(ids[70], h, h));
+
+        // chains come back with a restored table
+        BucketHash copy = new BucketHash(32, mem);
+        copy.restore(hTable.snapshot());
+        assertEquals(3, copy.getMaxOverflowDepth());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(slots[i], copy.find(ids[i]));
+        }
+    }
+
+
+
+    /**
+     * Test a snapshot names its hash strategy and only restores into a
+     * table using the same one, on every kind of in-memory table
+     * 
+     * @throws IOException
+     */
+    public void testStrategy() throws IOException {
+        MemManager mem = new MemManager("mFile.bin");
+        BucketHash murmur = new BucketHash(64, mem, HashStrategy.MURMUR);
+        MemHandle h = mem.insert("ACGTTT", 6);
+        int slot = murmur.insert("ACGTTT", h, h);
+        byte[] snap = murmur.snapshot();
+
+        assertEquals("Hash strategy does not match.", refused(
+            new BucketHash(64, mem), snap));
+        assertEquals("Hash strategy does not match.", refused(
+            new PackedBucketHash(64, mem), snap));
+        assertEquals("Hash strategy does not match.", refused(
+            new ConcurrentBucketHash(64, mem), snap));
+
+        BucketHash copy = new BucketHash(64, mem, HashStrategy.MURMUR);
+        copy.restore(snap);
+        assertEquals(slot, copy.find("ACGTTT"));
+        PackedBucketHash packed = new PackedBucketHash(64, mem,
+            HashStrategy.MURMUR);
+        packed.restore(snap);
+        assertEquals(slot, packed.find("ACGTTT"));
+
+        // a snapshot from before the header was always sfold
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(64);
+        out.writeInt(0);
+        out.writeInt(-1);
+        out.flush();
+        new BucketHash(64, mem).restore(bytes.toByteArray());
+        assertEquals("Hash strategy does not match.", refused(murmur, bytes
+            .toByteArray()));
+        assertEquals(slot, murmur.find("ACGTTT"));
+    }
+
+
+    /**
+     * Restore a snapshot that should be refused
+     * 
+     * @param table
+     *            table to restore
+     * @param snap
+     *            snapshot bytes
+     * @return the refusal's message, null if it was restored
+     */
+    private String refused(BucketHashInterface<String, MemHandle,
+        MemHandle> table, byte[] snap) {
+        try {
+            table.restore(snap);
+        }
+        catch (IOException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+
+    /**
+     * Test tombstones are counted per bucket, and a bucket that is half
+     * tombstones is rebuilt without them
+     * 
+     * @throws IOException
+     */
+    public void testPurge() throws IOException {
+        MemManager mem = new MemManager("mFile.bin");
+        hTable = new BucketHash(32, mem); // one bucket
+        String[] ids = Benchmark.sequences(new Random(5), 40, 10);
+
+        for (String id : ids) {
+            MemHandle h = mem.insert(id, id.length());
+            hTable.insert(id, h, h);
+        }
+        assertEquals(1, hTable.getOverflowDepth(0)); // 64 slots
+
+        // just short of half the slots
+        for (int i = 0; i < 31; i++) {
+            hTable.insertTomb(hTable.find(ids[i]));
+        }
+        assertEquals(31, hTable.getTombstones(0));
+        assertEquals(31, hTable.getTombstones());
+        assertEquals(0, hTable.getPurged());
+
+        // a restored table counts them again
+        BucketHash copy = new BucketHash(32, mem);
+        copy.restore(hTable.snapshot());
+        assertEquals(31, copy.getTombstones(0));
+
+        // the next one tips it over
+        hTable.insertTomb(hTable.find(ids[31]));
+        assertEquals(0, hTable.getTombstones());
+        assertEquals(32, hTable.getPurged());
+        assertEquals(8, hTable.getSize());
+        for (int i = 0; i < ids.length; i++) {
+            int slot = hTable.find(ids[i]);
+            if (i < 32) {
+                assertEquals(-1, slot);
+            }
+            else {
+                assertTrue(slot < 32); // back out of the overflow page
+                assertEquals(slot, hTable.get(slot).getSlot());
+            }
+        }
+
+        // by hand, automatic purges off
+        hTable.setPurgeRatio(1);
+        hTable.insertTomb(hTable.find(ids[39]));
+        assertEquals(1, hTable.getTombstones());
+        assertEquals(1, hTable.purge());
+        assertEquals(0, hTable.getTombstones());
+        assertEquals(-1, hTable.find(ids[39]));
+        assertEquals(0, hTable.purge());
+    }
 }
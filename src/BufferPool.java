@@ -0,0 +1,366 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A fixed size pool of page buffers in front of another storage.
+ *
+ * The storage is split into pages of a fixed size. Reads and writes go to
+ * the cached copy of each page they touch, loading it on a miss. When the
+ * pool is full a page is chosen by the CLOCK algorithm: the hand sweeps the
+ * frames, giving a page that was used since the last sweep a second chance,
+ * and evicts the first one that wasn't. Written pages are only written back
+ * when they are evicted or on force, so a hot page costs one write however
+ * often it changes. Hits, misses and evictions are counted.
+ *
+ * Every method is synchronized, so concurrent reads are safe but take
+ * turns, which is fine since a hit is only a copy.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class BufferPool implements StorageInterface {
+    /**
+     * Default page size in bytes
+     */
+    public static final int PAGE_SIZE = 4096;
+
+    private StorageInterface file;
+    private int pageSize;
+    private Frame[] frames;
+    private HashMap<Long, Frame> pages; // page number to frame
+    private int hand;
+
+    private long length; // data length, dirty pages may reach past the file
+    private long fileLength; // length of the storage underneath
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+
+    /**
+     * Pool with the default page size
+     *
+     * @param storage
+     *            storage underneath
+     * @param nPages
+     *            number of pages the pool holds
+     * @throws IOException
+     */
+    public BufferPool(StorageInterface storage, int nPages)
+        throws IOException {
+        this(storage, PAGE_SIZE, nPages);
+    }
+
+
+    /**
+     * Pool of nPages pages of pageSize bytes, so at most
+     * nPages * pageSize bytes are cached
+     *
+     * @param storage
+     *            storage underneath
+     * @param pageSize
+     *            page size in bytes
+     * @param nPages
+     *            number of pages the pool holds
+     * @throws IOException
+     */
+    public BufferPool(StorageInterface storage, int pageSize, int nPages)
+        throws IOException {
+        if (pageSize <= 0 || nPages <= 0) {
+            throw new IllegalArgumentException("Empty buffer pool.");
+        }
+
+        this.file = storage;
+        this.pageSize = pageSize;
+        this.frames = new Frame[nPages];
+        this.pages = new HashMap<>();
+        this.hand = 0;
+        this.length = storage.length();
+        this.fileLength = length;
+    }
+
+
+    /**
+     * Read len bytes at pos into b
+     *
+     * @param pos
+     *            position in storage
+     * @param b
+     *            destination
+     * @param off
+     *            offset in b
+     * @param len
+     *            number of bytes
+     * @throws IOException
+     *             read past the end
+     */
+    public synchronized void read(long pos, byte[] b, int off, int len)
+        throws IOException {
+        if (pos + len > length) {
+            throw new EOFException();
+        }
+
+        while (len > 0) {
+            Frame f = page(pos / pageSize, false);
+            int at = (int)(pos % pageSize);
+            int n = Math.min(len, pageSize - at);
+
+            System.arraycopy(f.data, at, b, off, n);
+            pos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+
+    /**
+     * Write len bytes from b at pos, growing the storage if needed. The
+     * pages are only changed in the pool.
+     *
+     * @param pos
+     *            position in storage
+     * @param b
+     *            source
+     * @param off
+     *            offset in b
+     * @param len
+     *            number of bytes
+     * @throws IOException
+     */
+    public synchronized void write(long pos, byte[] b, int off, int len)
+        throws IOException {
+        length = Math.max(length, pos + len);
+
+        while (len > 0) {
+            int at = (int)(pos % pageSize);
+            int n = Math.min(len, pageSize - at);
+
+            // a page written whole needn't be read first
+            Frame f = page(pos / pageSize, n == pageSize);
+            System.arraycopy(b, off, f.data, at, n);
+            f.dirty = true;
+            pos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+
+    /**
+     * Length of the data
+     *
+     * @return length in bytes
+     */
+    public synchronized long length() {
+        return length;
+    }
+
+
+    /**
+     * Grow or truncate the data. Cached bytes past a new, shorter end are
+     * dropped, so they read as zero if the data grows again.
+     *
+     * @param len
+     *            new length in bytes
+     * @throws IOException
+     */
+    public synchronized void setLength(long len) throws IOException {
+        if (len < length) {
+            for (Frame f : frames) {
+                if (f == null || f.page < 0) {
+                    continue;
+                }
+
+                long start = f.page * pageSize;
+                if (start >= len) {
+                    pages.remove(f.page);
+                    f.page = -1;
+                    f.dirty = false;
+                }
+                else if (start + pageSize > len) {
+                    Arrays.fill(f.data, (int)(len - start),
+                        pageSize, (byte)0);
+                }
+            }
+        }
+
+        file.setLength(len);
+        fileLength = len;
+        length = len;
+    }
+
+
+    /**
+     * Write every dirty page back, then force the storage underneath
+     *
+     * @throws IOException
+     */
+    public synchronized void force() throws IOException {
+        for (Frame f : frames) {
+            if (f != null && f.page >= 0 && f.dirty) {
+                writeBack(f);
+            }
+        }
+        file.force();
+    }
+
+
+    /**
+     * Write back every dirty page and close the storage underneath
+     *
+     * @throws IOException
+     */
+    public synchronized void close() throws IOException {
+        force();
+        pages.clear();
+        file.close();
+    }
+
+
+    /**
+     * Number of accesses to a page that was in the pool
+     *
+     * @return hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+
+    /**
+     * Number of accesses that had to load a page
+     *
+     * @return misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+
+    /**
+     * Number of pages evicted to make room
+     *
+     * @return evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+
+    /**
+     * Get a page into the pool
+     *
+     * @param page
+     *            page number
+     * @param whole
+     *            true if it is about to be overwritten whole, so it needn't
+     *            be read
+     * @return its frame
+     * @throws IOException
+     */
+    private Frame page(long page, boolean whole) throws IOException {
+        Frame f = pages.get(page);
+        if (f != null) {
+            hits++;
+            f.used = true;
+            return f;
+        }
+
+        misses++;
+        f = victim();
+        f.page = page;
+        f.used = true;
+        f.dirty = false;
+
+        // only the part that is in the storage underneath is read
+        long start = page * pageSize;
+        int avail = (int)Math.max(0, Math.min(pageSize, fileLength - start));
+        if (whole) {
+            avail = 0;
+        }
+        if (avail > 0) {
+            file.read(start, f.data, 0, avail);
+        }
+        Arrays.fill(f.data, avail, pageSize, (byte)0);
+
+        pages.put(page, f);
+        return f;
+    }
+
+
+    /**
+     * Find a free frame, or sweep the clock for a page to evict
+     *
+     * @return frame to reuse
+     * @throws IOException
+     */
+    private Frame victim() throws IOException {
+        while (true) {
+            if (frames[hand] == null) { // pool not full yet
+                frames[hand] = new Frame(pageSize);
+            }
+
+            Frame f = frames[hand];
+            hand = (hand + 1) % frames.length;
+
+            if (f.page < 0) {
+                return f;
+            }
+            if (f.used) { // second chance
+                f.used = false;
+                continue;
+            }
+
+            if (f.dirty) {
+                writeBack(f);
+            }
+            pages.remove(f.page);
+            f.page = -1;
+            evictions++;
+            return f;
+        }
+    }
+
+
+    /**
+     * Write a dirty page back, up to the end of the data
+     *
+     * @param f
+     *            frame
+     * @throws IOException
+     */
+    private void writeBack(Frame f) throws IOException {
+        long start = f.page * pageSize;
+        int n = (int)Math.min(pageSize, length - start);
+
+        file.write(start, f.data, 0, n);
+        fileLength = Math.max(fileLength, start + n);
+        f.dirty = false;
+    }
+
+
+    /**
+     * A buffer holding one page
+     */
+    private static class Frame {
+        private byte[] data;
+        private long page;
+        private boolean used; // referenced since the hand last passed
+        private boolean dirty;
+
+
+        /**
+         * Empty frame
+         *
+         * @param size
+         *            page size
+         */
+        Frame(int size) {
+            data = new byte[size];
+            page = -1;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+import student.TestCase;
+
+/**
+ * Testing the buffer pool.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class BufferPoolTest extends TestCase {
+    private BufferPool pool;
+
+
+    /**
+     * Default setup for each test, a tiny pool so pages get evicted.
+     *
+     * @throws IOException
+     */
+    public void setUp() throws IOException {
+        new File("bFile.bin").delete();
+        pool = new BufferPool(new FileStorage("bFile.bin"), 16, 4);
+    }
+
+
+    /**
+     * Test hits, misses and second chances.
+     *
+     * @throws IOException
+     */
+    public void testCounters() throws IOException {
+        byte[] b = new byte[64];
+        Arrays.fill(b, (byte)7);
+        pool.write(0, b, 0, 64); // four whole pages, nothing read
+        assertEquals(0, pool.getHits());
+        assertEquals(4, pool.getMisses());
+
+        byte[] one = new byte[1];
+        pool.read(5, one, 0, 1);
+        pool.read(20, one, 0, 1);
+        assertEquals(2, pool.getHits());
+        assertEquals(0, pool.getEvictions());
+
+        // a fifth page evicts one, after every page had its second chance
+        pool.write(64, b, 0, 1);
+        assertEquals(1, pool.getEvictions());
+        assertEquals(5, pool.getMisses());
+
+        // the evicted page was written back and reads back the same
+        byte[] all = new byte[64];
+        pool.read(0, all, 0, 64);
+        assertTrue(Arrays.equals(b, all));
+        assertEquals(65, pool.length());
+    }
+
+
+    /**
+     * Test random reads and writes against a plain array, and that force
+     * leaves the file with the same bytes.
+     *
+     * @throws IOException
+     */
+    public void testRandom() throws IOException {
+        Random rnd = new Random(5);
+        byte[] model = new byte[400];
+        int len = 0;
+
+        for (int k = 0; k < 3000; k++) {
+            int op = rnd.nextInt(10);
+
+            if (op < 5) { // write
+                int pos = rnd.nextInt(300);
+                int n = 1 + rnd.nextInt(60);
+                byte[] b = new byte[n];
+                rnd.nextBytes(b);
+                pool.write(pos, b, 0, n);
+                System.arraycopy(b, 0, model, pos, n);
+                len = Math.max(len, pos + n);
+            }
+            else if (op < 9 && len > 0) { // read
+                int pos = rnd.nextInt(len);
+                int n = rnd.nextInt(len - pos + 1);
+                byte[] b = new byte[n];
+                pool.read(pos, b, 0, n);
+                assertTrue(Arrays.equals(Arrays.copyOfRange(model, pos, pos
+                    + n), b));
+            }
+            else { // truncate or grow, new bytes are zero
+                int newLen = rnd.nextInt(360);
+                if (newLen < len) {
+                    Arrays.fill(model, newLen, len, (byte)0);
+                }
+                pool.setLength(newLen);
+                len = newLen;
+            }
+            assertEquals(len, pool.length());
+        }
+        assertTrue(pool.getEvictions() > 0);
+
+        pool.close();
+        RandomAccessFile raf = new RandomAccessFile("bFile.bin", "r");
+        byte[] onDisk = new byte[(int)raf.length()];
+        raf.readFully(onDisk);
+        raf.close();
+        assertTrue(Arrays.equals(Arrays.copyOf(model, len), onDisk));
+    }
+
+
+    /**
+     * Test reading past the end.
+     *
+     * @throws IOException
+     */
+    public void testReadPastEnd() throws IOException {
+        pool.write(0, new byte[10], 0, 10);
+
+        IOException e = null;
+        try {
+            pool.read(5, new byte[6], 0, 6);
+        }
+        catch (EOFException x) {
+            e = x;
+        }
+        assertNotNull(e);
+    }
+
+
+    /**
+     * Test a database on a pooled memory file.
+     *
+     * @throws IOException
+     */
+    public void testDatabase() throws IOException {
+        MemManager mem = new MemManager(pool, false);
+        DNADataBase db = new DNADataBase(mem, new BucketHash(64, mem));
+
+        db.insert("AAAA", "20", "ACGTACGTACGTACGTACGT");
+        db.insert("CCCC", "8", "TTTTGGGG");
+        db.remove("AAAA");
+        db.insert("GG", "4", "CATG");
+
+        systemOut().clearHistory();
+        db.search("CCCC");
+        db.search("GG");
+        db.search("AAAA");
+        assertEquals("Sequence Found: TTTTGGGG\nSequence Found: CATG\n"
+            + "SequenceID AAAA not found\n", systemOut().getHistory());
+        assertTrue(pool.getHits() > 0);
+        db.close();
+    }
+}
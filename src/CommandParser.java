@@ -0,0 +1,423 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Streaming parser for command files.
+ *
+ * Reads the file through its own buffer, one line at a time, and splits
+ * command lines into whitespace separated tokens. The line after an insert
+ * is never turned into a String: it is checked and 2 bit encoded in the same
+ * pass that looks for the end of the line, into a buffer reused for every
+ * insert. Only an invalid sequence is kept as text, to report it.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class CommandParser {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final byte[] INSERT = bytes("insert");
+    private static final byte[] REMOVE = bytes("remove");
+    private static final byte[] PRINT = bytes("print");
+    private static final byte[] SEARCH = bytes("search");
+    private static final byte[] LOAD = bytes("load");
+    private static final byte[] PURGE = bytes("purge");
+
+    private InputStream in;
+    private DNADataBase dBase;
+
+    // input buffer
+    private byte[] buf;
+    private int pos;
+    private int limit;
+
+    // current command line and the token scanner's place in it
+    private byte[] line;
+    private int lineLen;
+    private int tokStart;
+    private int tokEnd;
+
+    // encoded sequence line, or its text if it was invalid
+    private byte[] seq;
+    private int seqLen;
+    private int seqBytes;
+    private byte[] raw;
+    private int rawLen;
+
+
+    /**
+     * Create a parser feeding the database
+     *
+     * @param input
+     *            command file stream
+     * @param db
+     *            database to run the commands on
+     */
+    public CommandParser(InputStream input, DNADataBase db) {
+        this.in = input;
+        this.dBase = db;
+
+        this.buf = new byte[BUFFER_SIZE];
+        this.pos = 0;
+        this.limit = 0;
+
+        this.line = new byte[256];
+        this.seq = new byte[256];
+        this.raw = new byte[256];
+    }
+
+
+    /**
+     * Run every command in the stream
+     *
+     * @throws IOException
+     * @throws NumberFormatException
+     *             bad sequence length
+     */
+    public void parse() throws IOException {
+        while (readLine()) {
+            tokEnd = 0;
+
+            while (nextToken()) {
+                if (token(INSERT)) {
+                    insert();
+                }
+                else if (token(REMOVE)) {
+                    nextToken();
+                    String seqID = tokenString();
+
+                    if (check(seqID)) {
+                        dBase.remove(seqID);
+                    }
+                }
+                else if (token(PRINT)) {
+                    dBase.print();
+                }
+                else if (token(SEARCH)) {
+                    nextToken();
+                    String seqID = tokenString();
+
+                    if (check(seqID)) {
+                        dBase.search(seqID);
+                    }
+                }
+                else if (token(LOAD)) {
+                    nextToken();
+                    load(tokenString());
+                }
+                else if (token(PURGE)) {
+                    System.out.println("Tombstones purged: " + dBase
+                        .purge());
+                }
+                // anything else: do nothing
+            }
+        }
+    }
+
+
+    /**
+     * insert ID LEN, with the sequence on the next line
+     *
+     * @throws IOException
+     */
+    private void insert() throws IOException {
+        nextToken();
+        String seqID = tokenString();
+        nextToken();
+        String len = tokenString();
+
+        boolean valid = readSequence();
+
+        if (check(seqID)) {
+            if (valid && seqLen > 0) {
+                dBase.insert(seqID, Integer.parseInt(len), seq, seqBytes);
+            }
+            else {
+                System.out.println("Invalid Sequence: " + new String(raw, 0,
+                    rawLen, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+
+    /**
+     * load FILE, a FASTA or FASTQ file of sequences to insert
+     *
+     * @param fileName
+     *            file to load
+     * @throws IOException
+     */
+    private void load(String fileName) throws IOException {
+        try {
+            int n = new FastaLoader(dBase).load(fileName);
+            System.out.println("Sequences loaded: " + n);
+        }
+        catch (FileNotFoundException e) {
+            System.out.println("File " + fileName + " not found");
+        }
+    }
+
+
+    /**
+     * Check that an ID contains valid characters A, C, G or T
+     *
+     * @param sq
+     *            ID to be checked
+     * @return true if valid
+     */
+    private boolean check(String sq) {
+        if (sq.length() == 0 || !NucleotideCodec.isValid(sq)) {
+            System.out.println("Invalid Sequence: " + sq);
+            return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Read the next line into the line buffer
+     *
+     * @return false at the end of the stream
+     * @throws IOException
+     */
+    private boolean readLine() throws IOException {
+        lineLen = 0;
+
+        if (pos == limit && !fill()) {
+            return false;
+        }
+
+        while (pos < limit || fill()) {
+            byte c = buf[pos++];
+
+            if (c == '\n') {
+                return true;
+            }
+            if (c == '\r') {
+                skipNewline();
+                return true;
+            }
+
+            if (lineLen == line.length) {
+                line = Arrays.copyOf(line, lineLen * 2);
+            }
+            line[lineLen++] = c;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Read the next line as a sequence, checking and encoding it as the
+     * bytes come in. A missing line is an empty sequence.
+     *
+     * @return true if every character was A, C, G or T
+     * @throws IOException
+     */
+    private boolean readSequence() throws IOException {
+        seqLen = 0;
+        seqBytes = 0;
+        rawLen = 0;
+        boolean valid = true;
+        int acc = 0;
+
+        while (pos < limit || fill()) {
+            byte c = buf[pos++];
+
+            if (c == '\n') {
+                break;
+            }
+            if (c == '\r') {
+                skipNewline();
+                break;
+            }
+
+            if (valid) {
+                int v = NucleotideCodec.code((char)(c & 0xFF));
+
+                if (v <= 3) {
+                    acc = (acc << 2) | v;
+                    seqLen++;
+
+                    // a byte is full
+                    if ((seqLen & 3) == 0) {
+                        putSeq(acc);
+                        acc = 0;
+                    }
+                    continue;
+                }
+
+                // the text so far was all bases, get it back from the code
+                valid = false;
+                flushSeq(acc);
+                rawLen = 0;
+                grow(seqLen + 1);
+                char[] text = new char[seqLen];
+                NucleotideCodec.decode(seq, seqLen, text, 0);
+                for (int i = 0; i < seqLen; i++) {
+                    raw[rawLen++] = (byte)text[i];
+                }
+            }
+
+            grow(rawLen + 1);
+            raw[rawLen++] = c;
+        }
+
+        if (valid) {
+            flushSeq(acc);
+        }
+        return valid;
+    }
+
+
+    /**
+     * Write out a partial last byte, padded with A's
+     *
+     * @param acc
+     *            bases not yet written
+     */
+    private void flushSeq(int acc) {
+        int rem = seqLen & 3;
+        if (rem > 0) {
+            putSeq(acc << ((4 - rem) * 2));
+        }
+    }
+
+
+    /**
+     * Append a byte to the encoded sequence
+     *
+     * @param b
+     *            byte
+     */
+    private void putSeq(int b) {
+        if (seqBytes == seq.length) {
+            seq = Arrays.copyOf(seq, seqBytes * 2);
+        }
+        seq[seqBytes++] = (byte)b;
+    }
+
+
+    /**
+     * Make room in the raw text buffer
+     *
+     * @param n
+     *            bytes needed
+     */
+    private void grow(int n) {
+        if (n > raw.length) {
+            raw = Arrays.copyOf(raw, Math.max(n, raw.length * 2));
+        }
+    }
+
+
+    /**
+     * Skip the \n of a \r\n line break
+     *
+     * @throws IOException
+     */
+    private void skipNewline() throws IOException {
+        if ((pos < limit || fill()) && buf[pos] == '\n') {
+            pos++;
+        }
+    }
+
+
+    /**
+     * Refill the input buffer
+     *
+     * @return false at the end of the stream
+     * @throws IOException
+     */
+    private boolean fill() throws IOException {
+        int n = in.read(buf, 0, buf.length);
+        while (n == 0) {
+            n = in.read(buf, 0, buf.length);
+        }
+
+        pos = 0;
+        limit = Math.max(n, 0);
+        return n > 0;
+    }
+
+
+    /**
+     * Move to the next token of the current line
+     *
+     * @return false if the line has no more tokens
+     */
+    private boolean nextToken() {
+        int i = tokEnd;
+        while (i < lineLen && isSpace(line[i])) {
+            i++;
+        }
+
+        tokStart = i;
+        while (i < lineLen && !isSpace(line[i])) {
+            i++;
+        }
+        tokEnd = i;
+
+        return tokStart < tokEnd;
+    }
+
+
+    /**
+     * Compare the current token to a keyword
+     *
+     * @param word
+     *            keyword
+     * @return true if equal
+     */
+    private boolean token(byte[] word) {
+        if (tokEnd - tokStart != word.length) {
+            return false;
+        }
+        for (int i = 0; i < word.length; i++) {
+            if (line[tokStart + i] != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * The current token as a String
+     *
+     * @return token, empty if the line ran out
+     */
+    private String tokenString() {
+        return new String(line, tokStart, tokEnd - tokStart,
+            StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Whitespace separating tokens
+     *
+     * @param c
+     *            byte
+     * @return true if whitespace
+     */
+    private static boolean isSpace(byte c) {
+        return c == ' ' || (c >= '\t' && c <= '\r') || (c >= 0x1C
+            && c <= 0x1F);
+    }
+
+
+    /**
+     * ASCII bytes of a keyword
+     *
+     * @param s
+     *            keyword
+     * @return bytes
+     */
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,96 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import student.TestCase;
+
+/**
+ * Testing the command parser.
+ * 
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class CommandParserTest extends TestCase {
+    private DNADataBase dbase;
+
+
+    /**
+     * Default setup for each test.
+     * 
+     * @throws IOException
+     */
+    public void setUp() throws IOException {
+        dbase = new DNADataBase("mFile.bin", 64);
+    }
+
+
+    /**
+     * Test commands, line breaks and invalid sequences.
+     * 
+     * @throws IOException
+     */
+    public void testParse() throws IOException {
+        run("insert AAA 4 search AAA\r\nACGT\r\n\tsearch CCC\n"
+            + "insert CCN 3\nACG\ninsert GGG 3\nACN\ninsert TTT 0\n\n"
+            + "bogus remove AAA\ninsert TA 5\nTTTTA");
+
+        assertEquals("Sequence Found: ACGT\nSequenceID CCC not found\n"
+            + "Invalid Sequence: CCN\nInvalid Sequence: ACN\n"
+            + "Invalid Sequence: \nSequence Removed AAA:\nACGT\n", systemOut()
+                .getHistory());
+
+        systemOut().clearHistory();
+        dbase.search("TA");
+        assertEquals("Sequence Found: TTTTA\n", systemOut().getHistory());
+    }
+
+
+    /**
+     * Test a sequence longer than the parser's buffers.
+     * 
+     * @throws IOException
+     */
+    public void testLongSequence() throws IOException {
+        StringBuilder seq = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            seq.append("ACGTTGCA".charAt(i % 8));
+        }
+
+        run("insert GATTACA 100000\n" + seq + "\nsearch GATTACA\n");
+        assertEquals("Sequence Found: " + seq + "\n", systemOut()
+            .getHistory());
+
+        // invalid right at the end, reported in full
+        systemOut().clearHistory();
+        run("insert CAT 100001\n" + seq + "N\n");
+        assertEquals("Invalid Sequence: " + seq + "N\n", systemOut()
+            .getHistory());
+    }
+
+
+    /**
+     * Test purge reports the tombstones it cleared.
+     * 
+     * @throws IOException
+     */
+    public void testPurge() throws IOException {
+        run("insert AAA 4\nACGT\ninsert CCC 4\nACGT\nremove AAA\n");
+        systemOut().clearHistory();
+
+        run("purge\npurge\nsearch CCC\n");
+        assertEquals("Tombstones purged: 1\nTombstones purged: 0\n"
+            + "Sequence Found: ACGT\n", systemOut().getHistory());
+    }
+
+
+    /**
+     * Parse a command string
+     * 
+     * @param commands
+     *            command file contents
+     * @throws IOException
+     */
+    private void run(String commands) throws IOException {
+        new CommandParser(new ByteArrayInputStream(commands.getBytes(
+            StandardCharsets.US_ASCII)), dbase).parse();
+    }
+}
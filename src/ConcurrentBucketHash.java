@@ -0,0 +1,494 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bucket hash that several threads can insert into at once.
+ *
+ * Same layout and probing as BucketHash, but every 32 slot bucket has its
+ * own lock, so inserts and removals in different buckets never wait for
+ * each other. Slots are published through an atomic array, so find and get
+ * read them without locking. The entry count is a LongAdder, which doesn't
+ * make every insert fight over one counter.
+ *
+ * Since readers don't lock, purging tombstones never moves an entry: it
+ * only turns back into never used the tombstones that no entry's probe
+ * passes over.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class ConcurrentBucketHash
+    implements BucketHashInterface<String, MemHandle, MemHandle> {
+    /**
+     * insertIfAbsent result for a full bucket
+     */
+    public static final int FULL = -1;
+
+    /**
+     * insertIfAbsent result for an ID already in the table
+     */
+    public static final int EXISTS = -2;
+
+    private static final int BUCKET_SIZE = 32;
+
+    // one shared tombstone, tombstones carry nothing
+    private static final TableEntry TOMB = new TableEntry(null, null);
+
+    static {
+        TOMB.setSlot(-1);
+    }
+
+    private AtomicReferenceArray<TableEntry> hTable;
+    private Object[] locks;
+    private int maxSize;
+    private LongAdder size;
+    private LongAdder tombs;
+    private MemManager memManager;
+    private HashStrategy hash;
+
+
+    /**
+     * Creates a hashtable with the size provided whose ID handles point into
+     * the given memory manager (needed by find)
+     *
+     * @param s
+     *            intended size
+     * @param mem
+     *            memory manager holding the sequence IDs
+     */
+    public ConcurrentBucketHash(int s, MemManager mem) {
+        this(s, mem, HashStrategy.SFOLD);
+    }
+
+
+    /**
+     * Creates a hashtable with the size provided that places IDs with the
+     * given hash function. A snapshot only restores into a table using the
+     * same one.
+     *
+     * @param s
+     *            intended size
+     * @param mem
+     *            memory manager holding the sequence IDs
+     * @param h
+     *            hash function
+     */
+    public ConcurrentBucketHash(int s, MemManager mem, HashStrategy h) {
+        hash = h;
+        maxSize = s;
+        hTable = new AtomicReferenceArray<>(maxSize);
+        size = new LongAdder();
+        tombs = new LongAdder();
+        memManager = mem;
+
+        locks = new Object[(maxSize + BUCKET_SIZE - 1) / BUCKET_SIZE];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+
+    /**
+     * Get the size
+     *
+     * @return size
+     */
+    public int getSize() {
+        return size.intValue();
+    }
+
+
+    /**
+     * Get the maximum size
+     *
+     * @return size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+
+    /**
+     * Assumes the ID isn't in the table yet. Inserts into the first free
+     * slot of the ID's bucket
+     *
+     * @param seqID
+     *            the sequence for sFold
+     * @param key
+     *            Key Handle
+     * @param value
+     *            Handle
+     * @return the slot, -1 if the bucket is full
+     */
+    public int insert(String seqID, MemHandle key, MemHandle value) {
+        int home = (int)(hash.hash(seqID) % maxSize);
+
+        synchronized (locks[home / BUCKET_SIZE]) {
+            return place(home, seqID, key, value);
+        }
+    }
+
+
+    /**
+     * Insert unless the ID is already in the table, as one step with
+     * respect to other inserts of the same ID
+     *
+     * @param seqID
+     *            the sequence for sFold
+     * @param key
+     *            Key Handle
+     * @param value
+     *            Handle
+     * @return the slot, FULL if the bucket is full, EXISTS if the ID is
+     *         already in the table
+     * @throws IOException
+     */
+    public int insertIfAbsent(String seqID, MemHandle key, MemHandle value)
+        throws IOException {
+        int home = (int)(hash.hash(seqID) % maxSize);
+
+        synchronized (locks[home / BUCKET_SIZE]) {
+            if (probe(seqID, home) != -1) {
+                return EXISTS;
+            }
+            return place(home, seqID, key, value);
+        }
+    }
+
+
+    /**
+     * Find the slot holding a sequence ID, without locking
+     *
+     * @param seqID
+     *            the sequence ID to look for
+     * @return the slot, or -1 if the ID is not in the table
+     * @throws IOException
+     */
+    public int find(String seqID) throws IOException {
+        return probe(seqID, (int)(hash.hash(seqID) % maxSize));
+    }
+
+
+    /**
+     * A method to return the table entry at the slot
+     *
+     * @param i
+     *            the slot to peek
+     * @return the tableEntry at the slot, null if empty or a tombstone
+     */
+    public TableEntry get(int i) {
+        TableEntry temp = hTable.get(i);
+        return temp == TOMB ? null : temp;
+    }
+
+
+    /**
+     * Insert tombstone
+     *
+     * @param slot
+     *            the slot to insert
+     */
+    public void insertTomb(int slot) {
+        synchronized (locks[slot / BUCKET_SIZE]) {
+            hTable.set(slot, TOMB);
+        }
+        size.decrement();
+        tombs.increment();
+    }
+
+
+    /**
+     * Clear every tombstone that no entry's probe passes over, a bucket at
+     * a time under its lock. Home slots are worked out from the stored IDs.
+     *
+     * @return tombstones cleared
+     * @throws IOException
+     */
+    public int purge() throws IOException {
+        int n = 0;
+        boolean[] needed = new boolean[BUCKET_SIZE];
+
+        for (int b = 0; b < maxSize / BUCKET_SIZE; b++) {
+            synchronized (locks[b]) {
+                int start = b * BUCKET_SIZE;
+                boolean any = false;
+                for (int i = start; i < start + BUCKET_SIZE && !any; i++) {
+                    any = hTable.get(i) == TOMB;
+                }
+                if (!any) {
+                    continue;
+                }
+
+                // slots from each entry's home up to the entry
+                Arrays.fill(needed, false);
+                for (int i = start; i < start + BUCKET_SIZE; i++) {
+                    TableEntry temp = hTable.get(i);
+                    if (temp == null || temp == TOMB) {
+                        continue;
+                    }
+
+                    int j = (int)(hash.hash(NucleotideCodec.decode(memManager
+                        .getSequence(temp.getID()), temp.getID().getLength()))
+                        % maxSize);
+                    for (; j != i; j = nextSlot(j)) {
+                        needed[j - start] = true;
+                    }
+                }
+
+                for (int i = start; i < start + BUCKET_SIZE; i++) {
+                    if (hTable.get(i) == TOMB && !needed[i - start]) {
+                        hTable.set(i, null);
+                        tombs.decrement();
+                        n++;
+                    }
+                }
+            }
+        }
+        return n;
+    }
+
+
+    /**
+     * Get the number of tombstones in the table
+     *
+     * @return tombstones
+     */
+    public int getTombstones() {
+        return tombs.intValue();
+    }
+
+
+    /**
+     * Point a used slot at its records after they moved
+     *
+     * @param slot
+     *            the slot to update
+     * @param key
+     *            new ID handle
+     * @param value
+     *            new sequence handle
+     */
+    public void update(int slot, MemHandle key, MemHandle value) {
+        synchronized (locks[slot / BUCKET_SIZE]) {
+            TableEntry temp = new TableEntry(key, value);
+            temp.setSlot(slot);
+            temp.setFingerprint(hTable.get(slot).getFingerprint());
+            hTable.set(slot, temp);
+        }
+    }
+
+
+    /**
+     * Snapshot of every used slot, same format as BucketHash, fingerprints
+     * included. Call it while nothing is inserting.
+     *
+     * @return snapshot bytes
+     * @throws IOException
+     */
+    public byte[] snapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        BucketHash.writeHeader(out, hash, maxSize);
+        out.writeInt(getSize());
+        int[] fps = new int[getSize()];
+        int n = 0;
+
+        for (int i = 0; i < maxSize; i++) {
+            TableEntry temp = hTable.get(i);
+            if (temp == null) {
+                continue;
+            }
+
+            out.writeInt(i);
+            if (temp == TOMB) {
+                out.writeInt(0);
+                out.writeInt(-1);
+                out.writeInt(0);
+                out.writeInt(0);
+            }
+            else {
+                fps[n++] = temp.getFingerprint();
+                out.writeInt(temp.getID().getPosition());
+                out.writeInt(temp.getID().getLength());
+                out.writeInt(temp.getSequence().getPosition());
+                out.writeInt(temp.getSequence().getLength());
+            }
+        }
+
+        out.writeInt(-1); // end
+        out.writeInt(0); // no overflow pages
+        BucketHash.writeFingerprints(out, fps, n);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * Restore the table from a snapshot, working the fingerprints out again
+     * from the stored IDs only for a snapshot written without them. Call it
+     * while nothing is using the table.
+     *
+     * @param snap
+     *            snapshot bytes
+     * @throws IOException
+     *             snapshot is for a different size table or hash strategy
+     */
+    public void restore(byte[] snap) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+            snap));
+
+        if (BucketHash.readHeader(in, hash) != maxSize) {
+            throw new IOException("Hash table size does not match.");
+        }
+
+        hTable = new AtomicReferenceArray<>(maxSize);
+        size.reset();
+        size.add(in.readInt());
+        tombs.reset();
+        TableEntry[] used = new TableEntry[getSize()];
+        int n = 0;
+
+        for (int i = in.readInt(); i != -1; i = in.readInt()) {
+            int idPos = in.readInt();
+            int idLen = in.readInt();
+            int seqPos = in.readInt();
+            int seqLen = in.readInt();
+
+            if (idLen == -1) {
+                hTable.set(i, TOMB);
+                tombs.increment();
+            }
+            else {
+                TableEntry temp = new TableEntry(new MemHandle(idPos, idLen),
+                    new MemHandle(seqPos, seqLen));
+                temp.setSlot(i);
+                if (n == used.length) {
+                    used = Arrays.copyOf(used, n * 2 + 1);
+                }
+                used[n++] = temp;
+                hTable.set(i, temp);
+            }
+        }
+
+        if (in.available() > 0 && in.readInt() != 0) {
+            throw new IOException("Hash table size does not match.");
+        }
+        int[] fps = BucketHash.readFingerprints(in, n);
+        for (int k = 0; k < n; k++) {
+            TableEntry temp = used[k];
+            temp.setFingerprint(fps != null ? fps[k]
+                : BucketHash.fingerprint(NucleotideCodec.decode(memManager
+                    .getSequence(temp.getID()), temp.getID().getLength())));
+        }
+    }
+
+
+    /**
+     * Nothing to release for the in-memory table
+     */
+    public void close() {
+        // nothing to do
+    }
+
+
+    /**
+     * Put an entry in the first free slot from home, holding the bucket's
+     * lock
+     *
+     * @param home
+     *            home slot
+     * @param seqID
+     *            the sequence ID, for its fingerprint
+     * @param key
+     *            Key Handle
+     * @param value
+     *            Handle
+     * @return the slot, -1 if the bucket is full
+     */
+    private int place(int home, String seqID, MemHandle key,
+        MemHandle value) {
+        int i = home;
+
+        for (int j = 0; j < BUCKET_SIZE; j++) {
+            TableEntry temp = hTable.get(i);
+
+            if (temp == null || temp == TOMB) {
+                if (temp == TOMB) {
+                    tombs.decrement();
+                }
+                TableEntry entry = new TableEntry(key, value);
+                entry.setSlot(i);
+                entry.setFingerprint(BucketHash.fingerprint(seqID));
+                hTable.set(i, entry); // published fully built
+                size.increment();
+                return i;
+            }
+            i = nextSlot(i);
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Probe the bucket from home for a sequence ID
+     *
+     * @param seqID
+     *            the sequence ID to look for
+     * @param home
+     *            home slot
+     * @return the slot, or -1 if the ID is not in the table
+     * @throws IOException
+     */
+    private int probe(String seqID, int home) throws IOException {
+        int fp = BucketHash.fingerprint(seqID);
+        byte[] key = null;
+        int i = home;
+
+        for (int j = 0; j < BUCKET_SIZE; j++) {
+            TableEntry temp = hTable.get(i);
+
+            // never used, the ID can't be further along the bucket
+            if (temp == null) {
+                return -1;
+            }
+
+            // length and fingerprint first, the file only for a likely
+            // match
+            if (temp != TOMB && temp.getID().getLength() == seqID.length()
+                && temp.getFingerprint() == fp) {
+                if (key == null) {
+                    key = NucleotideCodec.encode(seqID);
+                }
+                if (memManager.matches(temp.getID(), key)) {
+                    return i;
+                }
+            }
+            i = nextSlot(i);
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Next slot in the probe sequence, wrapping around to the start of the
+     * 32 slot bucket
+     *
+     * @param i
+     *            current slot
+     * @return next slot
+     */
+    private static int nextSlot(int i) {
+        if ((i + 1) % BUCKET_SIZE == 0) {
+            return i - (BUCKET_SIZE - 1);
+        }
+        return i + 1;
+    }
+}
@@ -0,0 +1,206 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import student.TestCase;
+
+/**
+ * Test class for the concurrent bucket hash
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class ConcurrentBucketHashTest extends TestCase {
+    private static final int THREADS = 4;
+
+    private MemManager mem;
+    private ConcurrentBucketHash hTable;
+    private String[] ids;
+    private MemHandle[] handles;
+
+
+    /**
+     * Set Up, the IDs are written to the memory file up front
+     *
+     * @throws IOException
+     */
+    public void setUp() throws IOException {
+        mem = new MemManager("mFile.bin");
+        hTable = new ConcurrentBucketHash(4096, mem);
+
+        // random IDs, skipping any that would overflow a bucket
+        BucketHash fit = new BucketHash(4096);
+        MemHandle none = new MemHandle(0, 0);
+        HashSet<String> seen = new HashSet<>();
+        Random rnd = new Random(7);
+        ids = new String[800];
+        handles = new MemHandle[ids.length];
+        for (int i = 0; i < ids.length;) {
+            String id = Benchmark.sequences(rnd, 1, 16)[0];
+            if (!seen.contains(id) && fit.insert(id, none, none) != -1) {
+                seen.add(id);
+                ids[i] = id;
+                handles[i] = mem.insert(id, id.length());
+                i++;
+            }
+        }
+    }
+
+
+    /**
+     * Test single threaded behaviour matches BucketHash
+     *
+     * @throws IOException
+     */
+    public void testMatchesBucketHash() throws IOException {
+        BucketHash plain = new BucketHash(4096, mem);
+
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(plain.insert(ids[i], handles[i], handles[i]), hTable
+                .insert(ids[i], handles[i], handles[i]));
+        }
+        assertEquals(plain.getSize(), hTable.getSize());
+
+        int slot = hTable.find(ids[5]);
+        plain.insertTomb(plain.find(ids[5]));
+        hTable.insertTomb(slot);
+        assertEquals(-1, hTable.find(ids[5]));
+        assertNull(hTable.get(slot));
+
+        ConcurrentBucketHash copy = new ConcurrentBucketHash(4096, mem);
+        copy.restore(plain.snapshot());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(plain.find(ids[i]), copy.find(ids[i]));
+        }
+        assertEquals(plain.getSize(), copy.getSize());
+    }
+
+
+    /**
+     * Test a snapshot carries the fingerprints, so restoring it reads no
+     * IDs, and an older one without them is still restored.
+     *
+     * @throws IOException
+     */
+    public void testSnapshotFingerprints() throws IOException {
+        for (int i = 0; i < ids.length; i++) {
+            hTable.insert(ids[i], handles[i], handles[i]);
+        }
+        hTable.insertTomb(hTable.find(ids[0]));
+        byte[] snap = hTable.snapshot();
+
+        // no memory manager to read IDs from
+        ConcurrentBucketHash copy = new ConcurrentBucketHash(4096, null);
+        copy.restore(snap);
+        assertTrue(Arrays.equals(snap, copy.snapshot()));
+
+        // before the fingerprints, the snapshot ended at the end mark
+        byte[] old = Arrays.copyOf(snap, snap.length - 16 - 4 * hTable
+            .getSize());
+        copy = new ConcurrentBucketHash(4096, mem);
+        copy.restore(old);
+        assertTrue(Arrays.equals(snap, copy.snapshot()));
+        assertEquals(-1, copy.find(ids[0]));
+        for (int i = 1; i < ids.length; i++) {
+            assertEquals(hTable.find(ids[i]), copy.find(ids[i]));
+        }
+    }
+
+
+    /**
+     * Test inserts from several threads at once
+     *
+     * @throws Exception
+     */
+    public void testConcurrentInsert() throws Exception {
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread[] threads = new Thread[THREADS];
+
+        for (int t = 0; t < THREADS; t++) {
+            final int first = t;
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        for (int i = first; i < ids.length; i += THREADS) {
+                            if (hTable.insert(ids[i], handles[i],
+                                handles[i]) < 0) {
+                                throw new AssertionError("full: " + ids[i]);
+                            }
+                        }
+                    }
+                    catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    }
+                }
+            });
+        }
+        run(threads);
+
+        assertNull(error.get());
+        assertEquals(ids.length, hTable.getSize());
+        for (int i = 0; i < ids.length; i++) {
+            int slot = hTable.find(ids[i]);
+            assertEquals(handles[i].getPosition(), hTable.get(slot).getID()
+                .getPosition());
+        }
+    }
+
+
+    /**
+     * Test every thread inserting the same IDs, only one insert of each
+     * wins
+     *
+     * @throws Exception
+     */
+    public void testInsertIfAbsent() throws Exception {
+        final AtomicInteger wins = new AtomicInteger();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread[] threads = new Thread[THREADS];
+
+        for (int t = 0; t < THREADS; t++) {
+            threads[t] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < ids.length; i++) {
+                            int slot = hTable.insertIfAbsent(ids[i],
+                                handles[i], handles[i]);
+                            if (slot >= 0) {
+                                wins.incrementAndGet();
+                            }
+                            else if (slot != ConcurrentBucketHash.EXISTS) {
+                                throw new AssertionError("full: " + ids[i]);
+                            }
+                        }
+                    }
+                    catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    }
+                }
+            });
+        }
+        run(threads);
+
+        assertNull(error.get());
+        assertEquals(ids.length, wins.get());
+        assertEquals(ids.length, hTable.getSize());
+    }
+
+
+    /**
+     * Start threads and wait for them
+     *
+     * @param threads
+     *            threads
+     * @throws InterruptedException
+     */
+    private void run(Thread[] threads) throws InterruptedException {
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+    }
+}
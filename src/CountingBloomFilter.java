@@ -0,0 +1,229 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A blocked counting Bloom filter over sequence IDs, answering "certainly
+ * not there" for most absent IDs without touching the hash table.
+ *
+ * The filter is split into 64 byte blocks of 128 four bit counters, one
+ * cache line each. An ID hashes (murmur, so independently of the table's
+ * sfold) to one block and to PROBES counters inside it, so a query reads a
+ * single cache line. Adding an ID increments its counters and removing it
+ * decrements them, so removes don't leave stale bits behind. A counter that
+ * reaches 15 sticks there, which can only cost a false positive, never a
+ * false negative.
+ *
+ * With the default 16 counters per ID about 1 in 200 absent IDs still gets
+ * through to a probe.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class CountingBloomFilter {
+    /**
+     * Counters set per ID
+     */
+    public static final int PROBES = 4;
+
+    /**
+     * Counters per ID the filter is sized for
+     */
+    public static final int COUNTERS_PER_ID = 16;
+
+    private static final int BLOCK_LONGS = 8; // 64 bytes
+    private static final int BLOCK_COUNTERS = BLOCK_LONGS * 16;
+    private static final int MAX = 15; // sticky
+
+    private long[] counters;
+    private int blocks;
+    private int size;
+
+
+    /**
+     * Create an empty filter
+     *
+     * @param capacity
+     *            number of IDs to size it for
+     */
+    public CountingBloomFilter(int capacity) {
+        long n = (long)Math.max(capacity, 1) * COUNTERS_PER_ID;
+        this.blocks = (int)Math.min((n + BLOCK_COUNTERS - 1) / BLOCK_COUNTERS,
+            Integer.MAX_VALUE / BLOCK_LONGS);
+        this.counters = new long[blocks * BLOCK_LONGS];
+        this.size = 0;
+    }
+
+
+    /**
+     * Add an ID
+     *
+     * @param seqID
+     *            sequence ID
+     */
+    public void add(String seqID) {
+        long h = HashStrategy.MURMUR.hash(seqID);
+        int base = block(h);
+
+        for (int k = 0; k < PROBES; k++) {
+            int c = counter(h, k);
+            int w = base + (c >>> 4);
+            int shift = (c & 15) * 4;
+            if (((counters[w] >>> shift) & MAX) != MAX) {
+                counters[w] += 1L << shift;
+            }
+        }
+        size++;
+    }
+
+
+    /**
+     * Remove an ID that was added before
+     *
+     * @param seqID
+     *            sequence ID
+     */
+    public void remove(String seqID) {
+        long h = HashStrategy.MURMUR.hash(seqID);
+        int base = block(h);
+
+        for (int k = 0; k < PROBES; k++) {
+            int c = counter(h, k);
+            int w = base + (c >>> 4);
+            int shift = (c & 15) * 4;
+            long v = (counters[w] >>> shift) & MAX;
+            if (v != MAX && v != 0) {
+                counters[w] -= 1L << shift;
+            }
+        }
+        size--;
+    }
+
+
+    /**
+     * Whether the ID may have been added
+     *
+     * @param seqID
+     *            sequence ID
+     * @return false if it certainly wasn't
+     */
+    public boolean mightContain(String seqID) {
+        long h = HashStrategy.MURMUR.hash(seqID);
+        int base = block(h);
+
+        for (int k = 0; k < PROBES; k++) {
+            int c = counter(h, k);
+            if (((counters[base + (c >>> 4)] >>> ((c & 15) * 4)) & MAX) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Number of IDs in the filter
+     *
+     * @return size
+     */
+    public int getSize() {
+        return size;
+    }
+
+
+    /**
+     * Number of IDs the filter was sized for
+     *
+     * @return capacity
+     */
+    public int getCapacity() {
+        return (int)Math.min((long)blocks * BLOCK_COUNTERS / COUNTERS_PER_ID,
+            Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * Empty the filter
+     */
+    public void clear() {
+        Arrays.fill(counters, 0);
+        size = 0;
+    }
+
+
+    /**
+     * The filter as bytes: block count, size, then the counters
+     *
+     * @return bytes
+     * @throws IOException
+     */
+    public byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(counters.length
+            * 8 + 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(blocks);
+        out.writeInt(size);
+        for (long c : counters) {
+            out.writeLong(c);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * Read a filter written by toBytes
+     *
+     * @param b
+     *            bytes
+     * @return filter
+     * @throws IOException
+     *             bytes are cut short
+     */
+    public static CountingBloomFilter fromBytes(byte[] b) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(b));
+        int blocks = in.readInt();
+        if (blocks <= 0 || (long)blocks * BLOCK_LONGS * 8 + 8 != b.length) {
+            throw new IOException("Bloom filter is damaged.");
+        }
+
+        CountingBloomFilter f = new CountingBloomFilter(1);
+        f.blocks = blocks;
+        f.size = in.readInt();
+        f.counters = new long[blocks * BLOCK_LONGS];
+        for (int i = 0; i < f.counters.length; i++) {
+            f.counters[i] = in.readLong();
+        }
+        return f;
+    }
+
+
+    /**
+     * First counter word of the ID's block
+     *
+     * @param h
+     *            hash of the ID
+     * @return index into counters
+     */
+    private int block(long h) {
+        return (int)((h >>> 28) % blocks) * BLOCK_LONGS;
+    }
+
+
+    /**
+     * One of the ID's counters within its block, from the low 28 bits of
+     * its hash
+     *
+     * @param h
+     *            hash of the ID
+     * @param k
+     *            probe number
+     * @return counter number within the block
+     */
+    private int counter(long h, int k) {
+        return (int)(h >>> (k * 7)) & (BLOCK_COUNTERS - 1);
+    }
+}
@@ -0,0 +1,176 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import student.TestCase;
+
+/**
+ * Testing the counting Bloom filter and its use in the database.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class CountingBloomFilterTest extends TestCase {
+
+    /**
+     * Default setup for each test, no files left from before.
+     */
+    public void setUp() {
+        new File("bFile.bin").delete();
+    }
+
+
+    /**
+     * Test added IDs are always found, removed ones go away and few absent
+     * ones get through.
+     *
+     * @throws IOException
+     */
+    public void testFilter() throws IOException {
+        CountingBloomFilter f = new CountingBloomFilter(1000);
+        assertEquals(1000, f.getCapacity());
+        String[] ids = Benchmark.sequences(new Random(3), 2000, 14);
+
+        for (int i = 0; i < 1000; i++) {
+            f.add(ids[i]);
+        }
+        assertEquals(1000, f.getSize());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(f.mightContain(ids[i]));
+        }
+
+        int through = 0;
+        for (int i = 1000; i < 2000; i++) {
+            if (f.mightContain(ids[i])) {
+                through++;
+            }
+        }
+        assertTrue(through < 30);
+
+        // a copy through bytes answers the same
+        CountingBloomFilter copy = CountingBloomFilter.fromBytes(f
+            .toBytes());
+        assertEquals(1000, copy.getSize());
+        for (String id : ids) {
+            assertEquals(f.mightContain(id), copy.mightContain(id));
+        }
+
+        // removing everything empties it again
+        for (int i = 0; i < 1000; i++) {
+            f.remove(ids[i]);
+        }
+        assertEquals(0, f.getSize());
+        for (String id : ids) {
+            assertFalse(f.mightContain(id));
+        }
+
+        Exception thrown = null;
+        try {
+            CountingBloomFilter.fromBytes(new byte[12]);
+        }
+        catch (IOException e) {
+            thrown = e;
+        }
+        assertNotNull(thrown);
+    }
+
+
+    /**
+     * Test the database keeps its filter in step with the table, grows it
+     * with a growing table on purge and open, and keeps it across a
+     * checkpoint.
+     *
+     * @throws IOException
+     */
+    public void testDatabase() throws IOException {
+        MemManager mem = new MemManager(new FileStorage("bFile.bin"), true);
+        DNADataBase db = new DNADataBase(mem, new LinearBucketHash(32, mem));
+        String[] ids = Benchmark.sequences(new Random(8), 200, 10);
+
+        for (String id : ids) {
+            db.insert(id, "4", "ACGT");
+        }
+        // outgrown, but not read back in an insert
+        assertEquals(32, db.getFilter().getCapacity());
+        assertEquals(200, db.getFilter().getSize());
+        for (String id : ids) {
+            assertEquals("ACGT", db.lookup(id));
+        }
+        db.purge();
+        assertTrue(db.getFilter().getCapacity() >= 200);
+        assertEquals(200, db.getFilter().getSize());
+        for (String id : ids) {
+            assertEquals("ACGT", db.lookup(id));
+        }
+
+        systemOut().clearHistory();
+        db.remove(ids[0]);
+        db.remove(ids[0]);
+        db.insert(ids[1], "4", "ACGT");
+        assertEquals("Sequence Removed " + ids[0] + ":\nACGT\n"
+            + "SequenceID " + ids[0] + " not found\n"
+            + "SequenceID " + ids[1] + " exists\n", systemOut().getHistory());
+        assertEquals(199, db.getFilter().getSize());
+        db.close();
+
+        // reopened, the filter comes back with the table
+        mem = new MemManager(new FileStorage("bFile.bin"), true);
+        db = new DNADataBase(mem, new LinearBucketHash(32, mem));
+        assertEquals(199, db.getFilter().getSize());
+        assertNull(db.lookup(ids[0]));
+        for (int i = 1; i < ids.length; i++) {
+            assertEquals("ACGT", db.lookup(ids[i]));
+        }
+        db.close();
+    }
+
+
+    /**
+     * Test a filter the table outgrew before a checkpoint is grown when
+     * the database is opened again.
+     *
+     * @throws IOException
+     */
+    public void testGrowOnOpen() throws IOException {
+        MemManager mem = new MemManager(new FileStorage("bFile.bin"), true);
+        DNADataBase db = new DNADataBase(mem, new LinearBucketHash(32, mem));
+        String[] ids = Benchmark.sequences(new Random(5), 100, 10);
+        for (String id : ids) {
+            db.insert(id, "4", "ACGT");
+        }
+        assertEquals(32, db.getFilter().getCapacity());
+        db.close();
+
+        mem = new MemManager(new FileStorage("bFile.bin"), true);
+        db = new DNADataBase(mem, new LinearBucketHash(32, mem));
+        assertTrue(db.getFilter().getCapacity() >= 100);
+        assertEquals(100, db.getFilter().getSize());
+        for (String id : ids) {
+            assertEquals("ACGT", db.lookup(id));
+        }
+        db.close();
+    }
+
+
+    /**
+     * Test a checkpoint written without a filter gets one built from the
+     * table.
+     *
+     * @throws IOException
+     */
+    public void testOldCheckpoint() throws IOException {
+        MemManager mem = new MemManager(new FileStorage("bFile.bin"), true);
+        BucketHash table = new BucketHash(64, mem);
+        DNADataBase db = new DNADataBase(mem, table);
+        db.insert("ACGT", "4", "AAAA");
+        db.insert("TTTT", "4", "CCCC");
+        mem.checkpoint(table.snapshot());
+        mem.close();
+
+        mem = new MemManager(new FileStorage("bFile.bin"), true);
+        db = new DNADataBase(mem, new BucketHash(64, mem));
+        assertEquals(2, db.getFilter().getSize());
+        assertEquals("CCCC", db.lookup("TTTT"));
+        assertNull(db.lookup("GGGG"));
+        db.close();
+    }
+}
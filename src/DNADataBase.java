@@ -1,5 +1,13 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * DNADBase class is a database system for DNA sequences.
@@ -8,12 +16,59 @@ import java.util.LinkedList;
  * sequence ID. It also includes a memory manager to help with binary file
  * storage of sequences and sequence ID's.
  * 
+ * Lookups and searches may run from many threads at once, alongside a
+ * thread making changes: they share a read lock on the table, and every
+ * change takes the write lock.
+ * 
+ * A counting Bloom filter over the IDs in the table answers most searches,
+ * removes and duplicate checks for absent IDs without probing the table.
+ * It is sized from the table's slots and checkpointed along with the
+ * table. A table that grows past it is only caught up on open and purge.
+ * 
  * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
  * @version 5/5/19
  */
 public class DNADataBase {
+    /**
+     * Default budget of the decoded sequence cache in bytes
+     */
+    public static final long DEFAULT_CACHE_BYTES = 8L << 20;
+
+    /**
+     * Log length in bytes past which a logged database checkpoints itself,
+     * by default
+     */
+    public static final long CHECKPOINT_LOG_BYTES = 16L << 20;
+
+    /**
+     * Most records moved by one automatic compaction step
+     */
+    public static final int COMPACT_STEP = 64;
+
+    /**
+     * Most records one automatic compaction step looks at
+     */
+    public static final int COMPACT_SCAN = COMPACT_STEP * 16;
+
+    // marks a checkpoint holding the Bloom filter after the table snapshot
+    private static final int FILTER_MAGIC = 0xB100F11E;
+
     private MemManager memManager; // memory manager
-    private BucketHash bHash;
+    private BucketHashInterface<String, MemHandle, MemHandle> bHash;
+    private ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private SequenceCache cache = new SequenceCache(DEFAULT_CACHE_BYTES);
+    private WriteAheadLog wal; // null if commands aren't logged
+    private double compactThreshold = 1; // off
+    private long checkpointLogBytes = CHECKPOINT_LOG_BYTES;
+    private CountingBloomFilter filter;
+
+    // compaction lap: (position, slot, sequence or ID) of every live record
+    // when it started, by position, tried from the top down
+    private long[] lap;
+    private int lapNext; // next record to try, -1 once the lap is done
+    private boolean lapMoved; // the lap has moved a record
+    private boolean stuck; // the last lap moved nothing
+    private int removedSinceLap;
 
 
     /**
@@ -29,7 +84,151 @@ public class DNADataBase {
      */
     public DNADataBase(String fileName, int size) throws IOException {
         this.memManager = new MemManager(fileName);
-        this.bHash = new BucketHash(size);
+        this.bHash = new BucketHash(size, memManager);
+        this.filter = new CountingBloomFilter(bHash.getMaxSize());
+    }
+
+
+    /**
+     * Constructor for a DNA Database whose hash table lives in its own
+     * file rather than on the heap.
+     * 
+     * @param fileName
+     *            name of binary file
+     * 
+     * @param hashFile
+     *            name of hash table file
+     * 
+     * @param size
+     *            size of hash table
+     * 
+     * @throws IOException
+     */
+    public DNADataBase(String fileName, String hashFile, int size)
+        throws IOException {
+        this(fileName, hashFile, size, false);
+    }
+
+
+    /**
+     * Constructor for a DNA Database with its hash table in its own file.
+     * A persistent database reopens the last checkpoint of both files, if
+     * there is one, instead of starting empty, and logs every change to
+     * fileName.wal so nothing after the checkpoint is lost either.
+     * 
+     * @param fileName
+     *            name of binary file
+     * 
+     * @param hashFile
+     *            name of hash table file
+     * 
+     * @param size
+     *            size of hash table
+     * 
+     * @param persist
+     *            true to keep the database between runs
+     * 
+     * @throws IOException
+     */
+    public DNADataBase(String fileName, String hashFile, int size,
+        boolean persist) throws IOException {
+        this(fileName, hashFile, size, persist, HashStrategy.SFOLD);
+    }
+
+
+    /**
+     * Constructor for a DNA Database with its hash table in its own file,
+     * placing IDs with the given hash function. A persistent database only
+     * reopens a checkpoint taken with the same one.
+     * 
+     * @param fileName
+     *            name of binary file
+     * 
+     * @param hashFile
+     *            name of hash table file
+     * 
+     * @param size
+     *            size of hash table
+     * 
+     * @param persist
+     *            true to keep the database between runs
+     * 
+     * @param h
+     *            hash function
+     * 
+     * @throws IOException
+     */
+    public DNADataBase(String fileName, String hashFile, int size,
+        boolean persist, HashStrategy h) throws IOException {
+        this.memManager = new MemManager(fileName, persist);
+        byte[] snap = memManager.getTableSnapshot();
+
+        this.bHash = new DiskBucketHash(hashFile, size, memManager,
+            snap != null, persist, h);
+        this.filter = new CountingBloomFilter(bHash.getMaxSize());
+        if (snap != null) {
+            try {
+                this.restore(snap);
+            }
+            catch (IOException e) { // both files are left as they were
+                bHash.close();
+                memManager.close();
+                throw e;
+            }
+        }
+        if (persist) {
+            this.attachLog(new WriteAheadLog(fileName + ".wal"));
+        }
+    }
+
+
+    /**
+     * Constructor for a DNA Database over an existing memory manager and
+     * hash table. The table is restored from the memory manager's
+     * checkpoint if it has one.
+     * 
+     * @param mem
+     *            memory manager
+     * 
+     * @param table
+     *            hash table whose handles point into mem
+     * 
+     * @throws IOException
+     */
+    public DNADataBase(MemManager mem,
+        BucketHashInterface<String, MemHandle, MemHandle> table)
+        throws IOException {
+        this.memManager = mem;
+        this.bHash = table;
+        this.filter = new CountingBloomFilter(bHash.getMaxSize());
+
+        if (mem.getTableSnapshot() != null) {
+            this.restore(mem.getTableSnapshot());
+        }
+    }
+
+
+    /**
+     * Constructor for a DNA Database over an existing persistent memory
+     * manager and hash table, logging every change to the given log. The
+     * table is restored from the checkpoint and the log replayed on top.
+     * 
+     * @param mem
+     *            persistent memory manager
+     * 
+     * @param table
+     *            hash table whose handles point into mem
+     * 
+     * @param log
+     *            write-ahead log
+     * 
+     * @throws IOException
+     */
+    public DNADataBase(MemManager mem,
+        BucketHashInterface<String, MemHandle, MemHandle> table,
+        WriteAheadLog log) throws IOException {
+        this(mem, table);
+        this.attachLog(log);
     }
 
 
@@ -51,23 +250,137 @@ public class DNADataBase {
     public int insert(String seqID, String len, String seq)
         throws NumberFormatException,
         IOException {
+        byte[] enc = NucleotideCodec.encode(seq);
+        return this.insert(seqID, Integer.parseInt(len), enc, enc.length);
+    }
+
+
+    /**
+     * Insert an already encoded sequence of length len and associated
+     * sequence ID into memory manager and hash-table.
+     * 
+     * @param seqID
+     *            sequence's ID
+     * @param len
+     *            sequence's length
+     * @param seq
+     *            2 bit encoded sequence
+     * @param nBytes
+     *            number of bytes of seq in use
+     * @return int
+     * 
+     * @throws IOException
+     */
+    public int insert(String seqID, int len, byte[] seq, int nBytes)
+        throws IOException {
+        lock.writeLock().lock();
+        try {
+            // Check for duplicates
+            if (!this.insertSearch(seqID)) {
+                cache.remove(seqID);
 
-        // Check for duplicates
-        if (!this.insertSearch(seqID)) {
+                MemHandle idHandle = memManager.insert(seqID, seqID.length());
+                MemHandle seqHandle = memManager.insert(seq, nBytes, len);
+                int slot = bHash.insert(seqID, idHandle, seqHandle);
 
-            MemHandle idHandle = memManager.insert(seqID, seqID.length());
-            MemHandle seqHandle = memManager.insert(seq, Integer.parseInt(len));
-            int slot = bHash.insert(seqID, idHandle, seqHandle);
+                if (slot == -1) {
+                    System.out.println("Bucket full.Sequence " + seqID
+                        + " could not be inserted");
+                }
+                else {
+                    filter.add(seqID);
 
-            if (slot == -1) {
-                System.out.println("Bucket full.Sequence " + seqID
-                    + " could not be inserted");
+                    if (wal != null) {
+                        wal.logInsert(seqID, len, seq, nBytes);
+                        this.checkpointIfDue();
+                    }
+                }
             }
+            else {
+                System.out.println("SequenceID " + seqID + " exists");
+            }
+            return 1;
         }
-        else {
-            System.out.println("SequenceID " + seqID + " exists");
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Insert a batch of records. Duplicates within the batch and IDs
+     * already in the table are dropped, the rest are written to the memory
+     * file as one contiguous block and then added to the hash-table.
+     * 
+     * @param records
+     *            records to insert
+     * @return number of records inserted
+     * 
+     * @throws IOException
+     */
+    public int insertAll(Iterable<SequenceRecord> records)
+        throws IOException {
+        lock.writeLock().lock();
+        try {
+            List<SequenceRecord> batch = new ArrayList<>();
+            HashSet<String> seen = new HashSet<>();
+
+            // Check for duplicates
+            for (SequenceRecord rec : records) {
+                if (!seen.add(rec.getID()) || this.insertSearch(rec.getID())) {
+                    System.out.println("SequenceID " + rec.getID() + " exists");
+                }
+                else {
+                    cache.remove(rec.getID());
+                    batch.add(rec);
+                }
+            }
+
+            // ID then sequence for every record
+            byte[][] parts = new byte[batch.size() * 2][];
+            int[] lens = new int[parts.length];
+
+            for (int i = 0; i < batch.size(); i++) {
+                SequenceRecord rec = batch.get(i);
+                parts[i * 2] = NucleotideCodec.encode(rec.getID());
+                lens[i * 2] = rec.getID().length();
+                parts[i * 2 + 1] = rec.getSequence();
+                lens[i * 2 + 1] = rec.getLength();
+            }
+
+            MemHandle[] handles = memManager.insertAll(parts, lens);
+            int inserted = 0;
+
+            for (int i = 0; i < batch.size(); i++) {
+                String seqID = batch.get(i).getID();
+                int slot = bHash.insert(seqID, handles[i * 2], handles[i * 2
+                    + 1]);
+
+                if (slot == -1) {
+                    System.out.println("Bucket full.Sequence " + seqID
+                        + " could not be inserted");
+                    memManager.release(handles[i * 2 + 1]);
+                    memManager.release(handles[i * 2]);
+                }
+                else {
+                    inserted++;
+                    filter.add(seqID);
+
+                    if (wal != null) {
+                        SequenceRecord rec = batch.get(i);
+                        wal.logInsert(seqID, rec.getLength(), rec
+                            .getSequence(), NucleotideCodec.byteLength(rec
+                                .getLength()));
+                    }
+                }
+            }
+            this.checkpointIfDue();
+
+            return inserted;
+        }
+        finally {
+            lock.writeLock().unlock();
         }
-        return 1;
     }
 
 
@@ -81,58 +394,46 @@ public class DNADataBase {
      * @throws NumberFormatException
      */
     public void remove(String seqID) throws NumberFormatException, IOException {
+        lock.writeLock().lock();
+        try {
+            // probe the ID's bucket
+            int slot = filter.mightContain(seqID) ? bHash.find(seqID) : -1;
 
-        // hash table remove
-        int i = 0;
-        int max = bHash.getMaxSize();
-        boolean found = false;
-        String comp = "";
-        String out = "";
-
-        while (i < max) {
-            TableEntry temp = bHash.get(i); // peek table entry at i
-
-            // Not null, neither values are null, not tombstone so valid entry
-            if (temp != null && temp.getID() != null && temp
-                .getSequence() != null && temp.getSlot() != -1) {
-                // Get seqID in bytes from Mem Manager
-                byte[] id = memManager.getSequence(temp.getID());
-                int m = temp.getID().getLength();
+            if (slot != -1) {
+                TableEntry temp = bHash.get(slot);
+                byte[] seq = memManager.getSequence(temp.getSequence());
 
                 // Convert to bytes
-                comp = this.testTemp(id, m);
-                // Compare
-                if (comp.equals(seqID) && comp.length() == seqID.length()) {
-                    byte[] seq = memManager.getSequence(temp.getSequence());
-
-                    // Convert to bytes
-                    out = this.testTemp(seq, temp.getSequence().getLength());
-                    // Remove from HT
-                    bHash.insertTomb(i);
-
-                    // Remove from MM
-                    memManager.release(temp.getSequence());
-                    memManager.release(temp.getID());
-
-                    found = true;
-                    break;
+                String out = this.testTemp(seq, temp.getSequence().getLength());
+                // Remove from HT
+                bHash.insertTomb(slot);
+                filter.remove(seqID);
+                cache.remove(seqID);
+                // Remove from MM, before a checkpoint so it has the blocks
+                memManager.release(temp.getSequence());
+                memManager.release(temp.getID());
+                removedSinceLap++;
+                if (wal != null) {
+                    wal.logRemove(seqID);
+                    this.checkpointIfDue();
                 }
+                this.compactIfDue();
+
+                System.out.println("Sequence Removed " + seqID + ":");
+                System.out.println(out);
+            }
+            else {
+                System.out.println("SequenceID " + seqID + " not found");
             }
-            i++;
-        }
-        if (found) {
-            System.out.println("Sequence Removed " + comp + ":");
-            System.out.println(out);
         }
-        else {
-            System.out.println("SequenceID " + seqID + " not found");
+        finally {
+            lock.writeLock().unlock();
         }
-
     }
 
 
     /**
-     * Search a sequence in memory manager and hash-table as a helper for insert
+     * Search a sequence in memory manager and hash-table.
      * 
      * @param seqID
      *            sequence's ID
@@ -141,48 +442,60 @@ public class DNADataBase {
      * @throws NumberFormatException
      */
     public void search(String seqID) throws NumberFormatException, IOException {
+        String out = this.lookup(seqID);
 
-        boolean found = false;
-        int i = 0;
-        int max = bHash.getMaxSize();
-        // String for seqID and Sequence
-        String comp = "";
-        String out = "";
-
-        // Iterate thru the HT
-        while (i < max) {
-            // Get tableEntry in the current slot
-            TableEntry temp = bHash.get(i);
+        if (out != null) {
+            System.out.println("Sequence Found: " + out);
+        }
+        else {
+            System.out.println("SequenceID " + seqID + " not found");
+        }
+    }
 
-            // Not null, neither values are null, not tombstone so valid entry
-            if (temp != null && temp.getID() != null && temp
-                .getSequence() != null && temp.getSlot() != -1) {
 
-                // Get seqID in bytes from Mem Manager
-                byte[] id = memManager.getSequence(temp.getID());
-                int m = temp.getID().getLength();
+    /**
+     * Look up a sequence by its ID. Safe to call from many threads at once,
+     * also while another thread changes the database. Decoded sequences are
+     * kept in a cache, so repeated lookups skip the table and memory file,
+     * and most absent IDs are turned away by the Bloom filter.
+     * 
+     * @param seqID
+     *            sequence's ID
+     * @return the sequence, null if not found
+     * 
+     * @throws IOException
+     */
+    public String lookup(String seqID) throws IOException {
+        lock.readLock().lock();
+        try {
+            if (!filter.mightContain(seqID)) {
+                return null;
+            }
 
-                // Convert to bytes
-                comp = this.testTemp(id, m);
+            String out = cache.get(seqID);
+            if (out != null) {
+                return out;
+            }
 
-                // Compare
-                if (comp.equals(seqID) && comp.length() == seqID.length()) {
-                    found = true;
-                    // Get seqID in bytes from Mem Manager
-                    byte[] seq = memManager.getSequence(temp.getSequence());
+            // probe the ID's bucket
+            int slot = bHash.find(seqID);
 
-                    // Convert to bytes
-                    out = this.testTemp(seq, temp.getSequence().getLength());
-                }
+            if (slot == -1) {
+                return null;
             }
-            i++;
-        }
 
-        if (found) {
-            System.out.println("Sequence Found: " + out);
+            TableEntry temp = bHash.get(slot);
+
+            // Get sequence in bytes from Mem Manager
+            byte[] seq = memManager.getSequence(temp.getSequence());
+
+            // Convert to bytes
+            out = this.testTemp(seq, temp.getSequence().getLength());
+            cache.put(seqID, out);
+            return out;
         }
-        else {
-            System.out.println("SequenceID " + seqID + " not found");
+        finally {
+            lock.readLock().unlock();
         }
     }
 
@@ -195,176 +508,555 @@ public class DNADataBase {
      * @throws NumberFormatException
      */
     public void print() throws NumberFormatException, IOException {
+        lock.readLock().lock();
+        try {
+            // hash table remove
+            int i = 0;
+            int max = bHash.getMaxSize();
 
-        // hash table remove
-        int i = 0;
-        int max = bHash.getMaxSize();
+            System.out.println("Sequence IDs:");
+            // Iterate through HT
+            if (bHash.getSize() > 0) {
+                while (i < max) {
+                    // Get value at i
+                    TableEntry temp = bHash.get(i);
 
-        System.out.println("Sequence IDs:");
-        // Iterate through HT
-        if (bHash.getSize() > 0) {
-            while (i < max) {
-                // Get value at i
-                TableEntry temp = bHash.get(i);
+                    // Confirm it is valid
+                    if (temp != null && temp.getID() != null && temp
+                        .getSequence() != null && temp.getSlot() != -1) {
+                        // Get ID and pass into Mem Man, then convert to
+                        // string and print
 
-                // Confirm it is valid
-                if (temp != null && temp.getID() != null && temp
-                    .getSequence() != null && temp.getSlot() != -1) {
-                    // Get ID and pass into Mem Man, then convert to string and
-                    // print
+                        // Get seqID in bytes from Mem Manager
+                        byte[] id = memManager.getSequence(temp.getID());
 
-                    // Get seqID in bytes from Mem Manager
-                    byte[] id = memManager.getSequence(temp.getID());
+                        int m = temp.getID().getLength();
 
-                    int m = temp.getID().getLength();
+                        // Convert to bytes
+                        String comp = this.testTemp(id, m);
 
-                    // Convert to bytes
-                    String comp = this.testTemp(id, m);
+                        int slot = temp.getSlot();
 
-                    int slot = temp.getSlot();
+                        // convert to string & print
+                        System.out.println(comp + ": hash slot [" + slot + "]");
 
-                    // convert to string & print
-                    System.out.println(comp + ": hash slot [" + slot + "]");
+                    }
+                    i++;
+                }
+                if (memManager.getListSize() == 0) {
+                    System.out.println("Free Block List: none");
+                }
+                else {
+                    System.out.println("Free Block List:");
 
+                    int p = 0;
+                    for (MemHandle block : memManager.getList()) {
+                        p++;
+                        System.out.println("[Block " + p + "]"
+                            + " Starting Byte Location: "
+                            + block.getPosition()
+                            + ", " + "Size " 
+                            + block.getLength() + " bytes");
+                    }
                 }
-                i++;
             }
-            if (memManager.getListSize() == 0) {
+            else {
                 System.out.println("Free Block List: none");
             }
-            else {
-                LinkedList<MemHandle> list = memManager.getList();
-                System.out.println("Free Block List:");
-
-                for (int p = 0; p < memManager.getListSize(); p++) {
-                    System.out.println("[Block " + (p + 1) + "]"
-                        + " Starting Byte Location: "
-                        + list.get(p).getPosition()
-                        + ", " + "Size " 
-                        + list.get(p).getLength() + " bytes");
-                }
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Move up to maxMoves records into free blocks further down the memory
+     * file, highest records first, then cut the free space off the end.
+     * Each call is a short step under the write lock, so compaction can run
+     * a little at a time, from any thread, while the database is in use.
+     * 
+     * The records are sorted by position once per lap and the lap carries
+     * on from where the last step stopped; a record that moved or went
+     * away since the lap started is skipped. A step that finds the lap done
+     * starts the next one.
+     * 
+     * @param maxMoves
+     *            most records to move
+     * @return number of records moved, 0 once nothing more can move
+     * 
+     * @throws IOException
+     */
+    public int compact(int maxMoves) throws IOException {
+        lock.writeLock().lock();
+        try {
+            boolean fresh = lap == null;
+            if (fresh) {
+                this.startLap();
             }
+
+            int moves = this.compactStep(maxMoves, Integer.MAX_VALUE);
+            if (moves == 0 && !fresh) { // the old lap ran out, once more
+                this.startLap();
+                moves = this.compactStep(maxMoves, Integer.MAX_VALUE);
+            }
+
+            memManager.trim();
+            return moves;
         }
-        else {
-            System.out.println("Free Block List: none");
+        finally {
+            lock.writeLock().unlock();
         }
+    }
+
 
+    /**
+     * Clear the tombstones removes left in the hash table, so probes for
+     * absent IDs get short again. A Bloom filter the table has outgrown is
+     * built again at the same time.
+     * 
+     * @return tombstones cleared
+     * 
+     * @throws IOException
+     */
+    public int purge() throws IOException {
+        lock.writeLock().lock();
+        try {
+            int n = bHash.purge();
+            this.growFilterIfDue();
+            return n;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
     }
 
 
     /**
-     * Search a sequence in memory manager and hash-table as a helper for insert
+     * Number of tombstones in the hash table
      * 
-     * @param seqID
-     *            sequence's ID
+     * @return tombstones
+     */
+    public int getTombstones() {
+        lock.readLock().lock();
+        try {
+            return bHash.getTombstones();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Share of the memory file taken by free blocks
+     * 
+     * @return free bytes over data bytes
      * 
      * @throws IOException
-     * @throws NumberFormatException
      */
-    private boolean insertSearch(String seqID)
-        throws NumberFormatException,
-        IOException {
+    public double getFragmentation() throws IOException {
+        lock.readLock().lock();
+        try {
+            return memManager.getFragmentation();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
 
-        int i = 0;
-        int max = bHash.getMaxSize();
-        TableEntry temp = null;
-        // Iterate thru the HT
-        while (i < max) {
-            // Get tableEntry in the current slot
-            temp = bHash.get(i);
+    /**
+     * Compact a step at a time after removes, whenever fragmentation is
+     * above the threshold.
+     * 
+     * @param ratio
+     *            fragmentation that triggers compaction, 1 turns it off
+     */
+    public void setCompactThreshold(double ratio) {
+        this.compactThreshold = ratio;
+    }
 
-            // Not null, neither values are null, not tombstone so valid entry
-            if (temp != null && temp.getID() != null && temp
-                .getSequence() != null && temp.getSlot() != -1) {
 
-                // Get seqID in bytes from Mem Manager
-                byte[] id = memManager.getSequence(temp.getID());
+    /**
+     * Checkpoint by itself once the log is longer than this, instead of
+     * CHECKPOINT_LOG_BYTES.
+     * 
+     * @param bytes
+     *            log length that triggers a checkpoint
+     */
+    public void setCheckpointLogBytes(long bytes) {
+        this.checkpointLogBytes = bytes;
+    }
 
-                int m = temp.getID().getLength();
 
-                // Convert to bytes
-                String comp = this.testTemp(id, m);
+    /**
+     * Get the decoded sequence cache, to read its statistics or change its
+     * budget.
+     * 
+     * @return cache
+     */
+    public SequenceCache getCache() {
+        return cache;
+    }
+
+
+    /**
+     * Get the Bloom filter over the IDs in the table, to read its size.
+     * 
+     * @return filter
+     */
+    public CountingBloomFilter getFilter() {
+        return filter;
+    }
 
-                // Compare
-                if (comp.equals(seqID) && comp.length() == seqID.length()) {
-                    return true;
+
+    /**
+     * Checkpoint a persistent database so it can be reopened.
+     * 
+     * @throws IOException
+     */
+    public void checkpoint() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (memManager.isPersistent()) {
+                memManager.checkpoint(this.snapshot());
+
+                // everything logged is in the checkpoint now
+                if (wal != null) {
+                    wal.reset();
                 }
             }
-            i++;
         }
-        return false;
+        finally {
+            lock.writeLock().unlock();
+        }
     }
 
 
     /**
-     * Tt
+     * Force the changes logged so far to disk, without waiting for their
+     * commit group to fill.
      * 
-     * @param b
-     *            j
-     * @param l
-     *            l
-     * @return string
+     * @throws IOException
      */
-    public String testTemp(byte[] b, int l) {
+    public void sync() throws IOException {
+        if (wal != null) {
+            wal.sync();
+        }
+    }
+
 
-        StringBuilder build = new StringBuilder();
-
-        for (int i = 0; i < b.length; i++) {
-            build.append(String.format("%8s", Integer.toBinaryString(b[i]
-                & 0xFF)).replace(' ', '0'));
-        }
-
-        String temp = build.toString();
-        String result = "";
-        StringBuilder fin = new StringBuilder();
-
-        for (int i = 0; i < l * 2; i++) {
-            if (i != 0 && i % 2 == 0) {
-                switch (result) {
-                    case "00":
-                        fin.append("A");
-                        break;
-                    case "01":
-                        fin.append("C");
-                        break;
-                    case "10":
-                        fin.append("G");
-                        break;
-                    case "11":
-                        fin.append("T");
-                        break;
-                    default:
-                        // do nothing
-                        break;
+    /**
+     * Checkpoint and close the database files.
+     * 
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            this.checkpoint();
+            bHash.close();
+            memManager.close();
+            if (wal != null) {
+                wal.close();
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Start logging changes. The log's records are replayed on top of the
+     * restored checkpoint first, then folded into a new checkpoint.
+     * Replaying is safe to repeat: an insert of an ID that is there and a
+     * remove of one that isn't are skipped, and since the log only holds
+     * successful commands, inserts and removes of an ID alternate, so a
+     * crash between a checkpoint and the log reset is harmless.
+     * 
+     * Releases are deferred until the next checkpoint, so the checkpoint
+     * the log is replayed on is never overwritten.
+     * 
+     * @param log
+     *            write-ahead log
+     * @throws IOException
+     *             memory file isn't persistent
+     */
+    private void attachLog(WriteAheadLog log) throws IOException {
+        if (!memManager.isPersistent()) {
+            throw new IOException(
+                "Write-ahead log needs a persistent memory file.");
+        }
+        memManager.setDeferRelease(true);
+
+        int n = log.replay(new WriteAheadLog.Handler() {
+            public void insert(String seqID, int len, byte[] seq)
+                throws IOException {
+                if (bHash.find(seqID) != -1) {
+                    return;
+                }
+
+                MemHandle idHandle = memManager.insert(seqID, seqID.length());
+                MemHandle seqHandle = memManager.insert(seq, seq.length, len);
+                if (bHash.insert(seqID, idHandle, seqHandle) == -1) {
+                    memManager.release(seqHandle);
+                    memManager.release(idHandle);
+                }
+                else {
+                    filter.add(seqID);
+                }
+            }
+
+
+            public void remove(String seqID) throws IOException {
+                int slot = bHash.find(seqID);
+                if (slot == -1) {
+                    return;
                 }
 
-                result = "";
+                TableEntry temp = bHash.get(slot);
+                bHash.insertTomb(slot);
+                filter.remove(seqID);
+                memManager.release(temp.getSequence());
+                memManager.release(temp.getID());
             }
+        });
 
-            result = result + temp.charAt(i);
+        this.wal = log;
+        this.growFilterIfDue();
+        if (n > 0) {
+            this.checkpoint();
         }
+    }
+
 
-        // append remainder
-        switch (result) {
-            case "00":
-                fin.append("A");
-                break;
-            case "01":
-                fin.append("C");
-                break;
-            case "10":
-                fin.append("G");
-                break;
-            case "11":
-                fin.append("T");
-                break;
-            default:
-                // do nothing
-                break;
+    /**
+     * Table snapshot with the Bloom filter after it
+     * 
+     * @return checkpoint bytes
+     * @throws IOException
+     */
+    private byte[] snapshot() throws IOException {
+        byte[] table = bHash.snapshot();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(FILTER_MAGIC);
+        out.writeInt(table.length);
+        out.write(table);
+        out.write(filter.toBytes());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * Restore the table and Bloom filter from a checkpoint. A checkpoint
+     * that is only a table snapshot, as written before the filter, has its
+     * filter built again from the table's IDs.
+     * 
+     * @param snap
+     *            checkpoint bytes
+     * @throws IOException
+     */
+    private void restore(byte[] snap) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+            snap));
+
+        if (snap.length < 8 || in.readInt() != FILTER_MAGIC) {
+            bHash.restore(snap); // a table snapshot never starts negative
+            this.rebuildFilter(bHash.getMaxSize());
+            return;
+        }
+
+        byte[] table = new byte[in.readInt()];
+        in.readFully(table);
+        byte[] rest = new byte[snap.length - 8 - table.length];
+        in.readFully(rest);
+
+        bHash.restore(table);
+        filter = CountingBloomFilter.fromBytes(rest);
+        this.growFilterIfDue();
+    }
+
+
+    /**
+     * Build the Bloom filter again from the IDs in the table
+     * 
+     * @param capacity
+     *            number of IDs to size it for
+     * @throws IOException
+     */
+    private void rebuildFilter(int capacity) throws IOException {
+        CountingBloomFilter f = new CountingBloomFilter(capacity);
+
+        for (int i = 0; i < bHash.getMaxSize(); i++) {
+            TableEntry temp = bHash.get(i);
+            if (temp != null) {
+                f.add(this.testTemp(memManager.getSequence(temp.getID()), temp
+                    .getID().getLength()));
+            }
+        }
+        filter = f;
+    }
+
+
+    /**
+     * Build the Bloom filter again, twice as large, once a growing table
+     * holds more IDs than it was sized for. It reads every ID, so it is
+     * only done where the database already takes its time, on open and on
+     * purge, never in an insert. Until then the filter just lets more
+     * absent IDs through to a probe.
+     * 
+     * @throws IOException
+     */
+    private void growFilterIfDue() throws IOException {
+        if (filter.getSize() > filter.getCapacity()) {
+            this.rebuildFilter(Math.max(filter.getSize() * 2, bHash
+                .getMaxSize()));
+        }
+    }
+
+
+    /**
+     * Checkpoint once the log is long enough that replaying it would slow
+     * down the next open.
+     * 
+     * @throws IOException
+     */
+    private void checkpointIfDue() throws IOException {
+        if (wal != null && wal.length() > checkpointLogBytes) {
+            this.checkpoint();
+        }
+    }
+
+
+    /**
+     * Take a compaction step if the memory file is too fragmented. Nothing
+     * is done while released blocks wait for a checkpoint, they can't be
+     * filled yet. After a lap that moved nothing, the next lap waits until
+     * enough records were removed to pay for sorting them again.
+     * 
+     * @throws IOException
+     */
+    private void compactIfDue() throws IOException {
+        if (compactThreshold >= 1 || memManager.hasPendingReleases()
+            || memManager.getFragmentation() <= compactThreshold) {
+            return;
+        }
+
+        if (lap == null) {
+            if (stuck && removedSinceLap < Math.max(COMPACT_STEP, bHash
+                .getSize() / 8)) {
+                return;
+            }
+            this.startLap();
+        }
+        this.compactStep(COMPACT_STEP, COMPACT_SCAN);
+        memManager.trim();
+    }
+
+
+    /**
+     * Start a compaction lap over every live record
+     * 
+     * @throws IOException
+     */
+    private void startLap() throws IOException {
+        lap = new long[bHash.getSize() * 2];
+        int n = 0;
+        for (int i = 0; i < bHash.getMaxSize() && n < lap.length; i++) {
+            TableEntry temp = bHash.get(i);
+            if (temp != null) {
+                lap[n++] = ((long)temp.getID().getPosition() << 32) | (i << 1);
+                lap[n++] = ((long)temp.getSequence().getPosition() << 32)
+                    | (i << 1) | 1;
+            }
+        }
+        Arrays.sort(lap, 0, n);
+
+        lapNext = n - 1;
+        lapMoved = false;
+        removedSinceLap = 0;
+    }
+
+
+    /**
+     * Carry the lap on, moving each record that fits in a free block below
+     * it
+     * 
+     * @param maxMoves
+     *            most records to move
+     * @param maxTries
+     *            most records to look at
+     * @return number of records moved
+     * @throws IOException
+     */
+    private int compactStep(int maxMoves, int maxTries) throws IOException {
+        int moves = 0;
+        for (int tries = 0; lapNext >= 0 && moves < maxMoves
+            && tries < maxTries; tries++) {
+            long rec = lap[lapNext--];
+            int slot = (int)rec >>> 1;
+            boolean isSeq = (rec & 1) != 0;
+
+            TableEntry temp = bHash.get(slot);
+            if (temp == null) {
+                continue; // removed since the lap started
+            }
+            MemHandle h = isSeq ? temp.getSequence() : temp.getID();
+            if (h.getPosition() != (int)(rec >>> 32)) {
+                continue; // another record, or moved already
+            }
+
+            MemHandle moved = memManager.relocate(h);
+            if (moved != null) {
+                bHash.update(slot, isSeq ? temp.getID() : moved, isSeq
+                    ? moved
+                    : temp.getSequence());
+                moves++;
+            }
         }
 
-        return fin.toString();
+        lapMoved |= moves > 0;
+        if (lapNext < 0) { // lap done
+            stuck = !lapMoved;
+            lap = null;
+        }
+        return moves;
+    }
+
 
+    /**
+     * Search a sequence in memory manager and hash-table as a helper for insert
+     * 
+     * @param seqID
+     *            sequence's ID
+     * 
+     * @throws IOException
+     * @throws NumberFormatException
+     */
+    private boolean insertSearch(String seqID)
+        throws NumberFormatException,
+        IOException {
+
+        return filter.mightContain(seqID) && bHash.find(seqID) != -1;
+    }
+
+
+    /**
+     * Decode a 2 bit encoded sequence back to a String
+     * 
+     * @param b
+     *            encoded bytes
+     * @param l
+     *            sequence length
+     * @return string
+     */
+    public String testTemp(byte[] b, int l) {
+        return NucleotideCodec.decode(b, l);
     }
 
 }
@@ -1,4 +1,8 @@
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 import student.TestCase;
 
 /**
@@ -50,4 +54,319 @@ public class DNADataBaseTest extends TestCase {
             "TCGGG"));
     }
 
+
+    /**
+     * Test a persistent database answers searches after a reopen
+     * 
+     * @throws IOException
+     */
+    public void testReopen() throws IOException {
+        new File("pFile.bin").delete(); // start from nothing
+        DNADataBase pBase = new DNADataBase("pFile.bin", "hFile.bin", 64,
+            true);
+        pBase.insert("AAAAA", "8", "ACGTACGT");
+        pBase.insert("CCC", "4", "TTTT");
+        pBase.remove("CCC");
+        pBase.close();
+
+        systemOut().clearHistory();
+        pBase = new DNADataBase("pFile.bin", "hFile.bin", 64, true);
+        pBase.search("AAAAA");
+        pBase.search("CCC");
+        assertEquals("Sequence Found: ACGTACGT\nSequenceID CCC not found\n",
+            systemOut().getHistory());
+        pBase.close();
+    }
+
+
+    /**
+     * Test a batch insert drops duplicates and stores the rest
+     * 
+     * @throws IOException
+     */
+    public void testInsertAll() throws IOException {
+        dbase.insert("AAAAA", "4", "ACGT");
+
+        List<SequenceRecord> batch = new ArrayList<>();
+        batch.add(new SequenceRecord("CCCC", 8, "GGGGTTTT"));
+        batch.add(new SequenceRecord("AAAAA", 4, "TTTT"));
+        batch.add(new SequenceRecord("GT", 5, "ACGTA"));
+        batch.add(new SequenceRecord("CCCC", 4, "AAAA"));
+
+        systemOut().clearHistory();
+        assertEquals(2, dbase.insertAll(batch));
+        dbase.search("CCCC");
+        dbase.search("GT");
+        dbase.search("AAAAA");
+        assertEquals("SequenceID AAAAA exists\nSequenceID CCCC exists\n"
+            + "Sequence Found: GGGGTTTT\nSequence Found: ACGTA\n"
+            + "Sequence Found: ACGT\n", systemOut().getHistory());
+    }
+
+
+    /**
+     * Test compaction packs the records down on both kinds of hash table,
+     * and that removes trigger it once a threshold is set
+     * 
+     * @throws IOException
+     */
+    public void testCompact() throws IOException {
+        compacted(dbase);
+        compacted(new DNADataBase("mFile.bin", "hFile.bin", 64));
+        new File("hFile.bin").delete();
+
+        // every other record removed, compaction keeps up on its own
+        DNADataBase db = new DNADataBase("mFile.bin", 64);
+        db.setCompactThreshold(0.25);
+        for (int i = 0; i < 20; i++) {
+            db.insert("A" + base4(i), "8", "ACGTACGT");
+        }
+        for (int i = 0; i < 20; i += 2) {
+            db.remove("A" + base4(i));
+            assertTrue(db.getFragmentation() <= 0.25);
+        }
+    }
+
+
+    /**
+     * Test automatic compaction looks at a bounded number of records per
+     * remove instead of the whole table, and waits while releases are
+     * deferred to a checkpoint.
+     * 
+     * @throws IOException
+     */
+    public void testCompactBounded() throws IOException {
+        new File("cFile.bin").delete();
+        new File("lFile.bin").delete();
+        new File("cFile.wal").delete();
+        final int[] reads = new int[1];
+        MemManager mem = new MemManager("cFile.bin");
+        DNADataBase db = new DNADataBase(mem, new BucketHash(32768, mem) {
+            public TableEntry get(int i) {
+                reads[0]++;
+                return super.get(i);
+            }
+        });
+        db.setCompactThreshold(0.05);
+
+        String[] ids = Benchmark.sequences(new java.util.Random(3), 8000, 16);
+        for (String id : ids) {
+            db.insert(id, "16", id);
+        }
+        reads[0] = 0;
+        for (int i = 0; i < 2000; i++) {
+            db.remove(ids[i]);
+            assertTrue(db.getFragmentation() <= 0.05);
+        }
+        // a full scan per remove would be 2000 * 32768 reads
+        assertTrue(reads[0] < 2000 * DNADataBase.COMPACT_SCAN);
+        for (int i = 2000; i < ids.length; i++) {
+            assertEquals(ids[i], db.lookup(ids[i]));
+        }
+        db.close();
+
+        // under a log, releases wait for a checkpoint and so does compaction
+        mem = new MemManager(new FileStorage("lFile.bin"), true);
+        db = new DNADataBase(mem, new BucketHash(32768, mem) {
+            public TableEntry get(int i) {
+                reads[0]++;
+                return super.get(i);
+            }
+        }, new WriteAheadLog(new FileStorage("cFile.wal"), 64));
+        db.setCompactThreshold(0.05);
+        for (int i = 0; i < 200; i++) {
+            db.insert(ids[i], "16", ids[i]);
+        }
+        reads[0] = 0;
+        for (int i = 0; i < 100; i++) {
+            db.remove(ids[i]);
+        }
+        assertEquals(100, reads[0]); // the removed entries only
+        db.checkpoint(); // the freed space can be reused from here on
+        assertTrue(db.compact(64) > 0);
+        db.close();
+        new File("cFile.bin").delete();
+        new File("lFile.bin").delete();
+        new File("cFile.wal").delete();
+    }
+
+
+    /**
+     * Remove every other record, compact, then check what is left
+     * 
+     * @param db
+     *            database
+     * @throws IOException
+     */
+    private void compacted(DNADataBase db) throws IOException {
+        String[] ids = new String[20];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = "C" + base4(i * 3);
+            String seq = base4(i * 7919) + "ACGT";
+            db.insert(ids[i], String.valueOf(seq.length()), seq);
+        }
+        for (int i = 0; i < ids.length; i += 2) {
+            db.remove(ids[i]);
+        }
+        assertTrue(db.getFragmentation() > 0);
+
+        assertEquals(1, db.compact(1));
+        while (db.compact(4) > 0) {
+            // a few records at a time
+        }
+        assertEquals(0.0, db.getFragmentation(), 0.0);
+
+        // read the moved records from the file, not the cache
+        db.getCache().setMaxBytes(0);
+        for (int i = 1; i < ids.length; i += 2) {
+            assertEquals(base4(i * 7919) + "ACGT", db.lookup(ids[i]));
+        }
+        assertNull(db.lookup(ids[0]));
+    }
+
+
+    /**
+     * Test purging leaves every kind of hash table without tombstones and
+     * every remaining sequence found
+     * 
+     * @throws IOException
+     */
+    public void testPurge() throws IOException {
+        MemManager mem = new MemManager("pFile.bin");
+        BucketHash plain = new BucketHash(64, mem);
+        plain.setPurgeRatio(1);
+
+        purged(new DNADataBase(mem, plain));
+        purged(new DNADataBase("mFile.bin", "hFile.bin", 64));
+        mem = new MemManager("pFile.bin");
+        purged(new DNADataBase(mem, new PackedBucketHash(64, mem)));
+        mem = new MemManager("pFile.bin");
+        purged(new DNADataBase(mem, new ConcurrentBucketHash(64, mem)));
+        mem = new MemManager("pFile.bin");
+        purged(new DNADataBase(mem, new LinearBucketHash(64, mem)));
+        new File("hFile.bin").delete();
+        new File("pFile.bin").delete();
+    }
+
+
+    /**
+     * Remove most records, purge, then check what is left
+     * 
+     * @param db
+     *            database
+     * @throws IOException
+     */
+    private void purged(DNADataBase db) throws IOException {
+        String[] ids = new String[40];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = "G" + base4(i * 5);
+            db.insert(ids[i], "4", "ACGT");
+        }
+        for (int i = 0; i < ids.length; i++) {
+            if (i % 4 != 0) {
+                db.remove(ids[i]);
+            }
+        }
+
+        int tombs = db.getTombstones();
+        assertTrue(tombs > 0);
+        int cleared = db.purge();
+        assertTrue(cleared > 0);
+        assertEquals(tombs - cleared, db.getTombstones());
+
+        db.getCache().setMaxBytes(0);
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i % 4 == 0 ? "ACGT" : null, db.lookup(ids[i]));
+        }
+        db.close();
+    }
+
+
+    /**
+     * Test lookups from several threads while another thread inserts and
+     * removes, on both kinds of hash table
+     * 
+     * @throws Exception
+     */
+    public void testConcurrentLookup() throws Exception {
+        concurrent(new DNADataBase("mFile.bin", 1024));
+        concurrent(new DNADataBase("mFile.bin", "hFile.bin", 1024));
+        new File("hFile.bin").delete();
+    }
+
+
+    /**
+     * Readers check a fixed set of sequences while the writer churns others
+     * 
+     * @param db
+     *            database
+     * @throws Exception
+     */
+    private void concurrent(final DNADataBase db) throws Exception {
+        final String[] ids = new String[50];
+        final String[] seqs = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = "A" + base4(i);
+            seqs[i] = base4(i * 7919) + "ACGT";
+            db.insert(ids[i], String.valueOf(seqs[i].length()), seqs[i]);
+        }
+
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        for (int k = 0; k < 200; k++) {
+                            for (int i = 0; i < ids.length; i++) {
+                                String seq = db.lookup(ids[i]);
+                                if (!seqs[i].equals(seq)) {
+                                    throw new AssertionError(ids[i] + ": "
+                                        + seq);
+                                }
+                            }
+                        }
+                    }
+                    catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    }
+                }
+            });
+            readers[t].start();
+        }
+
+        for (int k = 0; k < 20; k++) {
+            for (int i = 0; i < 100; i++) {
+                db.insert("C" + base4(i), "8", "GGGGCCCC");
+            }
+            for (int i = 0; i < 100; i++) {
+                db.remove("C" + base4(i));
+            }
+        }
+
+        for (Thread t : readers) {
+            t.join();
+        }
+        db.close();
+
+        assertNull(error.get());
+    }
+
+
+    /**
+     * Base 4 digits of a number as bases
+     * 
+     * @param v
+     *            number
+     * @return sequence
+     */
+    private static String base4(int v) {
+        StringBuilder b = new StringBuilder();
+        do {
+            b.append("ACGT".charAt(v % 4));
+            v /= 4;
+        }
+        while (v > 0);
+        return b.toString();
+    }
 }
@@ -33,6 +33,7 @@ public class DNAdbase {
     /**
      * Main method invokes sorter with inputs of command file, 
      * hash file, hash table size and memory file.
+     * An optional fifth argument "persist" keeps the database between runs.
      * 
      * @param args  String array containing input arguments.
      * 
@@ -42,7 +43,8 @@ public class DNAdbase {
     public static void main(String[] args)
         throws NumberFormatException, IOException {
 
-        new Sorter(args[0], args[1], args[2], args[3]);
+        boolean persist = args.length > 4 && args[4].equals("persist");
+        new Sorter(args[0], args[1], args[2], args[3], persist);
     }
 
 }
@@ -0,0 +1,1047 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.TreeMap;
+
+/**
+ * A bucket hash kept in the hash file instead of on the heap.
+ *
+ * Each slot is a 16 byte entry holding the two memory handles
+ * (ID position, ID length, sequence position, sequence length).
+ * A bucket is 32 entries, so every bucket fills exactly one 512 byte
+ * page of the file and a probe reads the whole bucket at once.
+ * An ID length of 0 marks a slot that was never used, -1 a tombstone.
+ * A bucket whose 32 slots are all taken spills into a chain of overflow
+ * pages appended to the file after the table's own, so a hot bucket gets
+ * slower instead of refusing IDs. Overflow slots are numbered after the
+ * table's own, which keeps a slot's file offset at slot * ENTRY_SIZE.
+ * The chains are kept in memory and saved in the snapshot.
+ *
+ * The fingerprint of each slot's ID is kept in memory, in a parallel
+ * array saved with the snapshot, so a probe only reads an ID from the
+ * memory file when both its length and fingerprint match.
+ *
+ * Tombstones are counted per bucket, overflow chain included, and like
+ * BucketHash a remove that leaves PURGE_RATIO of a bucket's slots as
+ * tombstones rebuilds the bucket without them.
+ * The cached page is shared, so the table methods are synchronized and
+ * concurrent lookups take turns.
+ *
+ * A table that isn't persistent writes entries to the file as soon as
+ * they change. A persistent table keeps an undo log to get back to its
+ * last checkpoint after a crash, and holds changed pages in memory until
+ * the next snapshot, or until MAX_DIRTY_PAGES of them pile up. The pages
+ * are then written together: first the old contents of every page not
+ * yet saved in the epoch are appended to the epoch's undo file with a
+ * single force, then the pages themselves. So the undo log costs one
+ * force per batch of pages rather than one per page, and the write-ahead
+ * log's group commit is the only force left on the insert path.
+ * Each snapshot starts a new epoch. Restoring writes the saved pages
+ * back, which leaves the file exactly as it was when the snapshot was
+ * taken. Epochs alternate between two undo files, so the one the last
+ * checkpoint may still need is never truncated by the snapshot being
+ * taken; the database takes one snapshot per checkpoint.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class DiskBucketHash
+    implements BucketHashInterface<String, MemHandle, MemHandle> {
+    /**
+     * Bytes per slot, two memory handles
+     */
+    public static final int ENTRY_SIZE = 16;
+
+    /**
+     * Slots per bucket
+     */
+    public static final int BUCKET_SIZE = 32;
+
+    /**
+     * Bytes per bucket page
+     */
+    public static final int PAGE_SIZE = ENTRY_SIZE * BUCKET_SIZE;
+
+    /**
+     * Changed pages a persistent table holds before writing them out
+     */
+    public static final int MAX_DIRTY_PAGES = 1024;
+
+    private RandomAccessFile hashFile;
+    private MemManager memManager;
+    private int maxSize;
+    private int size;
+    private HashStrategy hash;
+    private int tombs;
+    private int[] bucketTombs; // tombstones in each bucket and its chain
+    private int[] fps; // fingerprint of each slot's ID, 0 if not in use
+    private double purgeRatio = BucketHash.PURGE_RATIO;
+
+    private int buckets; // pages of the table itself
+    private int pages; // overflow pages after them
+    private int[] heads; // first overflow page of each bucket, -1 if none
+    private int[] pageNext; // next page in the same chain, -1 at the end
+    private int[] pageBucket; // bucket each page belongs to
+
+    // undo log, null if page writes aren't undone after a crash
+    private String undoName;
+    private RandomAccessFile undo;
+    private int epoch;
+    private BitSet saved; // pages already in this epoch's undo file
+    private int epochPages; // pages in the file when the epoch started
+    private TreeMap<Integer, byte[]> dirty; // pages not written out yet
+    private long undoForces;
+
+    // last bucket read, kept so print and insert after find don't reread
+    private byte[] page;
+    private ByteBuffer pageBuf;
+    private int cached;
+
+
+    /**
+     * Creates a hashtable with the size provided in the hash file
+     *
+     * @param hF
+     *            hash file name
+     * @param s
+     *            intended size, a multiple of 32
+     * @param mem
+     *            memory manager holding the sequence IDs
+     * @throws IOException
+     *             bad input for file name
+     */
+    public DiskBucketHash(String hF, int s, MemManager mem)
+        throws IOException {
+        this(hF, s, mem, false);
+    }
+
+
+    /**
+     * Creates a hashtable in the hash file, optionally keeping the entries
+     * already in it (restore then checks the size)
+     *
+     * @param hF
+     *            hash file name
+     * @param s
+     *            intended size, a multiple of 32
+     * @param mem
+     *            memory manager holding the sequence IDs
+     * @param reopen
+     *            true to keep the file's entries
+     * @throws IOException
+     *             bad input for file name
+     */
+    public DiskBucketHash(String hF, int s, MemManager mem, boolean reopen)
+        throws IOException {
+        this(hF, s, mem, reopen, false);
+    }
+
+
+    /**
+     * Creates a hashtable in the hash file, optionally keeping the entries
+     * already in it, and for a persistent table logging the pages it
+     * changes to hF.undo0 and hF.undo1 so restore can undo them
+     *
+     * @param hF
+     *            hash file name
+     * @param s
+     *            intended size, a multiple of 32
+     * @param mem
+     *            memory manager holding the sequence IDs
+     * @param reopen
+     *            true to keep the file's entries
+     * @param persist
+     *            true to undo changes made after the last checkpoint on
+     *            restore
+     * @throws IOException
+     *             bad input for file name
+     */
+    public DiskBucketHash(String hF, int s, MemManager mem, boolean reopen,
+        boolean persist) throws IOException {
+        this(hF, s, mem, reopen, persist, HashStrategy.SFOLD);
+    }
+
+
+    /**
+     * Creates a hashtable in the hash file that places IDs with the given
+     * hash function. A reopened file only restores from a snapshot taken
+     * with the same one.
+     *
+     * @param hF
+     *            hash file name
+     * @param s
+     *            intended size, a multiple of 32
+     * @param mem
+     *            memory manager holding the sequence IDs
+     * @param reopen
+     *            true to keep the file's entries
+     * @param persist
+     *            true to undo changes made after the last checkpoint on
+     *            restore
+     * @param h
+     *            hash function
+     * @throws IOException
+     *             bad input for file name
+     */
+    public DiskBucketHash(String hF, int s, MemManager mem, boolean reopen,
+        boolean persist, HashStrategy h) throws IOException {
+        long length = (long)(s / BUCKET_SIZE) * PAGE_SIZE;
+        this.hashFile = new RandomAccessFile(hF, "rw");
+
+        // a reopened file is left as it is until restore has checked it
+        // against the snapshot, a mistyped size must not wipe it
+        if (!reopen) {
+            this.hashFile.setLength(0); // start from an empty table
+            this.hashFile.setLength(length);
+        }
+
+        this.maxSize = s;
+        this.size = 0;
+        this.memManager = mem;
+        this.hash = h;
+        this.buckets = s / BUCKET_SIZE;
+        this.bucketTombs = new int[buckets];
+        this.fps = new int[maxSize];
+        this.clearOverflow();
+        this.epochPages = buckets;
+
+        this.page = new byte[PAGE_SIZE];
+        this.pageBuf = ByteBuffer.wrap(page);
+        this.cached = -1;
+
+        this.saved = new BitSet(maxSize / BUCKET_SIZE);
+        this.dirty = new TreeMap<>();
+        if (persist) {
+            this.undoName = hF + ".undo";
+            if (!reopen) {
+                new File(undoName + 1).delete(); // nothing left to undo
+                this.startEpoch(0);
+            }
+        }
+    }
+
+
+    /**
+     * Get the size
+     *
+     * @return size
+     */
+    public int getSize() {
+        return size;
+    }
+
+
+    /**
+     * Get the number of slots, overflow slots included
+     *
+     * @return size
+     */
+    public synchronized int getMaxSize() {
+        return maxSize + pages * BUCKET_SIZE;
+    }
+
+
+    /**
+     * Number of overflow pages in use
+     *
+     * @return pages
+     */
+    public synchronized int getOverflowPages() {
+        return pages;
+    }
+
+
+    /**
+     * Assumes insertion is possible
+     * (No Duplicates)
+     * Then Inserts and returns the slot it was inserted, in the bucket's
+     * overflow chain if the bucket is full
+     *
+     * @param seqID
+     *            the sequence for sFold
+     * @param key
+     *            Key Handle
+     * @param value
+     *            Handle
+     * @return the slot
+     * @throws IOException
+     */
+    public synchronized int insert(String seqID, MemHandle key, MemHandle value)
+        throws IOException {
+        int home = (int)(hash.hash(seqID) % maxSize);
+        int bucket = home / BUCKET_SIZE;
+        readBucket(bucket);
+
+        int slot = -1;
+        for (int j = 0; j < BUCKET_SIZE && slot == -1; j++) {
+            int off = (home + j) % BUCKET_SIZE;
+            if (idLength(off) <= 0) { // never used or tombstone
+                slot = bucket * BUCKET_SIZE + off;
+            }
+        }
+        if (slot == -1) {
+            slot = spill(bucket);
+        }
+
+        if (idLength(slot % BUCKET_SIZE) == -1) { // reusing a tombstone
+            bucketTombs[bucket]--;
+            tombs--;
+        }
+        writeEntry(slot, key.getPosition(), key.getLength(), value
+            .getPosition(), value.getLength());
+        fps[slot] = BucketHash.fingerprint(seqID);
+        size++;
+        return slot;
+    }
+
+
+    /**
+     * Find the slot holding a sequence ID.
+     * The ID's bucket is read once and probed in insert order, stopping at
+     * the first slot that was never used. A slot is compared by ID length
+     * and fingerprint first, so only a slot that almost certainly matches
+     * reads its ID from the memory file
+     *
+     * @param seqID
+     *            the sequence ID to look for
+     * @return the slot, or -1 if the ID is not in the table
+     * @throws IOException
+     */
+    public synchronized int find(String seqID) throws IOException {
+        int fp = BucketHash.fingerprint(seqID);
+        int home = (int)(hash.hash(seqID) % maxSize);
+        int bucket = home / BUCKET_SIZE;
+        byte[] key = null;
+        readBucket(bucket);
+
+        for (int j = 0; j < BUCKET_SIZE; j++) {
+            int off = (home + j) % BUCKET_SIZE;
+            int len = idLength(off);
+            int slot = bucket * BUCKET_SIZE + off;
+
+            if (len == 0) { // never used
+                return -1;
+            }
+
+            // tombstones have length -1, so never match
+            if (len == seqID.length() && fps[slot] == fp) {
+                if (key == null) {
+                    key = NucleotideCodec.encode(seqID);
+                }
+                if (memManager.matches(pageBuf.getInt(off * ENTRY_SIZE), len,
+                    key)) {
+                    return slot;
+                }
+            }
+        }
+
+        // the whole bucket is in use, carry on down its overflow chain
+        for (int p = heads[bucket]; p != -1; p = pageNext[p]) {
+            readBucket(buckets + p);
+
+            for (int off = 0; off < BUCKET_SIZE; off++) {
+                int len = idLength(off);
+                int slot = (buckets + p) * BUCKET_SIZE + off;
+                if (len == 0) {
+                    return -1;
+                }
+
+                if (len == seqID.length() && fps[slot] == fp) {
+                    if (key == null) {
+                        key = NucleotideCodec.encode(seqID);
+                    }
+                    if (memManager.matches(pageBuf.getInt(off * ENTRY_SIZE),
+                        len, key)) {
+                        return slot;
+                    }
+                }
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * A method to return the table entry at the slot
+     * Used for remove, search and print
+     *
+     * @param i
+     *            the slot to peek
+     * @return the tableEntry at the slot, null if empty or a tombstone
+     * @throws IOException
+     */
+    public synchronized TableEntry get(int i) throws IOException {
+        readBucket(i / BUCKET_SIZE);
+
+        int base = (i % BUCKET_SIZE) * ENTRY_SIZE;
+        int idLen = pageBuf.getInt(base + 4);
+
+        if (idLen <= 0) {
+            return null;
+        }
+
+        TableEntry temp = new TableEntry(new MemHandle(pageBuf.getInt(base),
+            idLen), new MemHandle(pageBuf.getInt(base + 8), pageBuf.getInt(
+                base + 12)));
+        temp.setSlot(i);
+        temp.setFingerprint(fps[i]);
+        return temp;
+    }
+
+
+    /**
+     * Insert tombstone, rebuilding the bucket if it is then mostly
+     * tombstones
+     *
+     * @param slot
+     *            the slot to insert
+     * @throws IOException
+     */
+    public synchronized void insertTomb(int slot) throws IOException {
+        writeEntry(slot, 0, -1, 0, 0);
+        fps[slot] = 0;
+        size--;
+        tombs++;
+
+        int b = bucketOf(slot);
+        bucketTombs[b]++;
+        if (purgeRatio < 1 && bucketTombs[b] >= purgeRatio * BUCKET_SIZE
+            * chain(b).length) {
+            purgeBucket(b);
+        }
+    }
+
+
+    /**
+     * Rebuild every bucket holding tombstones without them
+     *
+     * @return tombstones cleared
+     * @throws IOException
+     */
+    public synchronized int purge() throws IOException {
+        int n = 0;
+        for (int b = 0; b < buckets && tombs > 0; b++) {
+            if (bucketTombs[b] > 0) {
+                n += purgeBucket(b);
+            }
+        }
+        return n;
+    }
+
+
+    /**
+     * Share of a bucket's slots that are tombstones past which a remove
+     * rebuilds it
+     *
+     * @param ratio
+     *            tombstone share, 1 turns automatic purges off
+     */
+    public synchronized void setPurgeRatio(double ratio) {
+        this.purgeRatio = ratio;
+    }
+
+
+    /**
+     * Number of tombstones in a bucket and its overflow chain
+     *
+     * @param bucket
+     *            bucket index
+     * @return tombstones
+     */
+    public synchronized int getTombstones(int bucket) {
+        return bucketTombs[bucket];
+    }
+
+
+    /**
+     * Rewrite a bucket and its overflow chain without tombstones, putting
+     * each entry back in the first free slot from its home and the rest at
+     * the front of the chain. Home slots are worked out from the stored
+     * IDs.
+     *
+     * @param b
+     *            bucket index
+     * @return tombstones cleared
+     * @throws IOException
+     */
+    private int purgeBucket(int b) throws IOException {
+        int[] chain = chain(b);
+        byte[][] old = new byte[chain.length][];
+        int[][] oldFps = new int[chain.length][];
+        for (int k = 0; k < chain.length; k++) {
+            readBucket(chain[k]);
+            old[k] = page.clone();
+            int first = chain[k] * BUCKET_SIZE;
+            oldFps[k] = Arrays.copyOfRange(fps, first, first + BUCKET_SIZE);
+            Arrays.fill(fps, first, first + BUCKET_SIZE, 0);
+        }
+
+        byte[][] fresh = new byte[chain.length][PAGE_SIZE];
+        ByteBuffer home = ByteBuffer.wrap(fresh[0]);
+        int spilled = 0;
+        for (int k = 0; k < chain.length; k++) {
+            ByteBuffer oldBuf = ByteBuffer.wrap(old[k]);
+            for (int base = 0; base < PAGE_SIZE; base += ENTRY_SIZE) {
+                int idLen = oldBuf.getInt(base + 4);
+                if (idLen <= 0) {
+                    continue;
+                }
+
+                MemHandle id = new MemHandle(oldBuf.getInt(base), idLen);
+                int off = (int)(hash.hash(NucleotideCodec.decode(memManager
+                    .getSequence(id), idLen)) % maxSize) % BUCKET_SIZE;
+                int j = 0;
+                while (j < BUCKET_SIZE && home.getInt(off * ENTRY_SIZE
+                    + 4) != 0) {
+                    off = (off + 1) % BUCKET_SIZE;
+                    j++;
+                }
+
+                int to = chain[0] * BUCKET_SIZE + off;
+                if (j < BUCKET_SIZE) {
+                    System.arraycopy(old[k], base, fresh[0], off
+                        * ENTRY_SIZE, ENTRY_SIZE);
+                }
+                else { // the bucket is full again, fill the chain
+                    int at = 1 + spilled / BUCKET_SIZE;
+                    to = chain[at] * BUCKET_SIZE + spilled % BUCKET_SIZE;
+                    System.arraycopy(old[k], base, fresh[at], (spilled
+                        % BUCKET_SIZE) * ENTRY_SIZE, ENTRY_SIZE);
+                    spilled++;
+                }
+                fps[to] = oldFps[k][base / ENTRY_SIZE];
+            }
+        }
+
+        for (int k = 0; k < chain.length; k++) {
+            cached = chain[k];
+            System.arraycopy(fresh[k], 0, page, 0, PAGE_SIZE);
+            writePage(chain[k]);
+        }
+
+        int n = bucketTombs[b];
+        bucketTombs[b] = 0;
+        tombs -= n;
+        return n;
+    }
+
+
+    /**
+     * Get the number of tombstones in the table
+     *
+     * @return tombstones
+     */
+    public synchronized int getTombstones() {
+        return tombs;
+    }
+
+
+    /**
+     * Point a used slot at its records after they moved
+     *
+     * @param slot
+     *            the slot to update
+     * @param key
+     *            new ID handle
+     * @param value
+     *            new sequence handle
+     * @throws IOException
+     */
+    public synchronized void update(int slot, MemHandle key, MemHandle value)
+        throws IOException {
+        writeEntry(slot, key.getPosition(), key.getLength(), value
+            .getPosition(), value.getLength());
+    }
+
+
+    /**
+     * The entries live in the hash file, so the snapshot only records the
+     * hash strategy, table size, counts, a new undo epoch, the bucket of each overflow
+     * page, the tombstones of each bucket holding any and the fingerprint
+     * of every slot once the changed pages are written out and the file is
+     * on disk
+     *
+     * @return snapshot bytes
+     * @throws IOException
+     */
+    public synchronized byte[] snapshot() throws IOException {
+        this.flush();
+        hashFile.getChannel().force(false);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        BucketHash.writeHeader(out, hash, maxSize);
+        out.writeInt(size);
+        out.writeInt(tombs);
+        out.writeInt(epoch + 1);
+        out.writeInt(pages);
+        for (int p = 0; p < pages; p++) {
+            out.writeInt(pageBucket[p]);
+        }
+
+        // the buckets holding tombstones, with their counts
+        int n = 0;
+        for (int b = 0; b < buckets; b++) {
+            n += bucketTombs[b] > 0 ? 1 : 0;
+        }
+        out.writeInt(n);
+        for (int b = 0; b < buckets; b++) {
+            if (bucketTombs[b] > 0) {
+                out.writeInt(b);
+                out.writeInt(bucketTombs[b]);
+            }
+        }
+        BucketHash.writeFingerprints(out, fps, getMaxSize());
+        out.flush();
+
+        if (undoName != null) {
+            this.startEpoch(epoch + 1);
+        }
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * Restore the entry and tombstone counts, the overflow chains and the
+     * fingerprints of a reopened hash file, working the tombstones or
+     * fingerprints out from the file if the snapshot predates them. A persistent table first undoes every page
+     * written since the snapshot was taken, then drops the overflow pages
+     * added since.
+     *
+     * @param snap
+     *            snapshot bytes
+     * @throws IOException
+     *             snapshot is for a different size table or hash strategy
+     */
+    public synchronized void restore(byte[] snap) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+            snap));
+
+        if (BucketHash.readHeader(in, hash) != maxSize) {
+            throw new IOException("Hash table size does not match.");
+        }
+        int count = in.readInt();
+        int t = in.available() > 0 ? in.readInt() : -1;
+        int e = in.available() > 0 ? in.readInt() : 0;
+        int n = in.available() > 0 ? in.readInt() : 0;
+        int[] owners = new int[n];
+        for (int p = 0; p < n; p++) {
+            owners[p] = in.readInt();
+        }
+        int[] counts = null;
+        if (in.available() > 0) {
+            counts = new int[buckets];
+            for (int k = in.readInt(); k > 0; k--) {
+                int b = in.readInt();
+                counts[b] = in.readInt();
+            }
+        }
+        int[] stored = BucketHash.readFingerprints(in, maxSize + n
+            * BUCKET_SIZE);
+
+        long length = (long)(buckets + n) * PAGE_SIZE;
+        if (hashFile.length() < length) {
+            throw new IOException("Hash table size does not match.");
+        }
+
+        size = count;
+        tombs = t;
+        cached = -1;
+        dirty.clear();
+        clearOverflow();
+        for (int p = 0; p < n; p++) {
+            link(owners[p]);
+        }
+
+        if (undoName != null) {
+            // a snapshot taken for a checkpoint that never finished, then
+            // the one being restored
+            undoPages(undoName + ((e + 1) % 2), e + 1);
+            undoPages(undoName + (e % 2), e);
+        }
+        hashFile.setLength(length);
+        if (undoName != null) {
+            hashFile.getChannel().force(false);
+            this.startEpoch(e);
+        }
+
+        if (counts == null || stored == null) {
+            boolean recount = counts == null;
+            if (recount) {
+                tombs = 0;
+                counts = new int[buckets];
+            }
+            fps = new int[maxSize + pages * BUCKET_SIZE];
+            for (int p = 0; p < buckets + pages; p++) {
+                readBucket(p);
+                for (int off = 0; off < BUCKET_SIZE; off++) {
+                    int len = idLength(off);
+                    if (len == -1 && recount) {
+                        counts[bucketOf(p * BUCKET_SIZE)]++;
+                        tombs++;
+                    }
+                    else if (len > 0 && stored == null) {
+                        MemHandle id = new MemHandle(pageBuf.getInt(off
+                            * ENTRY_SIZE), len);
+                        fps[p * BUCKET_SIZE + off] = BucketHash.fingerprint(
+                            NucleotideCodec.decode(memManager.getSequence(id),
+                                len));
+                    }
+                }
+            }
+        }
+        bucketTombs = counts;
+        if (stored != null) {
+            fps = stored;
+        }
+    }
+
+
+    /**
+     * Close the hash file
+     *
+     * @throws IOException
+     */
+    public synchronized void close() throws IOException {
+        if (undo != null) {
+            this.flush();
+        }
+        hashFile.close();
+        if (undo != null) {
+            undo.close();
+        }
+    }
+
+
+    /**
+     * Start an undo epoch in its file, dropping the records of the epoch
+     * two before it
+     *
+     * @param e
+     *            epoch
+     * @throws IOException
+     */
+    private void startEpoch(int e) throws IOException {
+        if (undo != null) {
+            undo.close();
+        }
+
+        undo = new RandomAccessFile(undoName + (e % 2), "rw");
+        undo.setLength(0);
+        undo.writeInt(e);
+        undo.getChannel().force(false);
+        undoForces++;
+
+        epoch = e;
+        epochPages = buckets + pages;
+        saved.clear();
+    }
+
+
+    /**
+     * Write out the changed pages of a persistent table. The old contents
+     * of the pages not saved in this epoch yet go to the undo file first,
+     * forced once for all of them, so no page can reach the disk before
+     * the record that undoes it. Overflow pages added in the epoch have
+     * nothing to save, restore cuts them off the file.
+     *
+     * @throws IOException
+     */
+    private void flush() throws IOException {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        byte[] old = new byte[PAGE_SIZE];
+        for (int b : dirty.keySet()) {
+            if (!saved.get(b) && b < epochPages) {
+                hashFile.seek((long)b * PAGE_SIZE);
+                hashFile.readFully(old);
+                out.writeInt(b);
+                out.write(old);
+            }
+            saved.set(b);
+        }
+        out.flush();
+
+        if (bytes.size() > 0) {
+            undo.seek(undo.length());
+            undo.write(bytes.toByteArray());
+            undo.getChannel().force(false);
+            undoForces++;
+        }
+
+        for (int b : dirty.keySet()) {
+            hashFile.seek((long)b * PAGE_SIZE);
+            hashFile.write(dirty.get(b));
+        }
+        dirty.clear();
+    }
+
+
+    /**
+     * Number of times the undo file was forced to disk
+     *
+     * @return forces
+     */
+    public synchronized long getUndoForces() {
+        return undoForces;
+    }
+
+
+    /**
+     * Write the pages saved in an undo file back to the hash file, newest
+     * first. A record torn by the crash is skipped, its page was never
+     * written.
+     *
+     * @param name
+     *            undo file name
+     * @param e
+     *            epoch the file must hold
+     * @throws IOException
+     */
+    private void undoPages(String name, int e) throws IOException {
+        if (!new File(name).exists()) {
+            return;
+        }
+
+        ArrayList<byte[]> pages = new ArrayList<>();
+        ArrayList<Integer> buckets = new ArrayList<>();
+        RandomAccessFile in = new RandomAccessFile(name, "r");
+        try {
+            if (in.length() < 4 || in.readInt() != e) {
+                return; // another epoch's file
+            }
+
+            long n = (in.length() - 4) / (4 + PAGE_SIZE);
+            for (long k = 0; k < n; k++) {
+                buckets.add(in.readInt());
+                byte[] p = new byte[PAGE_SIZE];
+                in.readFully(p);
+                pages.add(p);
+            }
+        }
+        finally {
+            in.close();
+        }
+
+        for (int k = pages.size() - 1; k >= 0; k--) {
+            hashFile.seek((long)buckets.get(k) * PAGE_SIZE);
+            hashFile.write(pages.get(k));
+        }
+        cached = -1;
+    }
+
+
+    /**
+     * A free slot in a full bucket's overflow chain, adding a page to the
+     * end of the file and the chain if every page is in use. The slot's
+     * page is left in the page buffer.
+     *
+     * @param bucket
+     *            bucket index
+     * @return overflow slot
+     * @throws IOException
+     */
+    private int spill(int bucket) throws IOException {
+        for (int p = heads[bucket]; p != -1; p = pageNext[p]) {
+            readBucket(buckets + p);
+            for (int off = 0; off < BUCKET_SIZE; off++) {
+                if (idLength(off) <= 0) {
+                    return (buckets + p) * BUCKET_SIZE + off;
+                }
+            }
+        }
+
+        int p = pages;
+        link(bucket);
+        Arrays.fill(page, (byte)0);
+        cached = buckets + p;
+        writePage(cached);
+        return cached * BUCKET_SIZE;
+    }
+
+
+    /**
+     * Add an overflow page at the end of a bucket's chain
+     *
+     * @param bucket
+     *            bucket index
+     */
+    private void link(int bucket) {
+        int p = pages++;
+        if (p >= pageNext.length) {
+            pageNext = Arrays.copyOf(pageNext, p * 2 + 1);
+            pageBucket = Arrays.copyOf(pageBucket, p * 2 + 1);
+        }
+        pageNext[p] = -1;
+        pageBucket[p] = bucket;
+        if (fps.length < maxSize + pages * BUCKET_SIZE) {
+            fps = Arrays.copyOf(fps, maxSize + pages * 2 * BUCKET_SIZE);
+        }
+
+        if (heads[bucket] == -1) {
+            heads[bucket] = p;
+        }
+        else {
+            int last = heads[bucket];
+            while (pageNext[last] != -1) {
+                last = pageNext[last];
+            }
+            pageNext[last] = p;
+        }
+    }
+
+
+    /**
+     * Bucket a slot belongs to, the bucket of its page for overflow slots
+     *
+     * @param slot
+     *            slot
+     * @return bucket index
+     */
+    private int bucketOf(int slot) {
+        if (slot < maxSize) {
+            return slot / BUCKET_SIZE;
+        }
+        return pageBucket[(slot - maxSize) / BUCKET_SIZE];
+    }
+
+
+    /**
+     * Pages of a bucket, its own first and then its overflow chain
+     *
+     * @param bucket
+     *            bucket index
+     * @return page indexes in the file
+     */
+    private int[] chain(int bucket) {
+        int n = 1;
+        for (int p = heads[bucket]; p != -1; p = pageNext[p]) {
+            n++;
+        }
+
+        int[] chain = new int[n];
+        chain[0] = bucket;
+        n = 1;
+        for (int p = heads[bucket]; p != -1; p = pageNext[p]) {
+            chain[n++] = buckets + p;
+        }
+        return chain;
+    }
+
+
+    /**
+     * Drop every overflow page
+     */
+    private void clearOverflow() {
+        pages = 0;
+        heads = new int[buckets];
+        Arrays.fill(heads, -1);
+        pageNext = new int[0];
+        pageBucket = new int[0];
+    }
+
+
+    /**
+     * Read a whole bucket or overflow page into the page buffer unless it
+     * is already there
+     *
+     * @param bucket
+     *            page index, overflow pages after the buckets
+     * @throws IOException
+     */
+    private void readBucket(int bucket) throws IOException {
+        if (bucket != cached) {
+            byte[] changed = dirty.get(bucket);
+            if (changed != null) {
+                System.arraycopy(changed, 0, page, 0, PAGE_SIZE);
+            }
+            else {
+                hashFile.seek((long)bucket * PAGE_SIZE);
+                hashFile.readFully(page);
+            }
+            cached = bucket;
+        }
+    }
+
+
+    /**
+     * ID length of a slot in the cached page
+     *
+     * @param off
+     *            slot offset within the bucket
+     * @return length, 0 if never used, -1 if tombstone
+     */
+    private int idLength(int off) {
+        return pageBuf.getInt(off * ENTRY_SIZE + 4);
+    }
+
+
+    /**
+     * Write one entry to the file, keeping the cached page in step
+     *
+     * @param slot
+     *            slot to write
+     * @param idPos
+     *            ID position
+     * @param idLen
+     *            ID length
+     * @param seqPos
+     *            sequence position
+     * @param seqLen
+     *            sequence length
+     * @throws IOException
+     */
+    private void writeEntry(int slot, int idPos, int idLen, int seqPos,
+        int seqLen) throws IOException {
+        readBucket(slot / BUCKET_SIZE);
+
+        int base = (slot % BUCKET_SIZE) * ENTRY_SIZE;
+        pageBuf.putInt(base, idPos);
+        pageBuf.putInt(base + 4, idLen);
+        pageBuf.putInt(base + 8, seqPos);
+        pageBuf.putInt(base + 12, seqLen);
+
+        if (undo == null) {
+            hashFile.seek((long)slot * ENTRY_SIZE);
+            hashFile.write(page, base, ENTRY_SIZE);
+        }
+        else {
+            writePage(slot / BUCKET_SIZE);
+        }
+    }
+
+
+    /**
+     * Write the cached page back: straight to the file for a table that
+     * isn't persistent, otherwise held until the next flush
+     *
+     * @param bucket
+     *            bucket index of the cached page
+     * @throws IOException
+     */
+    private void writePage(int bucket) throws IOException {
+        if (undo == null) {
+            hashFile.seek((long)bucket * PAGE_SIZE);
+            hashFile.write(page);
+            return;
+        }
+
+        dirty.put(bucket, page.clone());
+        if (dirty.size() >= MAX_DIRTY_PAGES) {
+            this.flush();
+        }
+    }
+}
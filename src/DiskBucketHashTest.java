@@ -0,0 +1,253 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import student.TestCase;
+
+/**
+ * Test class for the disk bucket hash
+ * 
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class DiskBucketHashTest extends TestCase {
+    private DiskBucketHash hTable;
+    private MemManager mem;
+    private MemHandle m1;
+    private MemHandle m2;
+
+
+    /**
+     * Set Up
+     * 
+     * @throws IOException
+     */
+    public void setUp() throws IOException {
+        mem = new MemManager("mFile.bin");
+        hTable = new DiskBucketHash("hFile.bin", 64, mem);
+        m1 = new MemHandle(2, 4);
+        m2 = new MemHandle(2, 4);
+    }
+
+
+    /**
+     * Test Insert uses the same slots as the in-memory table
+     * 
+     * @throws IOException
+     */
+    public void testInsert() throws IOException {
+        assertEquals(6, hTable.insert("AAAAA", m1, m2));
+        assertEquals(18, hTable.insert("AAAA", m1, m2));
+        assertEquals(19, hTable.insert("AAA", m1, m2));
+        assertEquals(0, hTable.insert("TTTTTTTTTTAAAAACCCA", m1, m2));
+        assertEquals(62, hTable.insert("TCATATCTATCCAAAAAAAA", m1, m2));
+        assertEquals(63, hTable.insert("TCATATCTATCCAAAAAAA", m1, m2));
+        assertEquals(32, hTable.insert("TCATATCTATCCAAAAAA", m1, m2));
+        assertEquals(7, hTable.getSize());
+
+        // one 512 byte page per bucket
+        RandomAccessFile raf = new RandomAccessFile("hFile.bin", "r");
+        assertEquals(1024, raf.length());
+        raf.close();
+        hTable.close();
+    }
+
+
+    /**
+     * Test find, get and tombstones
+     * 
+     * @throws IOException
+     */
+    public void testFind() throws IOException {
+        MemHandle id = mem.insert("AAAAA", 5);
+        MemHandle seq = mem.insert("ACGTACGT", 8);
+        assertEquals(6, hTable.insert("AAAAA", id, seq));
+        assertEquals(6, hTable.find("AAAAA"));
+        assertEquals(-1, hTable.find("AAAA"));
+
+        TableEntry entry = hTable.get(6);
+        assertEquals(6, entry.getSlot());
+        assertEquals(0, entry.getID().getPosition());
+        assertEquals(5, entry.getID().getLength());
+        assertEquals(2, entry.getSequence().getPosition());
+        assertEquals(8, entry.getSequence().getLength());
+        assertNull(hTable.get(7));
+
+        hTable.insertTomb(6);
+        assertNull(hTable.get(6));
+        assertEquals(-1, hTable.find("AAAAA"));
+        assertEquals(0, hTable.getSize());
+        hTable.close();
+    }
+
+
+    /**
+     * Test fingerprints keep non-matching probes off the memory file, and
+     * come back from a snapshot without reading the IDs
+     * 
+     * @throws IOException
+     */
+    public void testFingerprint() throws IOException {
+        final int[] reads = new int[1];
+        mem = new MemManager(new FileStorage("mFile.bin") {
+            public void read(long pos, byte[] b, int off, int len)
+                throws IOException {
+                reads[0]++;
+                super.read(pos, b, off, len);
+            }
+        }, false);
+        hTable.close();
+        hTable = new DiskBucketHash("hFile.bin", 64, mem);
+
+        // all the same length, only fingerprints tell them apart
+        String[] ids = { "AAAAA", "CAAAA", "GAAAA", "TAAAA" };
+        for (String id : ids) {
+            hTable.insert(id, mem.insert(id, id.length()), m2);
+        }
+        assertEquals(BucketHash.fingerprint("CAAAA"), hTable.get(hTable.find(
+            "CAAAA")).getFingerprint());
+
+        // a hit reads only its own ID, a miss reads nothing
+        reads[0] = 0;
+        for (String id : ids) {
+            assertTrue(hTable.find(id) != -1);
+        }
+        assertEquals(ids.length, reads[0]);
+        reads[0] = 0;
+        assertEquals(-1, hTable.find("ACGTA"));
+        assertEquals(0, reads[0]);
+
+        byte[] snap = hTable.snapshot();
+        hTable.close();
+        hTable = new DiskBucketHash("hFile.bin", 64, mem, true);
+        reads[0] = 0;
+        hTable.restore(snap);
+        assertEquals(0, reads[0]);
+        assertTrue(hTable.find("TAAAA") != -1);
+        assertEquals(1, reads[0]);
+        hTable.close();
+    }
+
+
+    /**
+     * Test a full bucket spills into overflow pages at the end of the file,
+     * that purge keeps the chains searchable and that a restore drops the
+     * pages added after the snapshot
+     * 
+     * @throws IOException
+     */
+    public void testOverflow() throws IOException {
+        String[] ids = Benchmark.sequences(new Random(7), 200, 12);
+        for (String id : ids) {
+            assertTrue(hTable.insert(id, mem.insert(id, id.length()), m2)
+                >= 0);
+        }
+        assertEquals(200, hTable.getSize());
+        assertTrue(hTable.getOverflowPages() >= 5);
+        assertEquals(64 + hTable.getOverflowPages() * 32, hTable
+            .getMaxSize());
+        for (String id : ids) {
+            assertEquals(id, idAt(hTable.find(id)));
+        }
+
+        hTable.setPurgeRatio(1); // left for purge to clear
+        for (int i = 0; i < ids.length; i += 2) {
+            hTable.insertTomb(hTable.find(ids[i]));
+        }
+        assertEquals(100, hTable.purge());
+        assertEquals(0, hTable.getTombstones());
+        for (int i = 0; i < ids.length; i += 2) {
+            assertEquals(-1, hTable.find(ids[i]));
+            assertEquals(ids[i + 1], idAt(hTable.find(ids[i + 1])));
+        }
+        hTable.close();
+
+        // a persistent table cuts the pages added after a snapshot off
+        new File("hFile.bin.undo0").delete();
+        new File("hFile.bin.undo1").delete();
+        hTable = new DiskBucketHash("hFile.bin", 64, mem, false, true);
+        for (int i = 0; i < 40; i++) {
+            hTable.insert(ids[i], mem.insert(ids[i], ids[i].length()), m2);
+        }
+        byte[] snap = hTable.snapshot();
+        int kept = hTable.getOverflowPages();
+        for (int i = 40; i < ids.length; i++) {
+            hTable.insert(ids[i], mem.insert(ids[i], ids[i].length()), m2);
+        }
+        assertTrue(hTable.getOverflowPages() > kept);
+
+        hTable.restore(snap);
+        assertEquals(kept, hTable.getOverflowPages());
+        assertEquals(40, hTable.getSize());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i < 40, hTable.find(ids[i]) != -1);
+        }
+        RandomAccessFile raf = new RandomAccessFile("hFile.bin", "r");
+        assertEquals((2 + kept) * 512, raf.length());
+        raf.close();
+        hTable.close();
+        new File("hFile.bin.undo0").delete();
+        new File("hFile.bin.undo1").delete();
+    }
+
+
+    /**
+     * Test a remove that leaves half a bucket's slots as tombstones
+     * rebuilds the bucket, and that the counts per bucket survive a
+     * snapshot
+     * 
+     * @throws IOException
+     */
+    public void testAutoPurge() throws IOException {
+        String[] ids = Benchmark.sequences(new Random(11), 40, 12);
+        for (String id : ids) {
+            hTable.insert(id, mem.insert(id, id.length()), m2);
+        }
+        int b = BucketHash.sfold(ids[0], 64) / 32;
+        int removed = 0;
+        for (String id : ids) {
+            if (BucketHash.sfold(id, 64) / 32 == b && removed < 15) {
+                hTable.insertTomb(hTable.find(id));
+                removed++;
+            }
+        }
+        assertEquals(15, hTable.getTombstones(b));
+
+        byte[] snap = hTable.snapshot();
+        hTable.restore(snap);
+        assertEquals(15, hTable.getTombstones(b));
+        assertEquals(15, hTable.getTombstones());
+
+        // the 16th tombstone is half of the 32 slots
+        for (String id : ids) {
+            if (BucketHash.sfold(id, 64) / 32 == b && hTable.find(id) != -1) {
+                hTable.insertTomb(hTable.find(id));
+                break;
+            }
+        }
+        assertEquals(0, hTable.getTombstones(b));
+        assertEquals(0, hTable.getTombstones());
+        assertEquals(40 - 16, hTable.getSize());
+        for (String id : ids) {
+            int slot = hTable.find(id);
+            if (slot != -1) {
+                assertEquals(id, idAt(slot));
+            }
+        }
+        hTable.close();
+    }
+
+
+    /**
+     * ID stored at a slot
+     * 
+     * @param slot
+     *            slot
+     * @return ID
+     * @throws IOException
+     */
+    private String idAt(int slot) throws IOException {
+        MemHandle id = hTable.get(slot).getID();
+        return NucleotideCodec.decode(mem.getSequence(id), id.getLength());
+    }
+}
@@ -0,0 +1,556 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bulk loader for FASTA and FASTQ files.
+ *
+ * Loading runs as a three stage pipeline: a reader thread fills a small
+ * pool of reused buffers from the file, an encoder thread parses them and
+ * 2 bit encodes each sequence as its lines go by (a multi-line sequence is
+ * never held as text), and the calling thread inserts the records in
+ * batches with DNADataBase.insertAll. FASTQ qualities are skipped.
+ *
+ * IDs are the header up to the first whitespace and, like every ID in the
+ * database, must be made of A, C, G and T. Lower case bases are accepted.
+ * A record with an invalid ID or sequence is reported by ID and skipped.
+ *
+ * If any stage fails the others are stopped before load returns: the
+ * encoder keeps handing buffers back to the reader until it has seen the
+ * end, and if inserting fails the calling thread stops both and takes the
+ * encoder's last batches so neither stays blocked on a queue.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class FastaLoader {
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final int CHUNKS = 4;
+    private static final int BATCH_RECORDS = 1024;
+    private static final int BATCH_BYTES = 4 << 20;
+
+    // parser states
+    private static final int START = 0;
+    private static final int ID = 1;
+    private static final int HEADER = 2;
+    private static final int LINE_START = 3;
+    private static final int SEQUENCE = 4;
+    private static final int PLUS = 5;
+    private static final int QUALITY = 6;
+
+    // marks the end of a queue
+    private static final Chunk LAST_CHUNK = new Chunk(0);
+    private static final List<SequenceRecord> LAST_BATCH = new ArrayList<>();
+
+    private DNADataBase dBase;
+    private volatile Throwable failure;
+
+    // encoder state
+    private int state;
+    private boolean fastq;
+    private StringBuilder iD;
+    private byte[] seq;
+    private int seqLen;
+    private int seqBytes;
+    private int acc;
+    private boolean valid;
+    private int qualLeft;
+    private List<SequenceRecord> batch;
+    private int batchBytes;
+
+
+    /**
+     * Create a loader feeding the database
+     *
+     * @param db
+     *            database to insert into
+     */
+    public FastaLoader(DNADataBase db) {
+        this.dBase = db;
+    }
+
+
+    /**
+     * Load a FASTA or FASTQ file
+     *
+     * @param fileName
+     *            name of the file
+     * @return number of sequences inserted
+     * @throws IOException
+     *             file can't be read or isn't FASTA or FASTQ
+     */
+    public int load(String fileName) throws IOException {
+        FileInputStream in = new FileInputStream(fileName);
+        try {
+            return load(in);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+
+    /**
+     * Load FASTA or FASTQ records from a stream
+     *
+     * @param in
+     *            stream to read
+     * @return number of sequences inserted
+     * @throws IOException
+     *             stream can't be read or isn't FASTA or FASTQ
+     */
+    public int load(final InputStream in) throws IOException {
+        final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(CHUNKS);
+        final BlockingQueue<Chunk> full = new ArrayBlockingQueue<>(CHUNKS
+            + 1);
+        final BlockingQueue<List<SequenceRecord>> batches =
+            new ArrayBlockingQueue<>(CHUNKS);
+
+        for (int i = 0; i < CHUNKS; i++) {
+            free.add(new Chunk(CHUNK_SIZE));
+        }
+        failure = null;
+
+        Thread reader = new Thread(new Runnable() {
+            public void run() {
+                read(in, free, full);
+            }
+        }, "fasta-reader");
+        Thread encoder = new Thread(new Runnable() {
+            public void run() {
+                encode(free, full, batches);
+            }
+        }, "fasta-encoder");
+        reader.setDaemon(true);
+        encoder.setDaemon(true);
+        reader.start();
+        encoder.start();
+
+        int inserted = 0;
+        boolean done = false;
+        try {
+            for (List<SequenceRecord> recs = batches.take(); recs
+                != LAST_BATCH; recs = batches.take()) {
+                inserted += insert(recs);
+            }
+            done = true;
+            reader.join();
+            encoder.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Load interrupted.");
+        }
+        finally {
+            if (!done) {
+                stop(reader, encoder, batches);
+            }
+        }
+
+        if (failure instanceof IOException) {
+            throw (IOException)failure;
+        }
+        if (failure != null) {
+            throw new IOException(failure);
+        }
+        return inserted;
+    }
+
+
+    /**
+     * Stop the reader and encoder after the calling thread gave up on the
+     * load, taking batches until the encoder's last one so it isn't left
+     * blocked on a full queue
+     *
+     * @param reader
+     *            reader thread
+     * @param encoder
+     *            encoder thread
+     * @param batches
+     *            record batches
+     */
+    private void stop(Thread reader, Thread encoder,
+        BlockingQueue<List<SequenceRecord>> batches) {
+        if (failure == null) {
+            failure = new IOException("Load stopped.");
+        }
+        reader.interrupt();
+        encoder.interrupt();
+
+        boolean interrupted = Thread.interrupted();
+        try {
+            while (batches.take() != LAST_BATCH) {
+                // dropped
+            }
+            encoder.join();
+            reader.join();
+        }
+        catch (InterruptedException e) {
+            interrupted = true;
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Insert a batch, reporting the invalid records
+     *
+     * @param recs
+     *            records, invalid ones have no sequence
+     * @return number inserted
+     * @throws IOException
+     */
+    private int insert(List<SequenceRecord> recs) throws IOException {
+        List<SequenceRecord> good = new ArrayList<>(recs.size());
+
+        for (SequenceRecord rec : recs) {
+            if (rec.getSequence() == null) {
+                System.out.println("Invalid Sequence: " + rec.getID());
+            }
+            else {
+                good.add(rec);
+            }
+        }
+
+        return dBase.insertAll(good);
+    }
+
+
+    /**
+     * Reader stage: fill free buffers from the stream
+     *
+     * @param in
+     *            stream to read
+     * @param free
+     *            empty buffers
+     * @param full
+     *            filled buffers, in order
+     */
+    private void read(InputStream in, BlockingQueue<Chunk> free,
+        BlockingQueue<Chunk> full) {
+        try {
+            while (failure == null) {
+                Chunk chunk = free.take();
+                chunk.length = in.read(chunk.data, 0, chunk.data.length);
+
+                if (chunk.length < 0) {
+                    break;
+                }
+                full.put(chunk);
+            }
+        }
+        catch (IOException e) {
+            failure = e;
+        }
+        catch (InterruptedException e) {
+            failure = e;
+        }
+        finally {
+            full.add(LAST_CHUNK); // always room for the end marker
+        }
+    }
+
+
+    /**
+     * Encoder stage: parse and encode filled buffers into batches
+     *
+     * @param free
+     *            empty buffers
+     * @param full
+     *            filled buffers, in order
+     * @param batches
+     *            record batches, in order
+     */
+    private void encode(BlockingQueue<Chunk> free, BlockingQueue<Chunk> full,
+        BlockingQueue<List<SequenceRecord>> batches) {
+        state = START;
+        iD = new StringBuilder();
+        seq = new byte[1024];
+        seqLen = 0;
+        seqBytes = 0;
+        acc = 0;
+        valid = true;
+        batch = new ArrayList<>();
+        batchBytes = 0;
+
+        try {
+            for (Chunk chunk = full.take(); chunk != LAST_CHUNK; chunk = full
+                .take()) {
+                if (failure == null) {
+                    try {
+                        parse(chunk.data, chunk.length, batches);
+                    }
+                    catch (IOException e) {
+                        failure = e; // the reader stops at its next buffer
+                    }
+                }
+                free.put(chunk);
+            }
+
+            if (failure == null) {
+                finish(batches);
+                if (!batch.isEmpty()) {
+                    batches.put(batch);
+                }
+            }
+        }
+        catch (IOException e) {
+            failure = e;
+        }
+        catch (InterruptedException e) {
+            failure = e;
+        }
+        finally {
+            // always delivered, the calling thread takes batches until it
+            // sees this one even after stopping the load
+            boolean sent = false;
+            while (!sent) {
+                try {
+                    batches.put(LAST_BATCH);
+                    sent = true;
+                }
+                catch (InterruptedException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Run the parser over a buffer
+     *
+     * @param data
+     *            bytes
+     * @param len
+     *            number of bytes
+     * @param batches
+     *            record batches
+     * @throws IOException
+     *             not FASTA or FASTQ
+     * @throws InterruptedException
+     */
+    private void parse(byte[] data, int len,
+        BlockingQueue<List<SequenceRecord>> batches)
+        throws IOException,
+        InterruptedException {
+        for (int i = 0; i < len; i++) {
+            byte c = data[i];
+
+            switch (state) {
+                case START:
+                    if (c == '>' || c == '@') {
+                        fastq = c == '@';
+                        state = ID;
+                    }
+                    else if (!isSpace(c)) {
+                        throw new IOException("Not a FASTA or FASTQ file.");
+                    }
+                    break;
+                case ID:
+                    if (c == '\n') {
+                        state = LINE_START;
+                    }
+                    else if (isSpace(c)) {
+                        state = HEADER;
+                    }
+                    else {
+                        iD.append((char)(c & 0xFF));
+                    }
+                    break;
+                case HEADER:
+                    if (c == '\n') {
+                        state = LINE_START;
+                    }
+                    break;
+                case LINE_START:
+                    if (isSpace(c)) { // blank line
+                        break;
+                    }
+                    if (!fastq && c == '>') {
+                        record(batches);
+                        state = ID;
+                        break;
+                    }
+                    if (fastq && c == '+') {
+                        state = PLUS;
+                        break;
+                    }
+                    state = SEQUENCE;
+                    base(c);
+                    break;
+                case SEQUENCE:
+                    if (c == '\n') {
+                        state = LINE_START;
+                    }
+                    else {
+                        base(c);
+                    }
+                    break;
+                case PLUS:
+                    if (c == '\n') {
+                        qualLeft = seqLen;
+                        state = QUALITY;
+                        if (qualLeft == 0) {
+                            record(batches);
+                            state = START;
+                        }
+                    }
+                    break;
+                default: // QUALITY
+                    if (!isSpace(c) && --qualLeft == 0) {
+                        record(batches);
+                        state = START;
+                    }
+                    break;
+            }
+        }
+    }
+
+
+    /**
+     * Flush the record in progress at the end of the input
+     *
+     * @param batches
+     *            record batches
+     * @throws IOException
+     *             truncated FASTQ record
+     * @throws InterruptedException
+     */
+    private void finish(BlockingQueue<List<SequenceRecord>> batches)
+        throws IOException,
+        InterruptedException {
+        if (state == START) {
+            return;
+        }
+        if (fastq) {
+            throw new IOException("Truncated FASTQ record " + iD + ".");
+        }
+        record(batches);
+    }
+
+
+    /**
+     * Encode one sequence character
+     *
+     * @param c
+     *            character
+     */
+    private void base(byte c) {
+        if (isSpace(c)) {
+            return;
+        }
+
+        int ch = c & 0xFF;
+        if (ch >= 'a' && ch <= 'z') {
+            ch -= 'a' - 'A';
+        }
+
+        int v = NucleotideCodec.code((char)ch);
+        if (v > 3) {
+            valid = false;
+            v = 0;
+        }
+
+        acc = (acc << 2) | v;
+        seqLen++;
+
+        // a byte is full
+        if ((seqLen & 3) == 0) {
+            if (seqBytes == seq.length) {
+                seq = Arrays.copyOf(seq, seqBytes * 2);
+            }
+            seq[seqBytes++] = (byte)acc;
+            acc = 0;
+        }
+    }
+
+
+    /**
+     * Finish the current record, add it to the batch and reset for the
+     * next one
+     *
+     * @param batches
+     *            record batches
+     * @throws InterruptedException
+     */
+    private void record(BlockingQueue<List<SequenceRecord>> batches)
+        throws InterruptedException {
+        String id = iD.toString();
+        boolean ok = valid && seqLen > 0 && id.length() > 0 && NucleotideCodec
+            .isValid(id);
+
+        if (ok) {
+            // partial last byte, padded with A's
+            int rem = seqLen & 3;
+            if (rem > 0) {
+                if (seqBytes == seq.length) {
+                    seq = Arrays.copyOf(seq, seqBytes + 1);
+                }
+                seq[seqBytes++] = (byte)(acc << ((4 - rem) * 2));
+            }
+
+            batch.add(new SequenceRecord(id, seqLen, Arrays.copyOf(seq,
+                seqBytes)));
+            batchBytes += seqBytes;
+        }
+        else {
+            batch.add(new SequenceRecord(id, seqLen, (byte[])null));
+        }
+
+        if (batch.size() >= BATCH_RECORDS || batchBytes >= BATCH_BYTES) {
+            batches.put(batch);
+            batch = new ArrayList<>();
+            batchBytes = 0;
+        }
+
+        iD.setLength(0);
+        seqLen = 0;
+        seqBytes = 0;
+        acc = 0;
+        valid = true;
+    }
+
+
+    /**
+     * Whitespace inside a record
+     *
+     * @param c
+     *            byte
+     * @return true if whitespace
+     */
+    private static boolean isSpace(byte c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+
+    /**
+     * A buffer passed between the reader and the encoder
+     */
+    private static class Chunk {
+        private byte[] data;
+        private int length;
+
+
+        /**
+         * Empty buffer
+         *
+         * @param size
+         *            capacity
+         */
+        Chunk(int size) {
+            data = new byte[size];
+            length = 0;
+        }
+    }
+}
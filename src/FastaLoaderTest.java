@@ -0,0 +1,270 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import student.TestCase;
+
+/**
+ * Testing the FASTA and FASTQ loader.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class FastaLoaderTest extends TestCase {
+    private DNADataBase dbase;
+    private FastaLoader loader;
+
+
+    /**
+     * Default setup for each test.
+     *
+     * @throws IOException
+     */
+    public void setUp() throws IOException {
+        dbase = new DNADataBase("mFile.bin", 64);
+        loader = new FastaLoader(dbase);
+    }
+
+
+    /**
+     * Test multi-line FASTA records, lower case, descriptions and bad
+     * records.
+     *
+     * @throws IOException
+     */
+    public void testFasta() throws IOException {
+        assertEquals(3, load("\n>AAA first record\nACGT\nacg\n\n"
+            + ">CCC\r\nTTTT\r\nG\r\n>GGN\nACGT\n>GGG\nACNT\n>TTT\n"
+            + ">AAA\nCCCC\n>CAT\nGATTACA"));
+
+        assertEquals("Invalid Sequence: GGN\nInvalid Sequence: GGG\n"
+            + "Invalid Sequence: TTT\nSequenceID AAA exists\n", systemOut()
+                .getHistory());
+
+        systemOut().clearHistory();
+        dbase.search("AAA");
+        dbase.search("CCC");
+        dbase.search("CAT");
+        assertEquals("Sequence Found: ACGTACG\nSequence Found: TTTTG\n"
+            + "Sequence Found: GATTACA\n", systemOut().getHistory());
+    }
+
+
+    /**
+     * Test FASTQ records, including qualities that look like headers.
+     *
+     * @throws IOException
+     */
+    public void testFastq() throws IOException {
+        assertEquals(2, load("@AC read one\nACGTA\nCC\n+AC read one\n"
+            + "@@@@\n@@@\n@GT\nTTT\n+\n+@+\n"));
+
+        dbase.search("AC");
+        dbase.search("GT");
+        assertEquals("Sequence Found: ACGTACC\nSequence Found: TTT\n",
+            systemOut().getHistory());
+
+        IOException e = null;
+        try {
+            load("@TT\nACGT\n+\nII");
+        }
+        catch (IOException x) {
+            e = x;
+        }
+        assertNotNull(e);
+    }
+
+
+    /**
+     * Test a file that isn't FASTA or FASTQ.
+     */
+    public void testNotFasta() {
+        IOException e = null;
+        try {
+            load("insert AAA 4\nACGT\n");
+        }
+        catch (IOException x) {
+            e = x;
+        }
+        assertNotNull(e);
+        assertEquals("Not a FASTA or FASTQ file.", e.getMessage());
+    }
+
+
+    /**
+     * Test many long records, spread over several read buffers.
+     *
+     * @throws IOException
+     */
+    public void testLarge() throws IOException {
+        StringBuilder in = new StringBuilder();
+        StringBuilder seq = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            seq.append("ACGTTGCAGT".charAt(i % 10));
+        }
+
+        String[] ids = new String[500];
+        for (int r = 0; r < ids.length; r++) {
+            StringBuilder id = new StringBuilder();
+            for (int v = r + 1; v > 0; v /= 4) {
+                id.append("ACGT".charAt(v % 4));
+            }
+            ids[r] = id.toString();
+
+            in.append('>').append(ids[r]).append('\n');
+            for (int i = 0; i < seq.length(); i += 70) {
+                in.append(seq, i, Math.min(i + 70, seq.length())).append(
+                    '\n');
+            }
+        }
+
+        dbase = new DNADataBase("mFile.bin", 4096);
+        loader = new FastaLoader(dbase);
+        assertEquals(ids.length, load(in.toString()));
+
+        dbase.search(ids[0]);
+        dbase.search(ids[ids.length - 1]);
+        assertEquals("Sequence Found: " + seq + "\nSequence Found: " + seq
+            + "\n", systemOut().getHistory());
+    }
+
+
+    /**
+     * Test a malformed record far enough in that the reader still has more
+     * to read than the buffers hold fails the load instead of hanging it.
+     *
+     * @throws Exception
+     */
+    public void testFailureBeyondBuffers() throws Exception {
+        StringBuilder in = new StringBuilder();
+        StringBuilder seq = new StringBuilder();
+        StringBuilder qual = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            seq.append("ACGTTGCAGT".charAt(i % 10));
+            qual.append('I');
+        }
+
+        // about 3 MB of good reads
+        for (int r = 1; r <= 500; r++) {
+            in.append('@');
+            for (int v = r; v > 0; v /= 4) {
+                in.append("ACGT".charAt(v % 4));
+            }
+            in.append('\n').append(seq).append("\n+\n").append(qual).append(
+                '\n');
+        }
+        in.append("not a record\n");
+        while (in.length() < 12 << 20) {
+            in.append(seq).append('\n');
+        }
+
+        dbase = new DNADataBase("mFile.bin", 4096);
+        Throwable thrown = loadInThread(new FastaLoader(dbase), in
+            .toString());
+        assertTrue(thrown instanceof IOException);
+        assertEquals("Not a FASTA or FASTQ file.", thrown.getMessage());
+        assertFalse(pipelineRunning());
+    }
+
+
+    /**
+     * Test both pipeline threads stop when inserting a batch fails.
+     *
+     * @throws Exception
+     */
+    public void testInsertFailure() throws Exception {
+        StringBuilder in = new StringBuilder();
+        for (int r = 1; in.length() < 12 << 20; r++) {
+            in.append('>');
+            for (int v = r; v > 0; v /= 4) {
+                in.append("ACGT".charAt(v % 4));
+            }
+            in.append("\nACGTACGTACGTACGTACGTACGTACGTACGTACGTACGT\n");
+        }
+
+        DNADataBase failing = new DNADataBase("mFile.bin", 64) {
+            public int insertAll(Iterable<SequenceRecord> records)
+                throws IOException {
+                throw new IOException("Disk full.");
+            }
+        };
+        Throwable thrown = loadInThread(new FastaLoader(failing), in
+            .toString());
+        assertEquals("Disk full.", thrown.getMessage());
+        assertFalse(pipelineRunning());
+    }
+
+
+    /**
+     * Load a string on another thread, failing the test if it doesn't
+     * finish in time
+     *
+     * @param l
+     *            loader
+     * @param text
+     *            file contents
+     * @return what the load threw, null if nothing
+     * @throws InterruptedException
+     */
+    private Throwable loadInThread(final FastaLoader l, final String text)
+        throws InterruptedException {
+        final Throwable[] thrown = new Throwable[1];
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    l.load(new ByteArrayInputStream(text.getBytes(
+                        StandardCharsets.US_ASCII)));
+                }
+                catch (Throwable e) {
+                    thrown[0] = e;
+                }
+            }
+        });
+        t.start();
+        t.join(30000);
+        assertFalse(t.isAlive()); // hung
+        return thrown[0];
+    }
+
+
+    /**
+     * Whether a loader thread is still alive
+     *
+     * @return true if one is
+     */
+    private static boolean pipelineRunning() {
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().startsWith("fasta-") && t.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Test the load command.
+     *
+     * @throws IOException
+     */
+    public void testLoadCommand() throws IOException {
+        String cmds = "load nosuchfile.fa\nprint\n";
+        new CommandParser(new ByteArrayInputStream(cmds.getBytes(
+            StandardCharsets.US_ASCII)), dbase).parse();
+        assertEquals("File nosuchfile.fa not found\nSequence IDs:\n"
+            + "Free Block List: none\n", systemOut().getHistory());
+    }
+
+
+    /**
+     * Load a string
+     *
+     * @param text
+     *            file contents
+     * @return number inserted
+     * @throws IOException
+     */
+    private int load(String text) throws IOException {
+        return loader.load(new ByteArrayInputStream(text.getBytes(
+            StandardCharsets.US_ASCII)));
+    }
+}
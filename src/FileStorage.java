@@ -0,0 +1,122 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Storage on a random access file. Every read and write is one positional
+ * bulk transfer on the file's channel, which leaves the file pointer alone,
+ * so any number of threads can read at the same time.
+ * 
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class FileStorage implements StorageInterface {
+    private RandomAccessFile file;
+    private FileChannel channel;
+
+
+    /**
+     * Open (or create) the file
+     * 
+     * @param fileName
+     *            name of the file
+     * @throws IOException
+     *             bad input for file name
+     */
+    public FileStorage(String fileName) throws IOException {
+        this.file = new RandomAccessFile(fileName, "rw");
+        this.channel = file.getChannel();
+    }
+
+
+    /**
+     * Read len bytes at pos into b
+     * 
+     * @param pos
+     *            position in file
+     * @param b
+     *            destination
+     * @param off
+     *            offset in b
+     * @param len
+     *            number of bytes
+     * @throws IOException
+     *             read past the end
+     */
+    public void read(long pos, byte[] b, int off, int len)
+        throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(b, off, len);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, pos + buf.position() - off) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+
+    /**
+     * Write len bytes from b at pos
+     * 
+     * @param pos
+     *            position in file
+     * @param b
+     *            source
+     * @param off
+     *            offset in b
+     * @param len
+     *            number of bytes
+     * @throws IOException
+     */
+    public void write(long pos, byte[] b, int off, int len)
+        throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(b, off, len);
+        while (buf.hasRemaining()) {
+            channel.write(buf, pos + buf.position() - off);
+        }
+    }
+
+
+    /**
+     * Length of the file
+     * 
+     * @return length in bytes
+     * @throws IOException
+     */
+    public long length() throws IOException {
+        return file.length();
+    }
+
+
+    /**
+     * Grow or truncate the file
+     * 
+     * @param len
+     *            new length in bytes
+     * @throws IOException
+     */
+    public void setLength(long len) throws IOException {
+        file.setLength(len);
+    }
+
+
+    /**
+     * Force written data to disk
+     * 
+     * @throws IOException
+     */
+    public void force() throws IOException {
+        channel.force(true);
+    }
+
+
+    /**
+     * Close the file
+     * 
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        file.close();
+    }
+}
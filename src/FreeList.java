@@ -0,0 +1,589 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Free block list for the memory manager.
+ *
+ * Blocks are kept in a treap ordered by offset, each node also holding the
+ * largest block in its subtree. That finds the first (or next) block big
+ * enough for a request, and the neighbours to merge with on release, in
+ * O(log n). For best fit the blocks are also kept in a tree ordered by
+ * size. Block positions and lengths are in bytes.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class FreeList implements Iterable<MemHandle> {
+
+    /**
+     * Fit policy used by allocate
+     */
+    public enum Fit {
+        /**
+         * Lowest offset block that fits
+         */
+        FIRST,
+        /**
+         * Smallest block that fits
+         */
+        BEST,
+        /**
+         * First block that fits after the last allocation, wrapping around
+         */
+        NEXT
+    }
+
+    private Node root;
+    private Fit fit;
+    private TreeSet<Long> bySize; // (length << 32) | position, best fit only
+    private int rover; // next fit starts here
+    private long freeBytes;
+    private Random prio;
+
+    // results of split
+    private Node splitLeft;
+    private Node splitRight;
+
+
+    /**
+     * Create an empty first fit free list
+     */
+    public FreeList() {
+        this(Fit.FIRST);
+    }
+
+
+    /**
+     * Create an empty free list
+     *
+     * @param f
+     *            fit policy
+     */
+    public FreeList(Fit f) {
+        this.fit = f;
+        this.bySize = f == Fit.BEST ? new TreeSet<Long>() : null;
+        this.prio = new Random(42);
+        this.clear();
+    }
+
+
+    /**
+     * Get the fit policy
+     *
+     * @return fit policy
+     */
+    public Fit getFit() {
+        return fit;
+    }
+
+
+    /**
+     * Number of free blocks
+     *
+     * @return size
+     */
+    public int size() {
+        return count(root);
+    }
+
+
+    /**
+     * Check for no free blocks
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+
+    /**
+     * Total free bytes
+     *
+     * @return bytes
+     */
+    public long getFreeBytes() {
+        return freeBytes;
+    }
+
+
+    /**
+     * Size of the largest free block
+     *
+     * @return bytes, 0 if empty
+     */
+    public int getLargest() {
+        return root == null ? 0 : root.max;
+    }
+
+
+    /**
+     * Remove every block
+     */
+    public void clear() {
+        root = null;
+        rover = 0;
+        freeBytes = 0;
+        if (bySize != null) {
+            bySize.clear();
+        }
+    }
+
+
+    /**
+     * Return the i-th block in offset order
+     *
+     * @param i
+     *            index
+     * @return copy of the block
+     */
+    public MemHandle get(int i) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + i);
+        }
+
+        Node t = root;
+        while (true) {
+            int left = count(t.left);
+            if (i < left) {
+                t = t.left;
+            }
+            else if (i == left) {
+                return new MemHandle(t.pos, t.len);
+            }
+            else {
+                i -= left + 1;
+                t = t.right;
+            }
+        }
+    }
+
+
+    /**
+     * Add a block as is, without merging it with its neighbours
+     *
+     * @param h
+     *            block to add
+     */
+    public void add(MemHandle h) {
+        insert(h.getPosition(), h.getLength());
+    }
+
+
+    /**
+     * Free a block, merging it with adjacent free blocks
+     *
+     * @param pos
+     *            block position
+     * @param len
+     *            block size in bytes
+     */
+    public void release(int pos, int len) {
+        insert(pos, len);
+        merge(pos);
+    }
+
+
+    /**
+     * Merge the i-th block with its neighbours if they are adjacent
+     *
+     * @param i
+     *            index in offset order
+     * @return true if anything was merged
+     */
+    public boolean update(int i) {
+        if (i < 0 || i >= size()) {
+            return false;
+        }
+        return merge(get(i).getPosition());
+    }
+
+
+    /**
+     * Take len bytes from a free block chosen by the fit policy. The front of
+     * the block is used and the rest stays free. Zero bytes take nothing
+     * from the list, the caller puts the empty record at the end.
+     *
+     * @param len
+     *            bytes needed
+     * @return the allocated block, null if no block is big enough or len
+     *         is 0
+     */
+    public MemHandle allocate(int len) {
+        if (len < 0) {
+            throw new IllegalArgumentException("Negative allocation.");
+        }
+        if (len == 0 || getLargest() < len) {
+            return null;
+        }
+
+        Node block;
+        if (fit == Fit.BEST) {
+            Long key = bySize.ceiling((long)len << 32);
+            block = find((int)(key & 0xffffffffL));
+        }
+        else if (fit == Fit.NEXT) {
+            block = firstFit(root, len, rover);
+            if (block == null) { // wrap around
+                block = firstFit(root, len, 0);
+            }
+        }
+        else {
+            block = firstFit(root, len, 0);
+        }
+
+        rover = block.pos + len;
+        return take(block, len);
+    }
+
+
+    /**
+     * Take len bytes from the lowest free block that holds them, as long as
+     * they end at or before limit. Used to move a record further down.
+     *
+     * @param len
+     *            bytes needed
+     * @param limit
+     *            position the allocated bytes may not pass
+     * @return the allocated block, null if there is no such block
+     */
+    public MemHandle allocateBelow(int len, int limit) {
+        Node block = firstFit(root, len, 0);
+        if (block == null || block.pos + len > limit) {
+            return null;
+        }
+        return take(block, len);
+    }
+
+
+    /**
+     * Remove the block with the highest offset
+     *
+     * @return the removed block, null if empty
+     */
+    public MemHandle removeLast() {
+        if (isEmpty()) {
+            return null;
+        }
+
+        MemHandle last = get(size() - 1);
+        remove(last.getPosition());
+        return last;
+    }
+
+
+    /**
+     * Iterate over copies of the blocks in offset order
+     *
+     * @return iterator
+     */
+    public Iterator<MemHandle> iterator() {
+        return new Iterator<MemHandle>() {
+            private int next = 0;
+            private int end = size();
+
+
+            public boolean hasNext() {
+                return next < end;
+            }
+
+
+            public MemHandle next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+
+    /**
+     * Use the front of a free block, the rest stays free
+     *
+     * @param block
+     *            free block
+     * @param len
+     *            bytes taken
+     * @return the taken bytes
+     */
+    private MemHandle take(Node block, int len) {
+        int pos = block.pos;
+        int rest = block.len - len;
+        remove(pos);
+        if (rest > 0) {
+            insert(pos + len, rest);
+        }
+        return new MemHandle(pos, len);
+    }
+
+
+    /**
+     * Merge the block at pos with the blocks right before and after it
+     *
+     * @param pos
+     *            position of a free block
+     * @return true if anything was merged
+     */
+    private boolean merge(int pos) {
+        Node curr = find(pos);
+        int start = curr.pos;
+        int len = curr.len;
+        boolean merged = false;
+
+        Node prev = floor(start - 1);
+        if (prev != null && prev.pos + prev.len == start) {
+            start = prev.pos;
+            len += prev.len;
+            remove(prev.pos);
+            remove(pos);
+            merged = true;
+        }
+
+        Node next = find(pos + curr.len);
+        if (next != null) {
+            len += next.len;
+            remove(next.pos);
+            if (!merged) {
+                remove(pos);
+            }
+            merged = true;
+        }
+
+        if (merged) {
+            insert(start, len);
+        }
+        return merged;
+    }
+
+
+    /**
+     * Lowest offset block at or after minPos that holds len bytes
+     *
+     * @param t
+     *            subtree
+     * @param len
+     *            bytes needed
+     * @param minPos
+     *            lowest position to consider
+     * @return block, null if none
+     */
+    private Node firstFit(Node t, int len, int minPos) {
+        if (t == null || t.max < len) {
+            return null;
+        }
+
+        if (t.pos >= minPos) {
+            Node left = firstFit(t.left, len, minPos);
+            if (left != null) {
+                return left;
+            }
+            if (t.len >= len) {
+                return t;
+            }
+        }
+
+        return firstFit(t.right, len, minPos);
+    }
+
+
+    /**
+     * Block at exactly pos
+     *
+     * @param pos
+     *            position
+     * @return block, null if none
+     */
+    private Node find(int pos) {
+        Node t = root;
+        while (t != null && t.pos != pos) {
+            t = pos < t.pos ? t.left : t.right;
+        }
+        return t;
+    }
+
+
+    /**
+     * Block with the greatest position at or below pos
+     *
+     * @param pos
+     *            position
+     * @return block, null if none
+     */
+    private Node floor(int pos) {
+        Node t = root;
+        Node best = null;
+        while (t != null) {
+            if (t.pos <= pos) {
+                best = t;
+                t = t.right;
+            }
+            else {
+                t = t.left;
+            }
+        }
+        return best;
+    }
+
+
+    /**
+     * Insert a block into the treap (and the size tree)
+     *
+     * @param pos
+     *            position
+     * @param len
+     *            length
+     */
+    private void insert(int pos, int len) {
+        split(root, pos);
+        Node left = splitLeft;
+        Node right = splitRight;
+        root = join(join(left, new Node(pos, len, prio.nextInt())), right);
+
+        freeBytes += len;
+        if (bySize != null) {
+            bySize.add(((long)len << 32) | pos);
+        }
+    }
+
+
+    /**
+     * Remove the block at pos from the treap (and the size tree)
+     *
+     * @param pos
+     *            position
+     */
+    private void remove(int pos) {
+        split(root, pos);
+        Node left = splitLeft;
+        split(splitRight, pos + 1);
+        Node block = splitLeft;
+        root = join(left, splitRight);
+
+        freeBytes -= block.len;
+        if (bySize != null) {
+            bySize.remove(((long)block.len << 32) | pos);
+        }
+    }
+
+
+    /**
+     * Split a treap into blocks below pos (splitLeft) and the rest
+     * (splitRight)
+     *
+     * @param t
+     *            treap
+     * @param pos
+     *            position
+     */
+    private void split(Node t, int pos) {
+        if (t == null) {
+            splitLeft = null;
+            splitRight = null;
+        }
+        else if (t.pos < pos) {
+            split(t.right, pos);
+            t.right = splitLeft;
+            t.fix();
+            splitLeft = t;
+        }
+        else {
+            split(t.left, pos);
+            t.left = splitRight;
+            t.fix();
+            splitRight = t;
+        }
+    }
+
+
+    /**
+     * Join two treaps, every position in a below every position in b
+     *
+     * @param a
+     *            lower treap
+     * @param b
+     *            upper treap
+     * @return joined treap
+     */
+    private Node join(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+
+        if (a.prio > b.prio) {
+            a.right = join(a.right, b);
+            a.fix();
+            return a;
+        }
+
+        b.left = join(a, b.left);
+        b.fix();
+        return b;
+    }
+
+
+    /**
+     * Number of blocks in a subtree
+     *
+     * @param t
+     *            subtree
+     * @return count
+     */
+    private static int count(Node t) {
+        return t == null ? 0 : t.count;
+    }
+
+
+    /**
+     * A free block in the treap
+     */
+    private static class Node {
+        private int pos;
+        private int len;
+        private int prio;
+        private int max; // largest block in this subtree
+        private int count; // blocks in this subtree
+        private Node left;
+        private Node right;
+
+
+        /**
+         * New leaf
+         *
+         * @param p
+         *            position
+         * @param l
+         *            length
+         * @param pr
+         *            heap priority
+         */
+        Node(int p, int l, int pr) {
+            pos = p;
+            len = l;
+            prio = pr;
+            fix();
+        }
+
+
+        /**
+         * Recompute max and count from the children
+         */
+        void fix() {
+            max = len;
+            count = 1;
+            if (left != null) {
+                max = Math.max(max, left.max);
+                count += left.count;
+            }
+            if (right != null) {
+                max = Math.max(max, right.max);
+                count += right.count;
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+import java.util.Random;
+import java.util.TreeMap;
+import student.TestCase;
+
+/**
+ * Testing the free list.
+ * 
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class FreeListTest extends TestCase {
+
+
+    /**
+     * Test release merges with both neighbours.
+     */
+    public void testRelease() {
+        FreeList list = new FreeList();
+        list.release(0, 2);
+        list.release(4, 2);
+        list.release(10, 1);
+        assertEquals(3, list.size());
+        assertEquals(5, list.getFreeBytes());
+
+        list.release(2, 2); // joins the first two
+        assertEquals(2, list.size());
+        assertEquals(0, list.get(0).getPosition());
+        assertEquals(6, list.get(0).getLength());
+        assertEquals(10, list.get(1).getPosition());
+
+        list.release(6, 4); // joins everything
+        assertEquals(1, list.size());
+        assertEquals(11, list.get(0).getLength());
+        assertEquals(11, list.getLargest());
+    }
+
+
+    /**
+     * Test the three fit policies pick different blocks.
+     */
+    public void testFit() {
+        FreeList first = fitList(FreeList.Fit.FIRST);
+        assertEquals(0, first.allocate(3).getPosition());
+        assertEquals(10, first.allocate(2).getPosition());
+        assertEquals(3, first.allocate(1).getPosition());
+
+        FreeList best = fitList(FreeList.Fit.BEST);
+        assertEquals(0, best.allocate(3).getPosition());
+        assertEquals(20, best.allocate(2).getPosition());
+        assertEquals(3, best.allocate(1).getPosition());
+
+        FreeList next = fitList(FreeList.Fit.NEXT);
+        assertEquals(0, next.allocate(3).getPosition());
+        assertEquals(10, next.allocate(2).getPosition());
+        assertEquals(12, next.allocate(1).getPosition());
+
+        assertNull(first.allocate(9));
+        assertEquals(FreeList.Fit.BEST, best.getFit());
+    }
+
+
+    /**
+     * Test a zero byte request takes nothing, empty list or not, and a
+     * negative one is refused.
+     */
+    public void testAllocateZero() {
+        FreeList list = new FreeList();
+        assertNull(list.allocate(0));
+
+        list.release(4, 8);
+        assertNull(list.allocate(0));
+        assertEquals(1, list.size());
+        assertEquals(8, list.get(0).getLength());
+
+        Exception thrown = null;
+        try {
+            list.allocate(-1);
+        }
+        catch (IllegalArgumentException e) {
+            thrown = e;
+        }
+        assertNotNull(thrown);
+    }
+
+
+    /**
+     * Test next fit wraps around to the start.
+     */
+    public void testNextFitWraps() {
+        FreeList list = new FreeList(FreeList.Fit.NEXT);
+        list.release(0, 4);
+        list.release(10, 4);
+
+        assertEquals(0, list.allocate(4).getPosition());
+        assertEquals(10, list.allocate(4).getPosition());
+        assertTrue(list.isEmpty());
+
+        list.release(0, 4);
+        assertEquals(0, list.allocate(2).getPosition());
+    }
+
+
+    /**
+     * Test random allocations and releases against a simple map model.
+     */
+    public void testAgainstModel() {
+        Random rand = new Random(7);
+
+        for (FreeList.Fit fit : FreeList.Fit.values()) {
+            FreeList list = new FreeList(fit);
+            TreeMap<Integer, Integer> model = new TreeMap<>();
+            TreeMap<Integer, Integer> used = new TreeMap<>();
+            int end = 0;
+
+            for (int i = 0; i < 3000; i++) {
+                if (used.isEmpty() || rand.nextInt(3) > 0) {
+                    int len = 1 + rand.nextInt(8);
+                    MemHandle h = list.allocate(len);
+                    Integer expect = expected(model, fit, len);
+                    int pos;
+
+                    if (h == null) {
+                        assertNull(expect);
+                        pos = end;
+                        end += len;
+                    }
+                    else {
+                        pos = h.getPosition();
+                        if (fit != FreeList.Fit.NEXT) {
+                            assertEquals(expect, Integer.valueOf(pos));
+                        }
+
+                        int block = model.floorKey(pos);
+                        int blockLen = model.remove(block);
+                        assertEquals(block, pos);
+                        if (len < blockLen) {
+                            model.put(pos + len, blockLen - len);
+                        }
+                    }
+                    used.put(pos, len);
+                }
+                else {
+                    Integer pos = used.ceilingKey(rand.nextInt(end + 1));
+                    if (pos == null) {
+                        pos = used.firstKey();
+                    }
+                    int len = used.remove(pos);
+                    list.release(pos, len);
+
+                    // model merge
+                    model.put(pos, len);
+                    Integer prev = model.lowerKey(pos);
+                    if (prev != null && prev + model.get(prev) == pos) {
+                        model.put(prev, model.get(prev) + model.remove(pos));
+                        pos = prev;
+                    }
+                    Integer next = model.higherKey(pos);
+                    if (next != null && pos + model.get(pos) == next) {
+                        model.put(pos, model.get(pos) + model.remove(next));
+                    }
+                }
+
+                assertEquals(model.size(), list.size());
+            }
+
+            int i = 0;
+            for (MemHandle h : list) {
+                assertEquals(model.get(h.getPosition()), Integer.valueOf(h
+                    .getLength()));
+                i++;
+            }
+            assertEquals(model.size(), i);
+        }
+    }
+
+
+    /**
+     * Free list holding blocks (0, 4), (10, 8) and (20, 2)
+     * 
+     * @param fit
+     *            fit policy
+     * @return list
+     */
+    private FreeList fitList(FreeList.Fit fit) {
+        FreeList list = new FreeList(fit);
+        list.release(0, 4);
+        list.release(10, 8);
+        list.release(20, 2);
+        return list;
+    }
+
+
+    /**
+     * Block the model expects first or best fit to pick
+     * 
+     * @param model
+     *            free blocks
+     * @param fit
+     *            fit policy
+     * @param len
+     *            bytes needed
+     * @return position, null if nothing fits
+     */
+    private Integer expected(TreeMap<Integer, Integer> model,
+        FreeList.Fit fit, int len) {
+        Integer pick = null;
+        for (Integer pos : model.keySet()) {
+            int size = model.get(pos);
+            if (size >= len && (pick == null || (fit == FreeList.Fit.BEST
+                && size < model.get(pick)))) {
+                pick = pos;
+                if (fit != FreeList.Fit.BEST) {
+                    break;
+                }
+            }
+        }
+        return pick;
+    }
+}
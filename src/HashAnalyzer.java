@@ -0,0 +1,215 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Reports how evenly hash functions spread a set of sequence IDs over the
+ * 32 slot buckets of a table, so a deployment can pick one.
+ *
+ * For each hash function it prints how many buckets hold each number of
+ * IDs, the chi-square statistic of the bucket loads against an even spread
+ * (with its degrees of freedom and how many standard deviations it lies
+ * from what a random spread gives), the fullest bucket, and how many IDs a
+ * fixed table would refuse as "Bucket full".
+ *
+ * Usage: java HashAnalyzer {id-file} {table-size} [{hash} ...]
+ *
+ * The ID file holds one ID per line; FASTA and FASTQ header lines work too,
+ * their first word is taken. Hashes are named as in HashStrategy.forName,
+ * all of them by default.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class HashAnalyzer {
+    private static final int BUCKET_SIZE = 32;
+
+
+    /**
+     * Default constructor
+     */
+    public HashAnalyzer() {
+        // nothing to do
+    }
+
+
+    /**
+     * Print a report for each hash function
+     *
+     * @param args
+     *            ID file, table size, hash names
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println(
+                "Usage: java HashAnalyzer {id-file} {table-size} [{hash} ...]");
+            return;
+        }
+
+        String[] ids = readIDs(args[0]);
+        int size = Integer.parseInt(args[1]);
+
+        if (args.length == 2) {
+            System.out.print(report(ids, size, HashStrategy.SFOLD));
+            System.out.print(report(ids, size, HashStrategy.MURMUR));
+        }
+        for (int i = 2; i < args.length; i++) {
+            HashStrategy h = HashStrategy.forName(args[i]);
+            if (h == null) {
+                System.out.println("Unknown hash " + args[i]);
+            }
+            else {
+                System.out.print(report(ids, size, h));
+            }
+        }
+    }
+
+
+    /**
+     * Read the distinct IDs of a file
+     *
+     * @param fileName
+     *            ID, FASTA or FASTQ file
+     * @return IDs in file order
+     * @throws IOException
+     */
+    public static String[] readIDs(String fileName) throws IOException {
+        Set<String> ids = new LinkedHashSet<>();
+        BufferedReader in = new BufferedReader(new FileReader(fileName));
+
+        try {
+            boolean fasta = false;
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.startsWith(">") || line.startsWith("@")) {
+                    fasta = true;
+                    line = line.substring(1).trim();
+                }
+                else if (fasta || line.isEmpty()) {
+                    continue; // sequence, quality or blank line
+                }
+
+                String[] words = line.split("\\s+", 2);
+                if (!words[0].isEmpty()) {
+                    ids.add(words[0]);
+                }
+            }
+        }
+        finally {
+            in.close();
+        }
+        return ids.toArray(new String[ids.size()]);
+    }
+
+
+    /**
+     * Number of IDs in each bucket of a table of the given size
+     *
+     * @param ids
+     *            IDs
+     * @param size
+     *            table size, a multiple of 32
+     * @param h
+     *            hash function
+     * @return load of each bucket
+     */
+    public static int[] loads(String[] ids, int size, HashStrategy h) {
+        int[] loads = new int[size / BUCKET_SIZE];
+        for (String id : ids) {
+            loads[(int)(h.hash(id) % size) / BUCKET_SIZE]++;
+        }
+        return loads;
+    }
+
+
+    /**
+     * Chi-square statistic of bucket loads against an even spread
+     *
+     * @param loads
+     *            load of each bucket
+     * @return statistic, about the number of buckets less one for a random
+     *         spread
+     */
+    public static double chiSquare(int[] loads) {
+        long total = 0;
+        for (int l : loads) {
+            total += l;
+        }
+
+        double expected = (double)total / loads.length;
+        if (expected == 0) {
+            return 0;
+        }
+
+        double chi = 0;
+        for (int l : loads) {
+            chi += (l - expected) * (l - expected) / expected;
+        }
+        return chi;
+    }
+
+
+    /**
+     * Number of IDs that don't fit their 32 slot bucket
+     *
+     * @param loads
+     *            load of each bucket
+     * @return IDs a fixed table refuses
+     */
+    public static int refused(int[] loads) {
+        int n = 0;
+        for (int l : loads) {
+            n += Math.max(0, l - BUCKET_SIZE);
+        }
+        return n;
+    }
+
+
+    /**
+     * Report on one hash function
+     *
+     * @param ids
+     *            IDs
+     * @param size
+     *            table size, a multiple of 32
+     * @param h
+     *            hash function
+     * @return report text
+     */
+    public static String report(String[] ids, int size, HashStrategy h) {
+        int[] loads = loads(ids, size, h);
+        int df = loads.length - 1;
+        double chi = chiSquare(loads);
+
+        int max = 0;
+        for (int l : loads) {
+            max = Math.max(max, l);
+        }
+
+        // buckets by load, everything over a full bucket together
+        int[] hist = new int[BUCKET_SIZE + 2];
+        for (int l : loads) {
+            hist[Math.min(l, BUCKET_SIZE + 1)]++;
+        }
+
+        StringBuilder out = new StringBuilder();
+        out.append(h + ": " + ids.length + " IDs, " + loads.length
+            + " buckets\n");
+        out.append(String.format("chi-square %.1f, df %d, z %.1f\n", chi, df,
+            df == 0 ? 0 : (chi - df) / Math.sqrt(2.0 * df)));
+        out.append("fullest bucket " + max + ", refused " + refused(loads)
+            + "\n");
+        out.append("load  buckets\n");
+        for (int l = 0; l < hist.length; l++) {
+            if (hist[l] > 0) {
+                String label = l > BUCKET_SIZE ? l + "+" : "" + l;
+                out.append(String.format("%4s  %d\n", label, hist[l]));
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,88 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import student.TestCase;
+
+/**
+ * Testing the hash functions and the distribution report.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class HashAnalyzerTest extends TestCase {
+
+    /**
+     * Test the statistics on loads worked out by hand.
+     */
+    public void testStatistics() {
+        assertEquals(0.0, HashAnalyzer.chiSquare(new int[] { 3, 3, 3 }),
+            1e-9);
+        // expected 2 each: (4-2)^2/2 + (0-2)^2/2 = 4
+        assertEquals(4.0, HashAnalyzer.chiSquare(new int[] { 4, 0 }), 1e-9);
+        assertEquals(0.0, HashAnalyzer.chiSquare(new int[] { 0, 0 }), 1e-9);
+        assertEquals(5, HashAnalyzer.refused(new int[] { 35, 32, 34 }));
+    }
+
+
+    /**
+     * Test sfold still gives the slots it always did, and murmur spreads
+     * clustered IDs far more evenly.
+     */
+    public void testStrategies() {
+        assertEquals(6, BucketHash.sfold("AAAAA", 64));
+        assertEquals(62, BucketHash.sfold("TCATATCTATCCAAAAAAAA", 64));
+        assertSame(HashStrategy.MURMUR, HashStrategy.forName("murmur"));
+        assertSame(HashStrategy.SFOLD, HashStrategy.forName("sfold"));
+        assertNull(HashStrategy.forName("md5"));
+
+        // numbered IDs sharing a long prefix, as from one sequencing run
+        String[] ids = new String[4096];
+        for (int i = 0; i < ids.length; i++) {
+            StringBuilder id = new StringBuilder("ACGTACGTAC");
+            for (int v = i, d = 0; d < 6; d++, v /= 4) {
+                id.append("ACGT".charAt(v % 4));
+            }
+            ids[i] = id.toString();
+        }
+
+        for (String id : ids) {
+            assertTrue(HashStrategy.MURMUR.hash(id) >= 0);
+            assertEquals(HashStrategy.MURMUR.hash(id), HashStrategy.MURMUR
+                .hash(new String(id)));
+        }
+        int[] sfold = HashAnalyzer.loads(ids, 8192, HashStrategy.SFOLD);
+        int[] murmur = HashAnalyzer.loads(ids, 8192, HashStrategy.MURMUR);
+        assertTrue(HashAnalyzer.chiSquare(murmur) < 2 * murmur.length);
+        assertTrue(HashAnalyzer.chiSquare(sfold) > HashAnalyzer.chiSquare(
+            murmur));
+        assertEquals(0, HashAnalyzer.refused(murmur));
+
+        // tables place by it
+        BucketHash table = new BucketHash(64, null, HashStrategy.MURMUR);
+        MemHandle h = new MemHandle(0, 4);
+        int slot = table.insert("ACGT", h, h);
+        assertEquals(HashStrategy.MURMUR.hash("ACGT") % 64, slot);
+    }
+
+
+    /**
+     * Test the report from a FASTA file.
+     *
+     * @throws IOException
+     */
+    public void testReport() throws IOException {
+        FileWriter out = new FileWriter("ids.fasta");
+        out.write(">AAAA first\nACGT\n>CCCC\nGG\n\n>AAAA again\nTT\n");
+        out.close();
+
+        String[] ids = HashAnalyzer.readIDs("ids.fasta");
+        assertEquals(2, ids.length);
+        assertEquals("CCCC", ids[1]);
+
+        systemOut().clearHistory();
+        HashAnalyzer.main(new String[] { "ids.fasta", "64", "sfold" });
+        String report = systemOut().getHistory();
+        assertTrue(report.startsWith("sfold: 2 IDs, 2 buckets\n"));
+        assertTrue(report.contains("refused 0\n"));
+        new java.io.File("ids.fasta").delete();
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * A hash function for sequence IDs. A table takes the hash modulo its size
+ * for the home slot, so the hash has to be non-negative and spread IDs
+ * evenly over any size, not just powers of two.
+ *
+ * SFOLD is the original string folding hash every table used so far, kept
+ * so existing tables and snapshots place IDs the same way. MURMUR mixes the
+ * 2-bit codes of the ID and spreads clustered IDs far better. HashAnalyzer
+ * compares them on a given set of IDs.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public interface HashStrategy {
+    /**
+     * The original sfold
+     */
+    public static final HashStrategy SFOLD = new SfoldHash();
+
+    /**
+     * MurmurHash3 style mixing over the 2-bit encoded ID
+     */
+    public static final HashStrategy MURMUR = new MurmurHash();
+
+
+    /**
+     * Hash a sequence ID
+     *
+     * @param seqID
+     *            sequence ID
+     * @return non-negative hash
+     */
+    public long hash(String seqID);
+
+
+    /**
+     * Look a strategy up by name
+     *
+     * @param name
+     *            "sfold" or "murmur"
+     * @return the strategy, null if there is none by that name
+     */
+    public static HashStrategy forName(String name) {
+        if (name.equals(SFOLD.toString())) {
+            return SFOLD;
+        }
+        if (name.equals(MURMUR.toString())) {
+            return MURMUR;
+        }
+        return null;
+    }
+}
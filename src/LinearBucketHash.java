@@ -0,0 +1,858 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A bucket hash that grows by linear hashing, one 32 slot bucket at a time.
+ *
+ * Slots are addressed like BucketHash: the home slot is the ID's hash
+ * (sfold unless another HashStrategy is given) modulo the table size and
+ * probing wraps within its bucket. With n buckets at the start of a round,
+ * buckets below the split pointer have already been split and use the hash
+ * modulo twice the size, so bucket b splits into b and b + n and only the
+ * entries of b move. The round ends when every bucket has been
+ * split and the next one starts with twice as many buckets. Before any split
+ * the table places IDs exactly like a BucketHash of the same size.
+ *
+ * A bucket is split whenever the table passes MAX_LOAD, at most once per
+ * insert, so an insert never waits on more than one bucket's worth of
+ * moves. A bucket whose 32 slots are all taken spills into a chain of
+ * overflow pages, as in BucketHash, instead of splitting the table through
+ * the round: a hash that piles many IDs on one bucket makes that bucket's
+ * chain longer rather than doubling every other bucket. Splitting a bucket
+ * spreads its chain out again.
+ *
+ * Buckets and overflow pages are 32 slot pages, and bucket b lives on page
+ * primary[b], so a slot is page * 32 + offset and keeps its number while the
+ * table grows. Pages freed from a chain are reused first.
+ *
+ * Each slot keeps its ID's hash, so splitting and purging tombstones never
+ * read the memory file.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class LinearBucketHash
+    implements BucketHashInterface<String, MemHandle, MemHandle> {
+    /**
+     * Slots per bucket
+     */
+    public static final int BUCKET_SIZE = 32;
+
+    /**
+     * Share of the bucket slots in use past which a bucket is split
+     */
+    public static final double MAX_LOAD = 0.75;
+
+    private static final int MAX_PAGES = 1 << 25; // slots must fit an int
+    private static final TableEntry TOMB = new TableEntry(null, null);
+    private static final int HASH_MAGIC = 0x48534853; // "HSHS"
+
+    private ArrayList<TableEntry[]> pages;
+    private ArrayList<long[]> hashes; // hash of each slot's ID
+    private int[] primary; // page of each bucket
+    private int[] pageNext; // next page in a bucket's chain, -1 at the end
+    private int[] free; // pages dropped from a chain
+    private int nFree;
+    private int buckets; // buckets in use
+    private int overflowPages; // pages in some chain
+    private int initial; // buckets in round 0
+    private int level; // rounds completed
+    private int next; // next bucket to split
+    private int size;
+    private long splits;
+    private int tombs;
+    private MemManager memManager;
+    private HashStrategy hash;
+
+
+    /**
+     * Creates a hashtable that starts at the size provided
+     *
+     * @param s
+     *            starting size, a multiple of 32
+     * @param mem
+     *            memory manager holding the sequence IDs
+     */
+    public LinearBucketHash(int s, MemManager mem) {
+        this(s, mem, HashStrategy.SFOLD);
+    }
+
+
+    /**
+     * Creates a hashtable that starts at the size provided and places IDs
+     * with the given hash function
+     *
+     * @param s
+     *            starting size, a multiple of 32
+     * @param mem
+     *            memory manager holding the sequence IDs
+     * @param h
+     *            hash function
+     */
+    public LinearBucketHash(int s, MemManager mem, HashStrategy h) {
+        this.hash = h;
+        this.initial = Math.max(1, s / BUCKET_SIZE);
+        this.memManager = mem;
+        this.clear();
+    }
+
+
+    /**
+     * Inserts a new entry, splitting one bucket first if the table is past
+     * MAX_LOAD. Assumes the ID isn't in the table already.
+     *
+     * @param seqID
+     *            the sequence ID
+     * @param key
+     *            ID handle
+     * @param value
+     *            sequence handle
+     * @return the slot, -1 if the table has no page left for it
+     */
+    public int insert(String seqID, MemHandle key, MemHandle value) {
+        if (size + 1 > MAX_LOAD * buckets * BUCKET_SIZE) {
+            split();
+        }
+
+        TableEntry temp = new TableEntry(key, value);
+        temp.setFingerprint(BucketHash.fingerprint(seqID));
+
+        int slot = place(hash.hash(seqID), temp);
+        if (slot != -1) {
+            size++;
+        }
+        return slot;
+    }
+
+
+    /**
+     * Find the slot holding a sequence ID. Probes the ID's bucket like
+     * BucketHash, stopping at the first slot that was never used, and
+     * carries on down its overflow chain once the whole bucket is in use.
+     *
+     * @param seqID
+     *            the sequence ID to look for
+     * @return the slot, or -1 if the ID is not in the table
+     * @throws IOException
+     */
+    public int find(String seqID) throws IOException {
+        int fp = BucketHash.fingerprint(seqID);
+        int i = home(hash.hash(seqID));
+        int page = primary[i / BUCKET_SIZE];
+        int off = i % BUCKET_SIZE;
+
+        byte[] key = null;
+
+        TableEntry[] bucket = pages.get(page);
+        for (int j = 0; j < BUCKET_SIZE; j++) {
+            TableEntry temp = bucket[off];
+            if (temp == null) {
+                return -1;
+            }
+            if (candidate(temp, seqID.length(), fp)) {
+                // encode once, stored IDs are compared in their 2 bit form
+                if (key == null) {
+                    key = NucleotideCodec.encode(seqID);
+                }
+                if (memManager.matches(temp.getID(), key)) {
+                    return page * BUCKET_SIZE + off;
+                }
+            }
+            off = (off + 1) % BUCKET_SIZE;
+        }
+
+        for (int p = pageNext[page]; p != -1; p = pageNext[p]) {
+            TableEntry[] over = pages.get(p);
+            for (off = 0; off < BUCKET_SIZE; off++) {
+                TableEntry temp = over[off];
+                if (temp == null) {
+                    return -1;
+                }
+                if (candidate(temp, seqID.length(), fp)) {
+                    if (key == null) {
+                        key = NucleotideCodec.encode(seqID);
+                    }
+                    if (memManager.matches(temp.getID(), key)) {
+                        return p * BUCKET_SIZE + off;
+                    }
+                }
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Return the table entry at the slot
+     *
+     * @param i
+     *            the slot to peek
+     * @return the table entry, null if empty or a tombstone
+     */
+    public TableEntry get(int i) {
+        TableEntry temp = entry(i);
+        return temp == TOMB ? null : temp;
+    }
+
+
+    /**
+     * Insert tombstone
+     *
+     * @param slot
+     *            the slot to insert
+     */
+    public void insertTomb(int slot) {
+        pages.get(slot / BUCKET_SIZE)[slot % BUCKET_SIZE] = TOMB;
+        size--;
+        tombs++;
+    }
+
+
+    /**
+     * Rebuild every bucket holding tombstones, or with some in its chain,
+     * without them
+     *
+     * @return tombstones cleared
+     */
+    public int purge() {
+        int n = tombs;
+        for (int b = 0; b < buckets && tombs > 0; b++) {
+            if (hasTomb(b)) {
+                rebuild(b);
+            }
+        }
+        return n;
+    }
+
+
+    /**
+     * Get the number of tombstones in the table
+     *
+     * @return tombstones
+     */
+    public int getTombstones() {
+        return tombs;
+    }
+
+
+    /**
+     * Point a used slot at its records after they moved
+     *
+     * @param slot
+     *            the slot to update
+     * @param key
+     *            new ID handle
+     * @param value
+     *            new sequence handle
+     */
+    public void update(int slot, MemHandle key, MemHandle value) {
+        TableEntry temp = new TableEntry(key, value);
+        temp.setSlot(slot);
+        temp.setFingerprint(entry(slot).getFingerprint());
+        pages.get(slot / BUCKET_SIZE)[slot % BUCKET_SIZE] = temp;
+    }
+
+
+    /**
+     * Get the size
+     *
+     * @return size
+     */
+    public int getSize() {
+        return size;
+    }
+
+
+    /**
+     * Get the number of slots, which grows with the table, overflow slots
+     * included
+     *
+     * @return slots
+     */
+    public int getMaxSize() {
+        return pages.size() * BUCKET_SIZE;
+    }
+
+
+    /**
+     * Number of buckets, not counting overflow pages
+     *
+     * @return buckets
+     */
+    public int getBuckets() {
+        return buckets;
+    }
+
+
+    /**
+     * Number of overflow pages in use
+     *
+     * @return pages
+     */
+    public int getOverflowPages() {
+        return overflowPages;
+    }
+
+
+    /**
+     * Number of buckets split so far
+     *
+     * @return splits
+     */
+    public long getSplits() {
+        return splits;
+    }
+
+
+    /**
+     * Snapshot of every used slot in the BucketHash format, with the
+     * current number of slots as the size. After the end mark come the
+     * linear hashing state and the page of each bucket, the next page of
+     * each page's chain and the free pages, then the fingerprint and the
+     * hash of each used slot, so a restore doesn't read the IDs back.
+     *
+     * @return snapshot bytes
+     * @throws IOException
+     */
+    public byte[] snapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        BucketHash.writeHeader(out, hash, getMaxSize());
+        out.writeInt(size);
+        int[] fps = new int[size];
+        long[] used = new long[size];
+        int n = 0;
+
+        for (int i = 0; i < getMaxSize(); i++) {
+            TableEntry temp = entry(i);
+            if (temp == null) {
+                continue;
+            }
+
+            out.writeInt(i);
+            if (temp == TOMB) {
+                out.writeInt(0);
+                out.writeInt(-1);
+                out.writeInt(0);
+                out.writeInt(0);
+            }
+            else {
+                fps[n] = temp.getFingerprint();
+                used[n++] = hashes.get(i / BUCKET_SIZE)[i % BUCKET_SIZE];
+                out.writeInt(temp.getID().getPosition());
+                out.writeInt(temp.getID().getLength());
+                out.writeInt(temp.getSequence().getPosition());
+                out.writeInt(temp.getSequence().getLength());
+            }
+        }
+
+        out.writeInt(-1); // end
+        out.writeInt(initial);
+        out.writeInt(level);
+        out.writeInt(next);
+        out.writeInt(buckets);
+        for (int b = 0; b < buckets; b++) {
+            out.writeInt(primary[b]);
+        }
+        for (int p = 0; p < pages.size(); p++) {
+            out.writeInt(pageNext[p]);
+        }
+        out.writeInt(nFree);
+        for (int k = 0; k < nFree; k++) {
+            out.writeInt(free[k]);
+        }
+
+        BucketHash.writeFingerprints(out, fps, n);
+        out.writeInt(HASH_MAGIC);
+        out.writeInt(n);
+        for (int k = 0; k < n; k++) {
+            out.writeLong(used[k]);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * Restore the table from a snapshot, with its pages laid out as they
+     * were. A snapshot without the linear hashing state has bucket b on
+     * page b and no chains. Fingerprints and hashes are worked out again
+     * from the stored IDs only for a snapshot written without them. The
+     * table is left as it was if the snapshot is refused.
+     *
+     * @param snap
+     *            snapshot bytes
+     * @throws IOException
+     *             snapshot is from a table that started at another size
+     *             or used another hash strategy
+     */
+    public void restore(byte[] snap) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+            snap));
+
+        int max = BucketHash.readHeader(in, hash);
+        if (max % BUCKET_SIZE != 0 || max / BUCKET_SIZE < initial
+            || max / BUCKET_SIZE > MAX_PAGES) {
+            throw new IOException("Hash table size does not match.");
+        }
+
+        int count = max / BUCKET_SIZE;
+        ArrayList<TableEntry[]> newPages = new ArrayList<>(count);
+        ArrayList<long[]> newHashes = new ArrayList<>(count);
+        for (int p = 0; p < count; p++) {
+            newPages.add(new TableEntry[BUCKET_SIZE]);
+            newHashes.add(new long[BUCKET_SIZE]);
+        }
+        int newSize = in.readInt();
+        int newTombs = 0;
+        ArrayList<TableEntry> used = new ArrayList<>();
+
+        for (int i = in.readInt(); i != -1; i = in.readInt()) {
+            int idPos = in.readInt();
+            int idLen = in.readInt();
+            int seqPos = in.readInt();
+            int seqLen = in.readInt();
+            if (i < 0 || i >= max) {
+                throw new IOException("Hash table size does not match.");
+            }
+
+            TableEntry temp = TOMB;
+            if (idLen == -1) {
+                newTombs++;
+            }
+            else {
+                temp = new TableEntry(new MemHandle(idPos, idLen),
+                    new MemHandle(seqPos, seqLen));
+                temp.setSlot(i);
+                used.add(temp);
+            }
+            newPages.get(i / BUCKET_SIZE)[i % BUCKET_SIZE] = temp;
+        }
+
+        int newLevel = 0;
+        int newNext;
+        int newBuckets = count;
+        int[] newPrimary;
+        int[] newPageNext = new int[count];
+        Arrays.fill(newPageNext, -1);
+        int newFree = 0;
+        int[] freed = new int[4];
+
+        if (in.available() > 0) {
+            // round 0 decides every home slot after it
+            if (in.readInt() != initial) {
+                throw new IOException("Hash table size does not match.");
+            }
+            newLevel = in.readInt();
+            newNext = in.readInt();
+            newBuckets = in.readInt();
+            if (newLevel < 0 || newLevel > 30 || newNext < 0
+                || newBuckets > count
+                || newBuckets != ((long)initial << newLevel) + newNext) {
+                throw new IOException("Hash table size does not match.");
+            }
+
+            newPrimary = new int[newBuckets * 2];
+            for (int b = 0; b < newBuckets; b++) {
+                newPrimary[b] = page(in.readInt(), count);
+            }
+            for (int p = 0; p < count; p++) {
+                int after = in.readInt();
+                newPageNext[p] = after == -1 ? -1 : page(after, count);
+            }
+            newFree = in.readInt();
+            if (newFree < 0 || newFree > count - newBuckets) {
+                throw new IOException("Hash table size does not match.");
+            }
+            freed = new int[Math.max(newFree, 1) * 2];
+            for (int k = 0; k < newFree; k++) {
+                freed[k] = page(in.readInt(), count);
+            }
+        }
+        else { // bucket b on page b, as split in turn from the start
+            newPrimary = new int[count * 2];
+            for (int b = 0; b < count; b++) {
+                newPrimary[b] = b;
+            }
+            while ((long)initial << (newLevel + 1) <= count) {
+                newLevel++;
+            }
+            newNext = count - (initial << newLevel);
+        }
+
+        int[] fps = BucketHash.readFingerprints(in, used.size());
+        long[] stored = readHashes(in, used.size());
+        for (int k = 0; k < used.size(); k++) {
+            TableEntry temp = used.get(k);
+            int i = temp.getSlot();
+            long h = 0;
+            int fp = 0;
+            if (fps != null && stored != null) {
+                h = stored[k];
+                fp = fps[k];
+            }
+            else if (memManager != null) {
+                String id = NucleotideCodec.decode(memManager.getSequence(
+                    temp.getID()), temp.getID().getLength());
+                h = hash.hash(id);
+                fp = BucketHash.fingerprint(id);
+            }
+            temp.setFingerprint(fp);
+            newHashes.get(i / BUCKET_SIZE)[i % BUCKET_SIZE] = h;
+        }
+
+        pages = newPages;
+        hashes = newHashes;
+        primary = newPrimary;
+        pageNext = newPageNext;
+        free = freed;
+        nFree = newFree;
+        buckets = newBuckets;
+        overflowPages = count - newBuckets - newFree;
+        level = newLevel;
+        next = newNext;
+        size = newSize;
+        tombs = newTombs;
+        splits = 0;
+    }
+
+
+    /**
+     * Nothing to release for the in-memory table
+     */
+    public void close() {
+        // nothing to do
+    }
+
+
+    /**
+     * Read the hashes written after the fingerprints of a snapshot
+     *
+     * @param in
+     *            snapshot stream, just past the fingerprints
+     * @param n
+     *            number of used slots read
+     * @return hashes, null for a snapshot without them, whose IDs have to
+     *         be read
+     * @throws IOException
+     */
+    private static long[] readHashes(DataInputStream in, int n)
+        throws IOException {
+        if (in.available() < 8 || in.readInt() != HASH_MAGIC || in
+            .readInt() != n || in.available() < n * 8L) {
+            return null;
+        }
+
+        long[] h = new long[n];
+        for (int k = 0; k < n; k++) {
+            h[k] = in.readLong();
+        }
+        return h;
+    }
+
+
+    /**
+     * Check a page number read from a snapshot
+     *
+     * @param p
+     *            page number
+     * @param count
+     *            pages in the snapshot
+     * @return the page number
+     * @throws IOException
+     *             it is not one of the snapshot's pages
+     */
+    private static int page(int p, int count) throws IOException {
+        if (p < 0 || p >= count) {
+            throw new IOException("Hash table size does not match.");
+        }
+        return p;
+    }
+
+
+    /**
+     * Home slot of a hash for the current size, counting buckets rather
+     * than pages
+     *
+     * @param h
+     *            hash of the ID
+     * @return bucket * 32 + offset
+     */
+    private int home(long h) {
+        long slots = ((long)initial << level) * BUCKET_SIZE;
+        int home = (int)(h % slots);
+
+        // buckets below the split pointer are already on the next round
+        if (home / BUCKET_SIZE < next) {
+            home = (int)(h % (slots * 2));
+        }
+        return home;
+    }
+
+
+    /**
+     * Whether a slot may hold an ID, by its length and fingerprint, without
+     * reading the ID
+     *
+     * @param temp
+     *            entry, maybe a tombstone
+     * @param len
+     *            ID length
+     * @param fp
+     *            fingerprint of the ID
+     * @return true if the ID has to be read to tell
+     */
+    private static boolean candidate(TableEntry temp, int len, int fp) {
+        return temp != TOMB && temp.getID().getLength() == len && temp
+            .getFingerprint() == fp;
+    }
+
+
+    /**
+     * Put an entry in the first free slot of its bucket, or of the
+     * bucket's overflow chain once the bucket is full, adding a page to the
+     * chain if every page is in use
+     *
+     * @param h
+     *            hash of the ID
+     * @param temp
+     *            entry
+     * @return the slot, -1 if there's no page left
+     */
+    private int place(long h, TableEntry temp) {
+        int i = home(h);
+        int page = primary[i / BUCKET_SIZE];
+        int off = i % BUCKET_SIZE;
+
+        TableEntry[] bucket = pages.get(page);
+        for (int j = 0; j < BUCKET_SIZE; j++) {
+            if (bucket[off] == null || bucket[off] == TOMB) {
+                return put(page, off, h, temp);
+            }
+            off = (off + 1) % BUCKET_SIZE;
+        }
+
+        int last = page;
+        for (int p = pageNext[page]; p != -1; p = pageNext[p]) {
+            TableEntry[] over = pages.get(p);
+            for (off = 0; off < BUCKET_SIZE; off++) {
+                if (over[off] == null || over[off] == TOMB) {
+                    return put(p, off, h, temp);
+                }
+            }
+            last = p;
+        }
+
+        int p = newPage();
+        if (p == -1) {
+            return -1;
+        }
+        pageNext[last] = p;
+        overflowPages++;
+        return put(p, 0, h, temp);
+    }
+
+
+    /**
+     * Put an entry in a free slot
+     *
+     * @param page
+     *            page of the slot
+     * @param off
+     *            offset in the page
+     * @param h
+     *            hash of the ID
+     * @param temp
+     *            entry
+     * @return the slot
+     */
+    private int put(int page, int off, long h, TableEntry temp) {
+        TableEntry[] p = pages.get(page);
+        if (p[off] == TOMB) {
+            tombs--;
+        }
+        int slot = page * BUCKET_SIZE + off;
+        temp.setSlot(slot);
+        p[off] = temp;
+        hashes.get(page)[off] = h;
+        return slot;
+    }
+
+
+    /**
+     * Split the bucket at the split pointer into itself and a new bucket at
+     * the end, moving the entries that now belong in the new one. Its
+     * tombstones are dropped on the way.
+     *
+     * @return false if the table can't grow any more
+     */
+    private boolean split() {
+        int p = newPage();
+        if (p == -1) {
+            return false;
+        }
+
+        if (buckets == primary.length) {
+            primary = Arrays.copyOf(primary, buckets * 2);
+        }
+        primary[buckets++] = p;
+        int b = next;
+        if (++next == initial << level) { // round done
+            level++;
+            next = 0;
+        }
+
+        rebuild(b);
+        splits++;
+        return true;
+    }
+
+
+    /**
+     * Put a bucket's entries, its chain's included, back from their home
+     * slots, dropping its tombstones. The chain's pages are freed first, so
+     * entries whose home moved to another bucket go there and the rest
+     * only spill again if they still don't fit.
+     *
+     * @param b
+     *            bucket number
+     */
+    private void rebuild(int b) {
+        int page = primary[b];
+        int n = 0;
+        for (int p = page; p != -1; p = pageNext[p]) {
+            n++;
+        }
+
+        TableEntry[] old = new TableEntry[n * BUCKET_SIZE];
+        long[] oldHashes = new long[n * BUCKET_SIZE];
+        int k = 0;
+        for (int p = page; p != -1; p = pageNext[p]) {
+            System.arraycopy(pages.get(p), 0, old, k, BUCKET_SIZE);
+            System.arraycopy(hashes.get(p), 0, oldHashes, k, BUCKET_SIZE);
+            Arrays.fill(pages.get(p), null);
+            k += BUCKET_SIZE;
+        }
+
+        int p = pageNext[page];
+        pageNext[page] = -1;
+        while (p != -1) {
+            int after = pageNext[p];
+            freePage(p);
+            p = after;
+        }
+
+        for (k = 0; k < old.length; k++) {
+            if (old[k] == TOMB) {
+                tombs--;
+            }
+            else if (old[k] != null) {
+                place(oldHashes[k], old[k]);
+            }
+        }
+    }
+
+
+    /**
+     * Whether a bucket or its chain holds a tombstone
+     *
+     * @param b
+     *            bucket number
+     * @return true if it does
+     */
+    private boolean hasTomb(int b) {
+        for (int p = primary[b]; p != -1; p = pageNext[p]) {
+            for (TableEntry temp : pages.get(p)) {
+                if (temp == TOMB) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * An empty page, a freed one if there is one
+     *
+     * @return page number, -1 if the table can't grow any more
+     */
+    private int newPage() {
+        if (nFree > 0) {
+            return free[--nFree];
+        }
+        int p = pages.size();
+        if (p >= MAX_PAGES) {
+            return -1;
+        }
+
+        pages.add(new TableEntry[BUCKET_SIZE]);
+        hashes.add(new long[BUCKET_SIZE]);
+        if (p == pageNext.length) {
+            pageNext = Arrays.copyOf(pageNext, p * 2);
+        }
+        pageNext[p] = -1;
+        return p;
+    }
+
+
+    /**
+     * Drop an emptied page from its chain for reuse
+     *
+     * @param p
+     *            page number
+     */
+    private void freePage(int p) {
+        pageNext[p] = -1;
+        overflowPages--;
+        if (nFree == free.length) {
+            free = Arrays.copyOf(free, nFree * 2);
+        }
+        free[nFree++] = p;
+    }
+
+
+    /**
+     * Back to the starting size with nothing in it
+     */
+    private void clear() {
+        pages = new ArrayList<>();
+        hashes = new ArrayList<>();
+        for (int b = 0; b < initial; b++) {
+            pages.add(new TableEntry[BUCKET_SIZE]);
+            hashes.add(new long[BUCKET_SIZE]);
+        }
+        primary = new int[initial * 2];
+        for (int b = 0; b < initial; b++) {
+            primary[b] = b;
+        }
+        pageNext = new int[initial * 2];
+        Arrays.fill(pageNext, -1);
+        free = new int[4];
+        nFree = 0;
+        buckets = initial;
+        overflowPages = 0;
+        level = 0;
+        next = 0;
+        size = 0;
+        tombs = 0;
+    }
+
+
+    /**
+     * Entry at a slot, tombstones included
+     *
+     * @param i
+     *            slot
+     * @return entry, null if never used
+     */
+    private TableEntry entry(int i) {
+        return pages.get(i / BUCKET_SIZE)[i % BUCKET_SIZE];
+    }
+}
@@ -0,0 +1,275 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import student.TestCase;
+
+/**
+ * Testing the linear hashing bucket hash.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class LinearBucketHashTest extends TestCase {
+    private MemManager mem;
+
+
+    /**
+     * Default setup for each test
+     *
+     * @throws IOException
+     */
+    public void setUp() throws IOException {
+        mem = new MemManager("mFile.bin");
+    }
+
+
+    /**
+     * Test IDs go where BucketHash puts them until the table splits.
+     */
+    public void testSameAsBucketHash() {
+        LinearBucketHash table = new LinearBucketHash(64, null);
+        BucketHash plain = new BucketHash(64);
+        MemHandle h = new MemHandle(2, 4);
+
+        String[] ids = { "AAAAA", "AAAA", "AAA", "TTTTTTTTTTAAAAACCCA",
+            "TCATATCTATCCAAAAAAAA", "TCATATCTATCCAAAAAAA" };
+        for (String id : ids) {
+            assertEquals(plain.insert(id, h, h), table.insert(id, h, h));
+        }
+        assertEquals(0, table.getSplits());
+        assertEquals(64, table.getMaxSize());
+    }
+
+
+    /**
+     * Test the table grows far past its starting size, a bucket at a time,
+     * and every ID can still be found.
+     *
+     * @throws IOException
+     */
+    public void testGrow() throws IOException {
+        LinearBucketHash table = new LinearBucketHash(32, mem);
+        String[] ids = Benchmark.sequences(new Random(9), 2000, 12);
+
+        for (int i = 0; i < ids.length; i++) {
+            if (table.find(ids[i]) != -1) {
+                continue; // random repeat
+            }
+            MemHandle id = mem.insert(ids[i], ids[i].length());
+            int slot = table.insert(ids[i], id, id);
+            assertTrue(slot != -1);
+            assertEquals(slot, table.find(ids[i]));
+        }
+
+        assertTrue(table.getBuckets() * 32 >= table.getSize() / 0.75);
+        assertEquals(table.getBuckets() - 1, table.getSplits());
+        for (String id : ids) {
+            assertTrue(table.find(id) != -1);
+        }
+
+        // tombstones, then a copy through a snapshot
+        table.insertTomb(table.find(ids[0]));
+        assertEquals(-1, table.find(ids[0]));
+
+        LinearBucketHash copy = new LinearBucketHash(32, mem);
+        copy.restore(table.snapshot());
+        assertEquals(table.getMaxSize(), copy.getMaxSize());
+        assertEquals(table.getSize(), copy.getSize());
+        assertEquals(-1, copy.find(ids[0]));
+        for (int i = 1; i < ids.length; i++) {
+            assertEquals(table.find(ids[i]), copy.find(ids[i]));
+        }
+    }
+
+
+    /**
+     * Test a snapshot is refused by a table that started at another size,
+     * which would put IDs in other buckets, and the table is left alone.
+     *
+     * @throws IOException
+     */
+    public void testRestoreOtherSize() throws IOException {
+        LinearBucketHash table = new LinearBucketHash(96, mem);
+        String[] ids = Benchmark.sequences(new Random(5), 300, 12);
+        for (String id : ids) {
+            if (table.find(id) == -1) {
+                MemHandle h = mem.insert(id, id.length());
+                table.insert(id, h, h);
+            }
+        }
+        byte[] snap = table.snapshot();
+
+        LinearBucketHash other = new LinearBucketHash(64, mem);
+        MemHandle h = mem.insert("ACGT", 4);
+        other.insert("ACGT", h, h);
+        Exception thrown = null;
+        try {
+            other.restore(snap);
+        }
+        catch (IOException e) {
+            thrown = e;
+        }
+        assertNotNull(thrown);
+        assertEquals("Hash table size does not match.", thrown.getMessage());
+        assertEquals(1, other.getSize());
+        assertTrue(other.find("ACGT") != -1);
+
+        LinearBucketHash same = new LinearBucketHash(96, mem);
+        same.restore(snap);
+        assertEquals(table.getSize(), same.getSize());
+        for (String id : ids) {
+            assertEquals(table.find(id), same.find(id));
+        }
+    }
+
+
+    /**
+     * Test a restore takes fingerprints and hashes from the snapshot
+     * instead of reading every ID, splits afterwards still place IDs
+     * right, and a lookup reads only the ID it finds.
+     *
+     * @throws IOException
+     */
+    public void testSnapshotReads() throws IOException {
+        final int[] reads = new int[1];
+        mem = new MemManager(new FileStorage("mFile.bin") {
+            public void read(long pos, byte[] b, int off, int len)
+                throws IOException {
+                reads[0]++;
+                super.read(pos, b, off, len);
+            }
+        }, false);
+        LinearBucketHash table = new LinearBucketHash(64, mem);
+        String[] ids = Benchmark.sequences(new Random(9), 400, 12);
+        for (int i = 0; i < 200; i++) {
+            MemHandle h = mem.insert(ids[i], ids[i].length());
+            table.insert(ids[i], h, h);
+        }
+
+        LinearBucketHash copy = new LinearBucketHash(64, mem);
+        reads[0] = 0;
+        copy.restore(table.snapshot());
+        assertEquals(0, reads[0]);
+
+        // the restored hashes decide where split entries go
+        for (int i = 200; i < ids.length; i++) {
+            MemHandle h = mem.insert(ids[i], ids[i].length());
+            copy.insert(ids[i], h, h);
+        }
+        assertTrue(copy.getSplits() > 0);
+        for (String id : ids) {
+            reads[0] = 0;
+            assertTrue(copy.find(id) != -1);
+            assertEquals(1, reads[0]);
+        }
+    }
+
+
+    /**
+     * Test IDs piling on one bucket go to its overflow chain, splitting at
+     * most one bucket per insert, and the table stays loaded.
+     *
+     * @throws IOException
+     */
+    public void testHotBucket() throws IOException {
+        LinearBucketHash table = new LinearBucketHash(32, mem);
+
+        // every order of the same five chunks has the same sfold
+        String[] chunks = { "AAAC", "CCGT", "GGTA", "TTAC", "ACGA" };
+        List<String> ids = new ArrayList<>();
+        permute(chunks, 0, ids);
+        assertEquals(120, ids.size());
+        String[] random = Benchmark.sequences(new Random(2), 3000, 12);
+        for (String id : random) {
+            if (!ids.contains(id)) {
+                ids.add(id);
+            }
+        }
+
+        long most = 0;
+        for (String id : ids) {
+            MemHandle h = mem.insert(id, id.length());
+            long before = table.getSplits();
+            int slot = table.insert(id, h, h);
+            most = Math.max(most, table.getSplits() - before);
+            assertTrue(slot != -1);
+            assertEquals(slot, table.find(id));
+        }
+
+        assertEquals(1, most);
+        assertTrue(table.getOverflowPages() >= 3); // 120 IDs, one bucket
+        double load = (double)table.getSize() / (table.getBuckets() * 32);
+        assertTrue(load > 0.5);
+        assertTrue(load <= 0.75);
+        for (String id : ids) {
+            assertTrue(table.find(id) != -1);
+        }
+
+        // removing the hot IDs and purging frees their chain
+        int spilled = table.getOverflowPages();
+        for (int i = 0; i < 120; i++) {
+            table.insertTomb(table.find(ids.get(i)));
+        }
+        table.purge();
+        assertEquals(0, table.getTombstones());
+        assertTrue(table.getOverflowPages() <= spilled - 3);
+        assertEquals(-1, table.find(ids.get(0)));
+        for (int i = 120; i < ids.size(); i++) {
+            assertTrue(table.find(ids.get(i)) != -1);
+        }
+
+        // the chains come back in place from a snapshot
+        LinearBucketHash copy = new LinearBucketHash(32, mem);
+        copy.restore(table.snapshot());
+        assertEquals(table.getBuckets(), copy.getBuckets());
+        for (int i = 120; i < ids.size(); i++) {
+            assertEquals(table.find(ids.get(i)), copy.find(ids.get(i)));
+        }
+    }
+
+
+    /**
+     * Every order of the chunks from the given one on
+     *
+     * @param chunks
+     *            chunks, reordered in place
+     * @param k
+     *            first chunk still to place
+     * @param out
+     *            IDs
+     */
+    private void permute(String[] chunks, int k, List<String> out) {
+        if (k == chunks.length) {
+            out.add(String.join("", chunks));
+            return;
+        }
+        for (int i = k; i < chunks.length; i++) {
+            String t = chunks[k];
+            chunks[k] = chunks[i];
+            chunks[i] = t;
+            permute(chunks, k + 1, out);
+            chunks[i] = chunks[k];
+            chunks[k] = t;
+        }
+    }
+
+
+    /**
+     * Test a database on a growing table never reports a full bucket where
+     * the fixed one does.
+     *
+     * @throws IOException
+     */
+    public void testDatabase() throws IOException {
+        DNADataBase db = new DNADataBase(mem, new LinearBucketHash(32, mem));
+        String[] ids = Benchmark.sequences(new Random(4), 300, 10);
+
+        systemOut().clearHistory();
+        for (String id : ids) {
+            db.insert(id, "4", "ACGT");
+        }
+        assertFalse(systemOut().getHistory().contains("Bucket full"));
+        assertEquals("ACGT", db.lookup(ids[ids.length - 1]));
+    }
+}
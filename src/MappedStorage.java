@@ -0,0 +1,187 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Storage on a memory mapped file. The mapping grows in whole chunks ahead
+ * of the data, so reads and writes are plain copies into and out of the
+ * mapping with no system call per access. The file is trimmed back to the
+ * data length when the storage is closed.
+ * 
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class MappedStorage implements StorageInterface {
+    /**
+     * Default growth of the mapping in bytes
+     */
+    public static final int CHUNK_SIZE = 1 << 20;
+
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private int chunk;
+    private long length; // data length, the mapping may be longer
+
+
+    /**
+     * Open (or create) the file with the default chunk size
+     * 
+     * @param fileName
+     *            name of the file
+     * @throws IOException
+     *             bad input for file name
+     */
+    public MappedStorage(String fileName) throws IOException {
+        this(fileName, CHUNK_SIZE);
+    }
+
+
+    /**
+     * Open (or create) the file
+     * 
+     * @param fileName
+     *            name of the file
+     * @param chunkSize
+     *            growth of the mapping in bytes
+     * @throws IOException
+     *             bad input for file name
+     */
+    public MappedStorage(String fileName, int chunkSize) throws IOException {
+        this.file = new RandomAccessFile(fileName, "rw");
+        this.channel = file.getChannel();
+        this.chunk = chunkSize;
+        this.length = file.length();
+        this.map = null;
+        this.remap(length);
+    }
+
+
+    /**
+     * Read len bytes at pos into b
+     * 
+     * @param pos
+     *            position in file
+     * @param b
+     *            destination
+     * @param off
+     *            offset in b
+     * @param len
+     *            number of bytes
+     * @throws IOException
+     *             read past the end
+     */
+    public void read(long pos, byte[] b, int off, int len)
+        throws IOException {
+        if (pos + len > length) {
+            throw new EOFException();
+        }
+
+        // duplicate so concurrent readers don't share a position
+        ByteBuffer view = map.duplicate();
+        view.position((int)pos);
+        view.get(b, off, len);
+    }
+
+
+    /**
+     * Write len bytes from b at pos, growing the mapping if needed
+     * 
+     * @param pos
+     *            position in file
+     * @param b
+     *            source
+     * @param off
+     *            offset in b
+     * @param len
+     *            number of bytes
+     * @throws IOException
+     */
+    public void write(long pos, byte[] b, int off, int len)
+        throws IOException {
+        if (pos + len > map.capacity()) {
+            remap(pos + len);
+        }
+
+        ByteBuffer view = map.duplicate();
+        view.position((int)pos);
+        view.put(b, off, len);
+        length = Math.max(length, pos + len);
+    }
+
+
+    /**
+     * Length of the data
+     * 
+     * @return length in bytes
+     */
+    public long length() {
+        return length;
+    }
+
+
+    /**
+     * Grow or truncate the data. The mapping keeps its size, the file is
+     * trimmed on close.
+     * 
+     * @param len
+     *            new length in bytes
+     * @throws IOException
+     */
+    public void setLength(long len) throws IOException {
+        if (len > map.capacity()) {
+            remap(len);
+        }
+        else if (len > length) { // bytes past the old end read as zero
+            byte[] zero = new byte[(int)(len - length)];
+            ByteBuffer view = map.duplicate();
+            view.position((int)length);
+            view.put(zero);
+        }
+
+        length = len;
+    }
+
+
+    /**
+     * Force written data to disk
+     */
+    public void force() {
+        map.force();
+    }
+
+
+    /**
+     * Trim the file to the data length and close it
+     * 
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        map.force();
+        map = null;
+        file.setLength(length);
+        file.close();
+    }
+
+
+    /**
+     * Map enough whole chunks to hold at least min bytes
+     * 
+     * @param min
+     *            bytes the mapping must hold
+     * @throws IOException
+     *             more than a single mapping can hold
+     */
+    private void remap(long min) throws IOException {
+        long size = Math.max(chunk, ((min + chunk - 1) / chunk) * chunk);
+
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Memory file is too large to map.");
+        }
+
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+}
@@ -1,18 +1,59 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.util.LinkedList;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Memory manager stores strings into a binary file (First Fit).
  * Such strings may also be removed from the file.
- * Memory manager uses a linked list to track free blocks.
+ * Memory manager uses a free list ordered by offset to track free blocks,
+ * with a choice of first, best or next fit.
+ * 
+ * A persistent memory file starts with a small header. The header points at
+ * a snapshot written by checkpoint (free list plus an opaque hash table
+ * snapshot) kept inside the data region, so the file can be reopened
+ * without replaying inserts. Positions in handles are relative to the end
+ * of the header, so they look the same in both modes.
+ * 
+ * Releases can be deferred until the next checkpoint, so blocks the
+ * checkpoint still refers to are never overwritten; a write-ahead log can
+ * then always be replayed on top of it.
+ * 
+ * The file itself sits behind a storage backend, either a plain random
+ * access file or a memory mapping, chosen at construction.
  * 
  * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
  * @version 5/5/19
  */
 public class MemManager {
-    private RandomAccessFile memFile;
-    private LinkedList<MemHandle> freeList;
+    /**
+     * Header size of a persistent memory file in bytes
+     */
+    public static final int HEADER_SIZE = 16;
+
+    private static final int MAGIC = 0x444e414d; // "DNAM"
+    private static final int VERSION = 1;
+
+    private StorageInterface memFile;
+    private FreeList freeList;
+
+    private boolean persistent;
+    private int base; // file offset of position 0
+    private int snapPos; // reserved snapshot block, length 0 if none
+    private int snapLen;
+    private byte[] tableSnapshot;
+    private List<MemHandle> deferred; // released since the checkpoint
+
+    // read buffer for matches, one per thread so lookups can run together
+    private ThreadLocal<byte[]> scratch = new ThreadLocal<byte[]>() {
+        protected byte[] initialValue() {
+            return new byte[64];
+        }
+    };
 
 
     /**
@@ -24,13 +65,80 @@ public class MemManager {
      *             bad input for file name
      */
     public MemManager(String mF) throws IOException {
+        this(mF, false);
+    }
+
+
+    /**
+     * Constructor for a memory manager that may keep its contents between
+     * runs. A persistent file that already holds a checkpoint is reopened
+     * with its free list, otherwise the file starts empty.
+     * 
+     * @param mF
+     *            binary file for memory manager
+     * @param persist
+     *            true to use (or create) a persistent memory file
+     * @throws IOException
+     *             bad input for file name or not a memory file
+     */
+    public MemManager(String mF, boolean persist) throws IOException {
+        this(new FileStorage(mF), persist);
+    }
+
+
+    /**
+     * Constructor for a memory manager over the given storage backend.
+     * 
+     * @param storage
+     *            storage holding the memory file
+     * @param persist
+     *            true to use (or create) a persistent memory file
+     * @throws IOException
+     *             not a memory file
+     */
+    public MemManager(StorageInterface storage, boolean persist)
+        throws IOException {
+        this(storage, persist, FreeList.Fit.FIRST);
+    }
+
+
+    /**
+     * Constructor for a memory manager over the given storage backend with
+     * the given fit policy.
+     * 
+     * @param storage
+     *            storage holding the memory file
+     * @param persist
+     *            true to use (or create) a persistent memory file
+     * @param fit
+     *            fit policy for reusing free blocks
+     * @throws IOException
+     *             not a memory file
+     */
+    public MemManager(StorageInterface storage, boolean persist,
+        FreeList.Fit fit) throws IOException {
         // memory file
-        this.memFile = new RandomAccessFile(mF, "rw");
-        this.memFile.setLength(0); // overwrite previous file?
-        this.memFile.seek(0); // also have to move this
+        this.memFile = storage;
 
         // free list
-        this.freeList = new LinkedList<>();
+        this.freeList = new FreeList(fit);
+
+        this.persistent = persist;
+        this.base = persist ? HEADER_SIZE : 0;
+        this.snapPos = 0;
+        this.snapLen = 0;
+        this.tableSnapshot = null;
+
+        if (persist && memFile.length() >= HEADER_SIZE) {
+            this.load();
+        }
+        else {
+            this.memFile.setLength(0); // overwrite previous file?
+
+            if (persist) {
+                this.writeHeader();
+            }
+        }
     }
 
 
@@ -47,77 +155,80 @@ public class MemManager {
      */
     public MemHandle insert(String sq, int len) throws IOException {
 
-        // base case for empty freelist
-        if (freeList.isEmpty()) {
-            // get sequence byte array
-            byte[] seq = stringToByteArray(sq);
-
-            // insert sequence, add info to handle and return it.
-            int seqPos = (int)memFile.getFilePointer();
-            MemHandle insertHandle = new MemHandle(seqPos, len);
-
-            memFile.write(seq);
-            // System.out.println(seqPos); // printing offset after insert
-            // System.out.println(memFile.length()); // file size after insert
+        // get sequence byte array
+        byte[] seq = stringToByteArray(sq);
+        return insert(seq, seq.length, len);
+    }
 
-            return insertHandle;
-        }
 
-        // freelist not empty, must go through freelist
-        // using first fit
-        for (int i = 0; i < freeList.size(); i++) {
-            // some variables/conversions to use
-            MemHandle freeBlock = freeList.get(i);
-            int lenConv = ((sq.length() + 4 - 1) / 4);
-
-            // work
-            if (freeBlock.getLength() >= lenConv) {
-                // remember original insert position before seek
-                int temp = (int)memFile.getFilePointer();
-
-                // get offset, seek to that position
-                int offSet = freeBlock.getPosition();
-                memFile.seek(offSet);
-
-                // get sequence byte array, insert
-                byte[] seq = stringToByteArray(sq);
-                int seqPos = (int)memFile.getFilePointer();
-                MemHandle insertHandle = new MemHandle(seqPos, len);
-
-                memFile.write(seq);
-
-                // replace block with resultant space if any
-                // getLength() will return size of the freeblock in bytes
-                if (lenConv == freeBlock.getLength()) {
-                    freeList.remove(i);
-                }
-                else {
-                    int newLen = freeBlock.getLength() - lenConv;
-                    int newPos = (int)memFile.getFilePointer();
-
-                    // freelist handles will hold bytes instead
-                    freeList.set(i, new MemHandle(newPos, newLen));
-                }
-
-                // return to original insert position
-                memFile.seek(temp);
-
-                // return handle of insertion
-                return insertHandle;
-            }
-        }
+    /**
+     * Store an already encoded record and return a handle to it.
+     * 
+     * @param seq
+     *            encoded sequence
+     * @param nBytes
+     *            number of bytes of seq to store
+     * @param len
+     *            sequence's length
+     * 
+     * @return memory handle storing offsets
+     * @throws IOException
+     */
+    public MemHandle insert(byte[] seq, int nBytes, int len)
+        throws IOException {
+        // take a block from the freelist using the fit policy, any
+        // remainder stays on the list
+        MemHandle freeBlock = freeList.allocate(nBytes);
 
         // couldn't find space on freelist, just add to end of binary file
-        byte[] seq = stringToByteArray(sq);
-        int seqPos = (int)memFile.getFilePointer();
+        int seqPos = freeBlock == null ? dataLength() : freeBlock
+            .getPosition();
         MemHandle insertHandle = new MemHandle(seqPos, len);
 
-        memFile.write(seq);
+        memFile.write(base + seqPos, seq, 0, nBytes);
 
+        // return handle of insertion
         return insertHandle;
     }
 
 
+    /**
+     * Store a batch of already encoded records in one contiguous block,
+     * written with a single write, and return a handle to each.
+     * 
+     * @param seqs
+     *            encoded records
+     * @param lens
+     *            length of each record
+     * @return memory handles, in the same order
+     * @throws IOException
+     */
+    public MemHandle[] insertAll(byte[][] seqs, int[] lens)
+        throws IOException {
+        int total = 0;
+        for (byte[] seq : seqs) {
+            total += seq.length;
+        }
+
+        // one block for the whole batch
+        MemHandle freeBlock = total == 0 ? null : freeList.allocate(total);
+        int pos = freeBlock == null ? dataLength() : freeBlock.getPosition();
+
+        byte[] buf = new byte[total];
+        MemHandle[] handles = new MemHandle[seqs.length];
+        int off = 0;
+
+        for (int i = 0; i < seqs.length; i++) {
+            System.arraycopy(seqs[i], 0, buf, off, seqs[i].length);
+            handles[i] = new MemHandle(pos + off, lens[i]);
+            off += seqs[i].length;
+        }
+
+        write(pos, buf);
+        return handles;
+    }
+
+
     /**
      * Release space associated with a record.
      * 
@@ -129,67 +240,28 @@ public class MemManager {
      */
     public void release(MemHandle h) throws IOException {
         // if the file is empty, return
-        if (memFile.length() == 0) {
+        if (dataLength() == 0) {
             throw new IOException("File is empty.");
         }
 
-        // remember original remove position before seek
-        int temp = (int)memFile.getFilePointer();
+        if (deferred != null) {
+            deferred.add(h);
+            return;
+        }
 
         // grab relevant data from handle
         int seqPos = h.getPosition();
         int seqLen = h.getLength();
 
-        // seek to the position and remove the record.
-        memFile.seek(seqPos);
-
         // if removing from end of binary file, resize
         // else add to freelist (no alter binary file, insert will overwrite)
         int lenConv = ((seqLen + 4 - 1) / 4);
 
-        if (seqPos + lenConv == memFile.length()) { // end of file
+        if (seqPos + lenConv == dataLength()) { // end of file
             memFile.setLength(memFile.length() - lenConv);
-            memFile.seek(memFile.length());
         }
         else {
-            // calculations to keep list ordered by offset
-            int addPos = 0;
-            boolean found = false;
-
-            if (freeList.size() == 0) { // empty list
-                addPos = 0;
-                found = true;
-            }
-            else if (freeList.size() == 1) { // one element
-                if (freeList.get(0).getPosition() > seqPos) { // greater than
-                    addPos = 0;
-                    found = true;
-                }
-                else { // less than
-                    addPos = 1;
-                    found = true;
-                }
-            }
-            else { // more than one element
-                for (int i = 0; !found && i < freeList.size(); i++) {
-                    if (freeList.get(i).getPosition() > seqPos) {
-                        addPos = i;
-                        found = true;
-                    }
-                }
-            }
-
-            // add and merge adjacent slots if needed
-            if (!found) {
-                freeList.add(new MemHandle(seqPos, lenConv));
-                update(freeList.size() - 1);
-            }
-            else {
-                freeList.add(addPos, new MemHandle(seqPos, lenConv));
-                update(addPos);
-            }
-
-            memFile.seek(temp); // return to home
+            freeList.release(seqPos, lenConv);
         }
     }
 
@@ -203,28 +275,348 @@ public class MemManager {
      * @throws IOException
      */
     public byte[] getSequence(MemHandle h) throws IOException {
-        // remember original grab position before seek
-        int orig = (int)memFile.getFilePointer();
-
         // prepare byte array
         int nBytes = ((h.getLength() + 4 - 1) / 4);
         byte[] temp = new byte[nBytes];
 
-        // grab sequence
-        memFile.seek(h.getPosition());
+        // grab sequence in one read
+        memFile.read(base + h.getPosition(), temp, 0, nBytes);
+
+        return temp;
+    }
+
+
+    /**
+     * Check whether a stored record holds exactly the given encoded bytes.
+     * 
+     * @param h
+     *            memory handle of the record
+     * @param key
+     *            encoded record to compare with
+     * @return true if equal
+     * @throws IOException
+     */
+    public boolean matches(MemHandle h, byte[] key) throws IOException {
+        return matches(h.getPosition(), h.getLength(), key);
+    }
+
 
-        for (int i = 0; i < nBytes; i++) {
-            temp[i] = memFile.readByte();
+    /**
+     * Check whether a stored record holds exactly the given encoded bytes.
+     * The record is read into a per thread buffer and compared in place,
+     * so nothing is allocated or decoded.
+     * 
+     * @param pos
+     *            position of the record
+     * @param len
+     *            record's length
+     * @param key
+     *            encoded record to compare with
+     * @return true if equal
+     * @throws IOException
+     */
+    public boolean matches(int pos, int len, byte[] key) throws IOException {
+        int nBytes = NucleotideCodec.byteLength(len);
+        if (nBytes != key.length) {
+            return false;
         }
 
-        // return to original insert position and return sequence
-        memFile.seek(orig);
-        return temp;
+        byte[] buf = scratch.get();
+        if (buf.length < nBytes) {
+            buf = new byte[Math.max(nBytes, buf.length * 2)];
+            scratch.set(buf);
+        }
+
+        memFile.read(base + pos, buf, 0, nBytes);
+        return NucleotideCodec.equals(key, buf, nBytes);
     }
 
 
     /**
-     * String parser converts Strings to byte array.
+     * Write a checkpoint of a persistent memory file: the freelist and the
+     * given hash table snapshot are appended after the data and the header
+     * is pointed at them. The previous checkpoint stays intact until the new
+     * one is on disk, then its block becomes free. Does nothing for a file
+     * that isn't persistent.
+     * 
+     * @param table
+     *            hash table snapshot to store
+     * @throws IOException
+     */
+    public void checkpoint(byte[] table) throws IOException {
+        if (!persistent) {
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        // the old checkpoint block and deferred releases are free once
+        // this one is in place
+        int nDeferred = deferred == null ? 0 : deferred.size();
+        out.writeInt(freeList.size() + (snapLen > 0 ? 1 : 0) + nDeferred);
+        for (MemHandle h : freeList) {
+            out.writeInt(h.getPosition());
+            out.writeInt(h.getLength());
+        }
+        for (int i = 0; i < nDeferred; i++) {
+            MemHandle h = deferred.get(i);
+            out.writeInt(h.getPosition());
+            out.writeInt(blockLength(h));
+        }
+        if (snapLen > 0) {
+            out.writeInt(snapPos);
+            out.writeInt(snapLen);
+        }
+
+        out.writeInt(table.length);
+        out.write(table);
+        out.flush();
+        byte[] snap = bytes.toByteArray();
+
+        // snapshot goes to the end, durable before the header points at it
+        int newPos = dataLength();
+        write(newPos, snap);
+        memFile.force();
+
+        if (snapLen > 0) {
+            freeList.release(snapPos, snapLen);
+        }
+        for (int i = 0; i < nDeferred; i++) {
+            MemHandle h = deferred.get(i);
+            freeList.release(h.getPosition(), blockLength(h));
+        }
+        if (deferred != null) {
+            deferred.clear();
+        }
+        snapPos = newPos;
+        snapLen = snap.length;
+        tableSnapshot = table;
+
+        writeHeader();
+        memFile.force();
+    }
+
+
+    /**
+     * Return the hash table snapshot loaded from (or last written to) the
+     * checkpoint.
+     * 
+     * @return snapshot bytes, null if there is no checkpoint
+     */
+    public byte[] getTableSnapshot() {
+        return this.tableSnapshot;
+    }
+
+
+    /**
+     * Share of the data taken by free blocks, 0 for an empty file.
+     * 
+     * @return free bytes over data bytes
+     * @throws IOException
+     */
+    public double getFragmentation() throws IOException {
+        int len = dataLength();
+        return len == 0 ? 0 : (double)freeList.getFreeBytes() / len;
+    }
+
+
+    /**
+     * Move a record into the lowest free block below it that holds it, and
+     * release its old block. A deferred release keeps the old copy intact
+     * until the next checkpoint, and the new block was free in that
+     * checkpoint, so moving is safe under a write-ahead log.
+     * 
+     * @param h
+     *            memory handle of the record
+     * @return handle of the moved record, null if no block below fits
+     * @throws IOException
+     */
+    public MemHandle relocate(MemHandle h) throws IOException {
+        int n = blockLength(h);
+        MemHandle to = n == 0 ? null : freeList.allocateBelow(n, h
+            .getPosition());
+        if (to == null) {
+            return null;
+        }
+
+        byte[] b = new byte[n];
+        memFile.read(base + h.getPosition(), b, 0, n);
+        write(to.getPosition(), b);
+        release(h);
+
+        return new MemHandle(to.getPosition(), h.getLength());
+    }
+
+
+    /**
+     * Cut free blocks off the end of the file.
+     * 
+     * @return number of bytes cut
+     * @throws IOException
+     */
+    public int trim() throws IOException {
+        int cut = 0;
+
+        while (!freeList.isEmpty()) {
+            MemHandle last = freeList.get(freeList.size() - 1);
+            if (last.getPosition() + last.getLength() != dataLength()) {
+                break;
+            }
+
+            freeList.removeLast();
+            memFile.setLength(base + last.getPosition());
+            cut += last.getLength();
+        }
+        return cut;
+    }
+
+
+    /**
+     * Defer releases until the next checkpoint, or go back to releasing
+     * at once. Blocks already deferred are released when turned off.
+     * 
+     * @param defer
+     *            true to defer releases
+     * @throws IOException
+     */
+    public void setDeferRelease(boolean defer) throws IOException {
+        if (defer && deferred == null) {
+            deferred = new ArrayList<>();
+        }
+        else if (!defer && deferred != null) {
+            List<MemHandle> held = deferred;
+            deferred = null;
+            for (MemHandle h : held) {
+                release(h);
+            }
+        }
+    }
+
+
+    /**
+     * Whether released blocks are waiting for the next checkpoint to be
+     * free
+     * 
+     * @return true if some are
+     */
+    public boolean hasPendingReleases() {
+        return deferred != null && !deferred.isEmpty();
+    }
+
+
+    /**
+     * Check if this memory file is persistent.
+     * 
+     * @return true if checkpoints are kept
+     */
+    public boolean isPersistent() {
+        return this.persistent;
+    }
+
+
+    /**
+     * Close the memory file.
+     * 
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        memFile.close();
+    }
+
+
+    /**
+     * Load the checkpoint of a persistent memory file.
+     * 
+     * @throws IOException
+     *             not a memory file
+     */
+    private void load() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        memFile.read(0, header.array(), 0, HEADER_SIZE);
+
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a memory file.");
+        }
+
+        snapPos = header.getInt();
+        snapLen = header.getInt();
+
+        if (snapLen == 0) { // never checkpointed, nothing to keep
+            memFile.setLength(HEADER_SIZE);
+            return;
+        }
+
+        byte[] snap = new byte[snapLen];
+        memFile.read(base + snapPos, snap, 0, snapLen);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+            snap));
+        int blocks = in.readInt();
+        for (int i = 0; i < blocks; i++) {
+            int pos = in.readInt();
+            freeList.release(pos, in.readInt());
+        }
+
+        tableSnapshot = new byte[in.readInt()];
+        in.readFully(tableSnapshot);
+
+        // drop anything written after the checkpoint
+        memFile.setLength(base + snapPos + snapLen);
+    }
+
+
+    /**
+     * Write the header of a persistent memory file.
+     * 
+     * @throws IOException
+     */
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(snapPos).putInt(snapLen);
+        memFile.write(0, header.array(), 0, HEADER_SIZE);
+    }
+
+
+    /**
+     * Write bytes at a position relative to the start of the data.
+     * 
+     * @param pos
+     *            position
+     * @param b
+     *            bytes to write
+     * @throws IOException
+     */
+    private void write(int pos, byte[] b) throws IOException {
+        memFile.write(base + pos, b, 0, b.length);
+    }
+
+
+    /**
+     * Bytes taken by a stored record.
+     * 
+     * @param h
+     *            memory handle
+     * @return length in bytes
+     */
+    private static int blockLength(MemHandle h) {
+        return (h.getLength() + 4 - 1) / 4;
+    }
+
+
+    /**
+     * Length of the data, excluding the header.
+     * 
+     * @return length in bytes
+     * @throws IOException
+     */
+    private int dataLength() throws IOException {
+        return (int)memFile.length() - base;
+    }
+
+
+    /**
+     * String parser converts Strings to byte array (see NucleotideCodec).
      * 
      * A - 00 - 0
      * C - 01 - 1
@@ -236,61 +628,7 @@ public class MemManager {
      * @return byte array
      */
     public byte[] stringToByteArray(String s) {
-        // create byte array of appropriate length
-        // each letter is 2 bits
-        int numBytes = ((s.length() + 4 - 1) / 4);
-        byte[] temp = new byte[numBytes];
-
-        // temp int holds changes
-        int b = 0x00;
-
-        // byte counter
-        int byteCount = 0;
-
-        // actual work
-        for (int i = 0; i < s.length(); i++) {
-            switch (s.charAt(i)) {
-                case 'A':
-                    int a = 0x00 << (6 - ((i % 4) * 2)); // shift
-                    b = (b + a); // modify
-
-                    break;
-                case 'C':
-                    int c = 0x01 << (6 - ((i % 4) * 2)); // shift
-                    b = (b + c); // modify
-
-                    break;
-                case 'G':
-                    int g = 0x02 << (6 - ((i % 4) * 2)); // shift
-                    b = (b + g); // modify
-
-                    break;
-                case 'T':
-                    int t = 0x03 << (6 - ((i % 4) * 2)); // shift
-                    b = (b + t); // modify
-
-                    break;
-                default:
-                    // do nothing
-                    break;
-            }
-
-            // if a byte is full, add to byte array, increment count and reset
-            if ((i + 1) % 4 == 0) {
-                temp[byteCount] = (byte)(b & 0xff); // grab byte
-                byteCount++;
-                b = 0x00;
-            }
-            // if it wasn't full and we're at end of string, add remainder
-            else if (i == s.length() - 1) {
-                temp[byteCount] = (byte)(b & 0xff); // grab byte
-                byteCount++;
-                b = 0x00;
-            }
-
-        }
-
-        return temp;
+        return NucleotideCodec.encode(s);
     }
 
 
@@ -299,7 +637,7 @@ public class MemManager {
      * 
      * @return the list
      */
-    LinkedList<MemHandle> getList() {
+    FreeList getList() {
         return this.freeList;
     }
 
@@ -324,76 +662,7 @@ public class MemManager {
      * @return true if true
      */
     public boolean update(int i) {
-        if (freeList.size() == 0) { // empty
-            return false;
-        }
-        else if (freeList.size() == 1) { // one element
-            return false; // nothing to do
-        }
-        else { // more than one element
-            MemHandle curr = freeList.get(i);
-
-            if (i == 0) { // left edge
-                MemHandle next = freeList.get(i + 1);
-
-                // extend current, remove next
-                if (curr.getPosition() + curr.getLength() == next
-                    .getPosition()) {
-                    curr.setLength(curr.getLength() + next.getLength());
-                    freeList.remove(i + 1);
-
-                    return true;
-                }
-            }
-            else if (i == freeList.size() - 1) { // right edge
-                MemHandle prev = freeList.get(i - 1);
-
-                // extend prev's size to include current, remove current
-                if (curr.getPosition() == prev.getPosition() + prev
-                    .getLength()) {
-                    prev.setLength(prev.getLength() + curr.getLength());
-                    freeList.remove(i);
-
-                    return true;
-                }
-            }
-            else { // somewhere in middle
-                MemHandle prev = freeList.get(i - 1);
-                MemHandle next = freeList.get(i + 1);
-
-                // both sides adjacent
-                if ((curr.getPosition() == prev.getPosition() + prev
-                    .getLength()) && (curr.getPosition() + curr
-                        .getLength() == next.getPosition())) {
-                    prev.setLength(prev.getLength() 
-                        + curr.getLength() + next.getLength());
-                    freeList.remove(i + 1);
-                    freeList.remove(i);
-
-                    return true;
-                }
-
-                // left side adjacent
-                if (curr.getPosition() == prev.getPosition() + prev
-                    .getLength()) {
-                    prev.setLength(prev.getLength() + curr.getLength());
-                    freeList.remove(i);
-
-                    return true;
-                }
-
-                // right side adjacent
-                if (curr.getPosition() + curr.getLength() == next
-                    .getPosition()) {
-                    curr.setLength(curr.getLength() + next.getLength());
-                    freeList.remove(i + 1);
-
-                    return true;
-                }
-            }
-        }
-
-        return false;
+        return freeList.update(i);
     }
 
 }
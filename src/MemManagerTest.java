@@ -1,7 +1,7 @@
+import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.Arrays;
-import java.util.LinkedList;
 import student.TestCase;
 
 /**
@@ -75,7 +75,7 @@ public class MemManagerTest extends TestCase {
         // add some free blocks to the list
         // even though they're not really free here, we'll assume they are
         // and overwrite
-        LinkedList<MemHandle> list = mem.getList();
+        FreeList list = mem.getList();
         list.add(new MemHandle(0, 1));
         list.add(new MemHandle(5, 2));
 
@@ -112,7 +112,7 @@ public class MemManagerTest extends TestCase {
         // add some free blocks to the list
         // even though they're not really free here, we'll assume they are
         // and overwrite
-        LinkedList<MemHandle> list = mem.getList();
+        FreeList list = mem.getList();
         list.add(new MemHandle(0, 1));
         list.add(new MemHandle(5, 2));
 
@@ -150,7 +150,7 @@ public class MemManagerTest extends TestCase {
         // add some free blocks to the list
         // even though they're not really free here, we'll assume they are
         // and overwrite
-        LinkedList<MemHandle> list = mem.getList();
+        FreeList list = mem.getList();
         list.add(new MemHandle(0, 1));
         list.add(new MemHandle(5, 2));
 
@@ -160,6 +160,24 @@ public class MemManagerTest extends TestCase {
     }
 
 
+    /**
+     * Test an empty sequence goes at the end without touching the
+     * freelist, whether or not it has blocks.
+     * 
+     * @throws IOException
+     */
+    public void testInsertEmpty() throws IOException {
+        MemHandle h = mem.insert("", 0);
+        assertEquals(0, h.getLength());
+
+        mem.insert("ACGTACGT", 8);
+        mem.getList().add(new MemHandle(0, 1));
+        h = mem.insert("", 0);
+        assertEquals(0, h.getLength());
+        assertEquals(1, mem.getList().size());
+    }
+
+
     /**
      * Testing the release method on an empty file.
      * 
@@ -537,7 +555,7 @@ public class MemManagerTest extends TestCase {
      * Test update() method for case that will cover all other cases.
      */
     public void testUpdate() {
-        LinkedList<MemHandle> list = mem.getList();
+        FreeList list = mem.getList();
 
         // empty
         assertFalse(mem.update(0));
@@ -547,7 +565,7 @@ public class MemManagerTest extends TestCase {
         assertFalse(mem.update(0));
 
         // left edge
-        list.add(0, new MemHandle(0, 2));
+        list.add(new MemHandle(0, 2));
 
         assertEquals(2, list.size());
         assertTrue(mem.update(0));
@@ -556,7 +574,7 @@ public class MemManagerTest extends TestCase {
         assertEquals(4, list.get(0).getLength());
 
         // right edge
-        list.add(1, new MemHandle(4, 1));
+        list.add(new MemHandle(4, 1));
 
         assertEquals(2, list.size());
         assertTrue(mem.update(1));
@@ -673,6 +691,131 @@ public class MemManagerTest extends TestCase {
     }
 
 
+    /**
+     * Test a batch insert lands in one block, reusing a free block that is
+     * big enough.
+     * 
+     * @throws IOException
+     */
+    public void testInsertAll() throws IOException {
+        MemHandle one = mem.insert("AAAATTTTCCCC", 12); // 3 bytes
+        mem.insert("A", 1);
+        mem.release(one);
+
+        byte[][] seqs = { mem.stringToByteArray("ACGT"), mem
+            .stringToByteArray("TTTTA") };
+        MemHandle[] handles = mem.insertAll(seqs, new int[] { 4, 5 });
+
+        assertEquals(0, handles[0].getPosition());
+        assertEquals(4, handles[0].getLength());
+        assertEquals(1, handles[1].getPosition());
+        assertEquals(5, handles[1].getLength());
+        assertEquals(0, mem.getListSize());
+        assertEquals("[-1, 0]", Arrays.toString(mem.getSequence(
+            handles[1])));
+    }
+
+
+    /**
+     * Test a persistent memory file keeps its data and freelist across a
+     * checkpoint and reopen.
+     * 
+     * @throws IOException
+     */
+    public void testCheckpointReopen() throws IOException {
+        new File("pFile.bin").delete(); // start from nothing
+        MemManager pMem = new MemManager("pFile.bin", true);
+        assertNull(pMem.getTableSnapshot());
+
+        MemHandle one = pMem.insert("AAAAA", 5); // 2 bytes
+        MemHandle two = pMem.insert("ACGT", 4); // 1 byte
+        pMem.insert("TTTT", 4); // 1 byte
+        assertEquals(0, one.getPosition()); // header isn't counted
+
+        pMem.release(two);
+        pMem.checkpoint(new byte[] { 1, 2, 3 });
+        pMem.close();
+
+        pMem = new MemManager("pFile.bin", true);
+        assertEquals("[1, 2, 3]", Arrays.toString(pMem.getTableSnapshot()));
+        assertEquals(1, pMem.getListSize());
+        assertEquals(2, pMem.getList().get(0).getPosition());
+        assertEquals("[0, 0]", Arrays.toString(pMem.getSequence(one)));
+
+        // snapshot block is kept, new data goes after it
+        MemHandle four = pMem.insert("ACGTAC", 6);
+        assertTrue(four.getPosition() > 4);
+
+        // the old snapshot block is freed by the next checkpoint
+        pMem.checkpoint(new byte[0]);
+        assertEquals(2, pMem.getListSize());
+        pMem.close();
+
+        pMem = new MemManager("pFile.bin", true);
+        assertEquals(0, pMem.getTableSnapshot().length);
+        assertEquals(2, pMem.getListSize());
+        assertEquals("[27, 16]", Arrays.toString(pMem.getSequence(four)));
+        pMem.close();
+    }
+
+
+    /**
+     * Test the memory mapped backend grows past its chunk size and trims
+     * the file back on close.
+     * 
+     * @throws IOException
+     */
+    public void testMappedStorage() throws IOException {
+        MemManager mapped = new MemManager(new MappedStorage("mFile.bin", 8),
+            false);
+
+        MemHandle one = mapped.insert("AAAAA", 5); // 2 bytes
+        MemHandle two = mapped.insert("ACGTACGTACGTACGTACGTACGTACGT", 28);
+        MemHandle three = mapped.insert("TTTT", 4); // 1 byte
+
+        assertEquals(2, two.getPosition());
+        assertEquals(9, three.getPosition());
+        assertEquals("[27, 27, 27, 27, 27, 27, 27]", Arrays.toString(mapped
+            .getSequence(two)));
+
+        mapped.release(one);
+        mapped.release(three); // trims
+        assertEquals(1, mapped.getListSize());
+        mapped.close();
+
+        RandomAccessFile raf = new RandomAccessFile("mFile.bin", "r");
+        assertEquals(9, raf.length());
+        raf.close();
+    }
+
+
+    /**
+     * Test comparing stored records with encoded keys.
+     *
+     * @throws IOException
+     */
+    public void testMatches() throws IOException {
+        StringBuilder lng = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            lng.append("GATTACA".charAt(i % 7));
+        }
+
+        MemHandle one = mem.insert("ACGTA", 5);
+        MemHandle two = mem.insert(lng.toString(), lng.length());
+
+        assertTrue(mem.matches(one, mem.stringToByteArray("ACGTA")));
+        assertFalse(mem.matches(one, mem.stringToByteArray("ACGTC")));
+        assertFalse(mem.matches(one, mem.stringToByteArray("ACGTAAAAA")));
+        assertTrue(mem.matches(two.getPosition(), two.getLength(), mem
+            .stringToByteArray(lng.toString())));
+
+        // longer than the first scratch buffer, differs in the last base
+        lng.setCharAt(lng.length() - 1, 'T');
+        assertFalse(mem.matches(two, mem.stringToByteArray(lng
+            .toString())));
+    }
+
+
     /**
      * Private helper for visual checks.
      * 
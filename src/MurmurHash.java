@@ -0,0 +1,133 @@
+/**
+ * MurmurHash3 (x64) style hash over the 2-bit codes of an ID. Bases are
+ * packed 32 to a 64 bit block as they are read, so nothing is allocated,
+ * each block is mixed into the state, and the length and a final
+ * avalanche finish it. An ID with anything but ACGT in it is hashed over
+ * its characters instead, four to a block, so any ID can be hashed.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class MurmurHash implements HashStrategy {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+
+    /**
+     * Hash a sequence ID
+     *
+     * @param s
+     *            sequence ID
+     * @return non-negative hash
+     */
+    public long hash(String s) {
+        int n = s.length();
+        long h = 0;
+        long block = 0;
+
+        for (int i = 0; i < n; i++) {
+            int code = NucleotideCodec.code(s.charAt(i));
+            if (code > 3) {
+                return hashChars(s);
+            }
+
+            block = (block << 2) | code;
+            if ((i & 31) == 31) { // 32 bases to a block
+                h = mixBlock(h, block);
+                block = 0;
+            }
+        }
+        if ((n & 31) != 0) {
+            h ^= mixKey(block);
+        }
+
+        h ^= n;
+        return fmix(h) >>> 1;
+    }
+
+
+    /**
+     * Name of the strategy
+     *
+     * @return "murmur"
+     */
+    public String toString() {
+        return "murmur";
+    }
+
+
+    /**
+     * The same hash over the characters themselves, four to a block, for
+     * an ID that isn't all ACGT
+     *
+     * @param s
+     *            sequence ID
+     * @return non-negative hash
+     */
+    private static long hashChars(String s) {
+        int n = s.length();
+        long h = 0;
+        long block = 0;
+
+        for (int i = 0; i < n; i++) {
+            block = (block << 16) | s.charAt(i);
+            if ((i & 3) == 3) {
+                h = mixBlock(h, block);
+                block = 0;
+            }
+        }
+        if ((n & 3) != 0) {
+            h ^= mixKey(block);
+        }
+
+        h ^= ~n; // apart from an ACGT ID with the same blocks
+        return fmix(h) >>> 1;
+    }
+
+
+    /**
+     * Mix a full block into the state
+     *
+     * @param h
+     *            state
+     * @param k
+     *            block
+     * @return new state
+     */
+    private static long mixBlock(long h, long k) {
+        h ^= mixKey(k);
+        h = Long.rotateLeft(h, 27);
+        return h * 5 + 0x52dce729;
+    }
+
+
+    /**
+     * Scramble a block before it goes into the state
+     *
+     * @param k
+     *            block
+     * @return scrambled block
+     */
+    private static long mixKey(long k) {
+        k *= C1;
+        k = Long.rotateLeft(k, 31);
+        return k * C2;
+    }
+
+
+    /**
+     * Final avalanche, every input bit affects every output bit
+     *
+     * @param h
+     *            state
+     * @return hash
+     */
+    private static long fmix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
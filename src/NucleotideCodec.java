@@ -0,0 +1,245 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Table driven 2 bit codec for DNA sequences.
+ *
+ * A - 00 - 0
+ * C - 01 - 1
+ * G - 10 - 2
+ * T - 11 - 3
+ *
+ * Four bases are packed per byte, first base in the high bits, and the
+ * last byte is padded with A's. Decoding looks up the four characters of a
+ * byte in a precomputed table, encoding looks up the 2 bit code of each
+ * character, so neither allocates anything per base. The encoder packs 32
+ * bases into a long at a time and checks the characters as it goes.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public final class NucleotideCodec {
+    private static final char[] BASES = { 'A', 'C', 'G', 'T' };
+
+    // four characters for every byte value, byte b at [b * 4, b * 4 + 4)
+    private static final char[] DECODE = new char[256 * 4];
+
+    // 2 bit code of every ASCII character, anything but ACGT is 4
+    private static final int INVALID = 4;
+    private static final int[] ENCODE = new int[128];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            for (int k = 0; k < 4; k++) {
+                DECODE[b * 4 + k] = BASES[(b >> (6 - k * 2)) & 0x03];
+            }
+        }
+
+        Arrays.fill(ENCODE, INVALID);
+        for (int i = 0; i < BASES.length; i++) {
+            ENCODE[BASES[i]] = i;
+        }
+    }
+
+
+    /**
+     * Static methods only
+     */
+    private NucleotideCodec() {
+        // nothing to do
+    }
+
+
+    /**
+     * Number of bytes needed to hold a sequence
+     *
+     * @param len
+     *            sequence length
+     * @return bytes
+     */
+    public static int byteLength(int len) {
+        return (len + 4 - 1) / 4;
+    }
+
+
+    /**
+     * Encode a sequence into a new byte array
+     *
+     * @param s
+     *            sequence
+     * @return 2 bit encoded bytes
+     */
+    public static byte[] encode(CharSequence s) {
+        byte[] out = new byte[byteLength(s.length())];
+        encode(s, out, 0);
+        return out;
+    }
+
+
+    /**
+     * Encode a sequence into an existing byte array, anything but A, C, G or
+     * T is encoded as an A
+     *
+     * @param s
+     *            sequence
+     * @param out
+     *            destination, at least byteLength(s.length()) bytes from off
+     * @param off
+     *            offset in out
+     */
+    public static void encode(CharSequence s, byte[] out, int off) {
+        encodeChecked(s, out, off);
+    }
+
+
+    /**
+     * Check a sequence only holds A, C, G and T
+     *
+     * @param s
+     *            sequence
+     * @return true if valid
+     */
+    public static boolean isValid(CharSequence s) {
+        int bad = 0;
+        for (int i = 0; i < s.length(); i++) {
+            bad |= code(s.charAt(i));
+        }
+        return bad < INVALID;
+    }
+
+
+    /**
+     * Encode a sequence into an existing byte array a 64 bit word (32
+     * bases) at a time, checking every character is A, C, G or T on the
+     * way. Invalid characters are still written, as A's.
+     *
+     * @param s
+     *            sequence
+     * @param out
+     *            destination, at least byteLength(s.length()) bytes from off
+     * @param off
+     *            offset in out
+     * @return true if the sequence was valid
+     */
+    public static boolean encodeChecked(CharSequence s, byte[] out, int off) {
+        int len = s.length();
+        int bad = 0;
+        int i = 0;
+
+        // 32 bases per long, each stored with one big endian put
+        ByteBuffer words = len >= 32 ? ByteBuffer.wrap(out) : null;
+        for (; i + 32 <= len; i += 32) {
+            long w = 0;
+            for (int k = 0; k < 32; k++) {
+                int v = code(s.charAt(i + k));
+                bad |= v;
+                w = (w << 2) | (v & 3);
+            }
+
+            words.putLong(off, w);
+            off += 8;
+        }
+
+        // four bases per byte for the rest
+        int whole = len & ~3;
+        for (; i < whole; i += 4) {
+            int v0 = code(s.charAt(i));
+            int v1 = code(s.charAt(i + 1));
+            int v2 = code(s.charAt(i + 2));
+            int v3 = code(s.charAt(i + 3));
+            bad |= v0 | v1 | v2 | v3;
+            out[off++] = (byte)(((v0 & 3) << 6) | ((v1 & 3) << 4) | ((v2
+                & 3) << 2) | (v3 & 3));
+        }
+
+        // remainder, padded with A's
+        if (i < len) {
+            int b = 0;
+            for (int shift = 6; i < len; i++, shift -= 2) {
+                int v = code(s.charAt(i));
+                bad |= v;
+                b |= (v & 3) << shift;
+            }
+            out[off] = (byte)b;
+        }
+
+        return bad < INVALID;
+    }
+
+
+    /**
+     * Decode a sequence into a String
+     *
+     * @param b
+     *            2 bit encoded bytes
+     * @param len
+     *            sequence length
+     * @return sequence
+     */
+    public static String decode(byte[] b, int len) {
+        char[] out = new char[len];
+        decode(b, len, out, 0);
+        return new String(out);
+    }
+
+
+    /**
+     * Decode a sequence into an existing char array
+     *
+     * @param b
+     *            2 bit encoded bytes
+     * @param len
+     *            sequence length
+     * @param out
+     *            destination, at least len chars from off
+     * @param off
+     *            offset in out
+     */
+    public static void decode(byte[] b, int len, char[] out, int off) {
+        int whole = len >> 2;
+
+        // four characters per byte straight from the table
+        for (int i = 0; i < whole; i++) {
+            System.arraycopy(DECODE, (b[i] & 0xFF) * 4, out, off + i * 4, 4);
+        }
+
+        int rem = len & 3;
+        if (rem > 0) {
+            System.arraycopy(DECODE, (b[whole] & 0xFF) * 4, out, off + whole
+                * 4, rem);
+        }
+    }
+
+
+    /**
+     * Compare two encoded sequences
+     *
+     * @param a
+     *            encoded bytes
+     * @param b
+     *            encoded bytes
+     * @param nBytes
+     *            number of bytes to compare
+     * @return true if the first nBytes are equal
+     */
+    public static boolean equals(byte[] a, byte[] b, int nBytes) {
+        for (int i = 0; i < nBytes; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * 2 bit code of a character
+     *
+     * @param c
+     *            character
+     * @return code, more than 3 for anything but ACGT
+     */
+    public static int code(char c) {
+        return c < ENCODE.length ? ENCODE[c] : INVALID;
+    }
+}
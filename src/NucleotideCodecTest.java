@@ -0,0 +1,98 @@
+import java.util.Arrays;
+import student.TestCase;
+
+/**
+ * Testing the nucleotide codec.
+ * 
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class NucleotideCodecTest extends TestCase {
+
+
+    /**
+     * Test encoding whole and partial bytes.
+     */
+    public void testEncode() {
+        assertEquals("[]", Arrays.toString(NucleotideCodec.encode("")));
+        assertEquals("[-64]", Arrays.toString(NucleotideCodec.encode("T")));
+        assertEquals("[27, 28]", Arrays.toString(NucleotideCodec.encode(
+            "ACGTACT")));
+        assertEquals("[4, 60, -16]", Arrays.toString(NucleotideCodec.encode(
+            "AACAATTATT")));
+        assertEquals("[0, -1, 85, -86, 0, 85, -86, -1, 0, -1]", Arrays
+            .toString(NucleotideCodec.encode(
+                "AAAATTTTCCCCGGGGAAAACCCCGGGGTTTTAAAATTTT")));
+    }
+
+
+    /**
+     * Test decoding whole and partial bytes.
+     */
+    public void testDecode() {
+        assertEquals("", NucleotideCodec.decode(new byte[0], 0));
+        assertEquals("ACGT", NucleotideCodec.decode(new byte[] { 27 }, 4));
+        assertEquals("ACG", NucleotideCodec.decode(new byte[] { 27 }, 3));
+        assertEquals("TTTTA", NucleotideCodec.decode(new byte[] { -1, 0 },
+            5));
+
+        char[] out = new char[6];
+        NucleotideCodec.decode(new byte[] { 27, 28 }, 5, out, 1);
+        assertEquals("\0ACGTA", new String(out));
+    }
+
+
+    /**
+     * Test every length up to a few bytes round trips.
+     */
+    public void testRoundTrip() {
+        StringBuilder build = new StringBuilder();
+        String bases = "GATTACA";
+
+        for (int i = 0; i < 40; i++) {
+            String s = build.toString();
+            byte[] enc = NucleotideCodec.encode(s);
+            assertEquals(NucleotideCodec.byteLength(i), enc.length);
+            assertEquals(s, NucleotideCodec.decode(enc, i));
+            build.append(bases.charAt(i % bases.length()));
+        }
+    }
+
+
+    /**
+     * Test the word at a time encoder against the byte at a time results
+     * and its validation.
+     */
+    public void testEncodeChecked() {
+        String s = "AAAATTTTCCCCGGGGAAAACCCCGGGGTTTTAAAATTTTACGTACGTACGTACGT"
+            + "ACGTACGTACGTACGTACG";
+        byte[] words = new byte[NucleotideCodec.byteLength(s.length())];
+        assertTrue(NucleotideCodec.encodeChecked(s, words, 0));
+        assertEquals(s, NucleotideCodec.decode(words, s.length()));
+
+        // 32 bases of TTTT... then A's
+        byte[] out = new byte[9];
+        assertTrue(NucleotideCodec.encodeChecked(
+            "TTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTTA", out, 0));
+        assertEquals("[-1, -1, -1, -1, -1, -1, -1, -1, 0]", Arrays.toString(
+            out));
+
+        // words stored at an offset leave the bytes around them alone
+        out = new byte[11];
+        out[0] = 5;
+        out[10] = 7;
+        assertTrue(NucleotideCodec.encodeChecked(
+            "CCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCCG", out, 1));
+        assertEquals("[5, 85, 85, 85, 85, 85, 85, 85, 85, -128, 7]", Arrays
+            .toString(out));
+
+        // invalid characters in the word and in the tail
+        assertFalse(NucleotideCodec.encodeChecked(
+            "ACGTACGTACGTACGTACGTACGTACGTACGN", new byte[8], 0));
+        assertFalse(NucleotideCodec.encodeChecked("ACGTa", new byte[2], 0));
+        assertFalse(NucleotideCodec.encodeChecked("AC\u00c7", new byte[1],
+            0));
+        assertTrue(NucleotideCodec.isValid("GATTACA"));
+        assertFalse(NucleotideCodec.isValid("GATTACA "));
+    }
+}
@@ -0,0 +1,429 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A bucket hash kept in primitive arrays instead of TableEntry objects.
+ *
+ * Slot i uses ids[i] and seqs[i], each a memory handle packed into a long
+ * (position in the high 32 bits, length in the low 32), plus fps[i], the
+ * fingerprint of its ID. An ID length of 0 marks a slot that was never
+ * used, -1 a tombstone, so a slot costs 20 bytes and nothing is allocated
+ * per entry. A probe scans the bucket's words in order and only reads an
+ * ID from the memory file when both its length and fingerprint match.
+ * Entries are built only when get asks for one.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class PackedBucketHash
+    implements BucketHashInterface<String, MemHandle, MemHandle> {
+    private static final int BUCKET_SIZE = 32;
+    private static final int EMPTY = 0;
+    private static final int TOMB = -1;
+
+    private long[] ids;
+    private long[] seqs;
+    private int[] fps;
+    private int maxSize;
+    private int size;
+    private int tombs;
+    private MemManager memManager;
+    private HashStrategy hash;
+
+
+    /**
+     * Creates a hashtable with the size provided whose ID handles point into
+     * the given memory manager (needed by find)
+     *
+     * @param s
+     *            intended size
+     * @param mem
+     *            memory manager holding the sequence IDs
+     */
+    public PackedBucketHash(int s, MemManager mem) {
+        this(s, mem, HashStrategy.SFOLD);
+    }
+
+
+    /**
+     * Creates a hashtable with the size provided that places IDs with the
+     * given hash function. A snapshot only restores into a table using the
+     * same one.
+     *
+     * @param s
+     *            intended size
+     * @param mem
+     *            memory manager holding the sequence IDs
+     * @param h
+     *            hash function
+     */
+    public PackedBucketHash(int s, MemManager mem, HashStrategy h) {
+        hash = h;
+        maxSize = s;
+        ids = new long[maxSize];
+        seqs = new long[maxSize];
+        fps = new int[maxSize];
+        size = 0;
+        memManager = mem;
+    }
+
+
+    /**
+     * Get the size
+     *
+     * @return size
+     */
+    public int getSize() {
+        return size;
+    }
+
+
+    /**
+     * Get the maximum size
+     *
+     * @return size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+
+    /**
+     * Assumes the ID isn't in the table yet. Inserts into the first free
+     * slot of the ID's bucket
+     *
+     * @param seqID
+     *            the sequence for sFold
+     * @param key
+     *            Key Handle
+     * @param value
+     *            Handle
+     * @return the slot, -1 if the bucket is full
+     */
+    public int insert(String seqID, MemHandle key, MemHandle value) {
+        int i = (int)(hash.hash(seqID) % maxSize);
+
+        for (int j = 0; j < BUCKET_SIZE; j++) {
+            if (idLength(i) <= EMPTY) {
+                if (idLength(i) == TOMB) {
+                    tombs--;
+                }
+                ids[i] = pack(key);
+                seqs[i] = pack(value);
+                fps[i] = BucketHash.fingerprint(seqID);
+                size++;
+                return i;
+            }
+            i = nextSlot(i);
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Find the slot holding a sequence ID
+     *
+     * @param seqID
+     *            the sequence ID to look for
+     * @return the slot, or -1 if the ID is not in the table
+     * @throws IOException
+     */
+    public int find(String seqID) throws IOException {
+        int fp = BucketHash.fingerprint(seqID);
+        int i = (int)(hash.hash(seqID) % maxSize);
+        byte[] key = null;
+
+        for (int j = 0; j < BUCKET_SIZE; j++) {
+            int len = idLength(i);
+
+            // never used, the ID can't be further along the bucket
+            if (len == EMPTY) {
+                return -1;
+            }
+
+            // tombstones have length -1, so never match
+            if (len == seqID.length() && fps[i] == fp) {
+                if (key == null) {
+                    key = NucleotideCodec.encode(seqID);
+                }
+                if (memManager.matches((int)(ids[i] >>> 32), len, key)) {
+                    return i;
+                }
+            }
+            i = nextSlot(i);
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * A method to return the table entry at the slot, built from the
+     * packed words
+     *
+     * @param i
+     *            the slot to peek
+     * @return the tableEntry at the slot, null if empty or a tombstone
+     */
+    public TableEntry get(int i) {
+        if (idLength(i) <= EMPTY) {
+            return null;
+        }
+
+        TableEntry temp = new TableEntry(unpack(ids[i]), unpack(seqs[i]));
+        temp.setSlot(i);
+        return temp;
+    }
+
+
+    /**
+     * Insert tombstone
+     *
+     * @param slot
+     *            the slot to insert
+     */
+    public void insertTomb(int slot) {
+        ids[slot] = TOMB & 0xffffffffL;
+        seqs[slot] = 0;
+        fps[slot] = 0;
+        size--;
+        tombs++;
+    }
+
+
+    /**
+     * Rebuild every bucket holding tombstones without them, putting each
+     * entry back in the first free slot from its home. Home slots are
+     * worked out from the stored IDs.
+     *
+     * @return tombstones cleared
+     * @throws IOException
+     */
+    public int purge() throws IOException {
+        int n = tombs;
+        long[] liveIds = new long[BUCKET_SIZE];
+        long[] liveSeqs = new long[BUCKET_SIZE];
+        int[] liveFps = new int[BUCKET_SIZE];
+
+        for (int b = 0; b < maxSize / BUCKET_SIZE && tombs > 0; b++) {
+            int start = b * BUCKET_SIZE;
+            int live = 0;
+            int found = 0;
+            for (int i = start; i < start + BUCKET_SIZE; i++) {
+                if (idLength(i) == TOMB) {
+                    found++;
+                }
+                else if (idLength(i) != EMPTY) {
+                    liveIds[live] = ids[i];
+                    liveSeqs[live] = seqs[i];
+                    liveFps[live++] = fps[i];
+                }
+            }
+            if (found == 0) {
+                continue;
+            }
+
+            Arrays.fill(ids, start, start + BUCKET_SIZE, 0);
+            Arrays.fill(seqs, start, start + BUCKET_SIZE, 0);
+            Arrays.fill(fps, start, start + BUCKET_SIZE, 0);
+            for (int k = 0; k < live; k++) {
+                MemHandle id = unpack(liveIds[k]);
+                int i = (int)(hash.hash(NucleotideCodec.decode(memManager
+                    .getSequence(id), id.getLength())) % maxSize);
+                while (idLength(i) != EMPTY) {
+                    i = nextSlot(i);
+                }
+                ids[i] = liveIds[k];
+                seqs[i] = liveSeqs[k];
+                fps[i] = liveFps[k];
+            }
+            tombs -= found;
+        }
+        return n;
+    }
+
+
+    /**
+     * Get the number of tombstones in the table
+     *
+     * @return tombstones
+     */
+    public int getTombstones() {
+        return tombs;
+    }
+
+
+    /**
+     * Point a used slot at its records after they moved
+     *
+     * @param slot
+     *            the slot to update
+     * @param key
+     *            new ID handle
+     * @param value
+     *            new sequence handle
+     */
+    public void update(int slot, MemHandle key, MemHandle value) {
+        ids[slot] = pack(key);
+        seqs[slot] = pack(value);
+    }
+
+
+    /**
+     * Snapshot of every used slot, same format as BucketHash, fingerprints
+     * included
+     *
+     * @return snapshot bytes
+     * @throws IOException
+     */
+    public byte[] snapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        BucketHash.writeHeader(out, hash, maxSize);
+        out.writeInt(size);
+        int[] used = new int[size];
+        int n = 0;
+
+        for (int i = 0; i < maxSize; i++) {
+            if (idLength(i) == EMPTY) {
+                continue;
+            }
+            if (idLength(i) != TOMB) {
+                used[n++] = fps[i];
+            }
+
+            out.writeInt(i);
+            out.writeInt((int)(ids[i] >>> 32));
+            out.writeInt(idLength(i));
+            out.writeInt((int)(seqs[i] >>> 32));
+            out.writeInt((int)seqs[i]);
+        }
+
+        out.writeInt(-1); // end
+        out.writeInt(0); // no overflow pages
+        BucketHash.writeFingerprints(out, used, n);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * Restore the table from a snapshot. Fingerprints are worked out again
+     * from the stored IDs only for a snapshot written without them.
+     *
+     * @param snap
+     *            snapshot bytes
+     * @throws IOException
+     *             snapshot is for a different size table or hash strategy
+     */
+    public void restore(byte[] snap) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+            snap));
+
+        if (BucketHash.readHeader(in, hash) != maxSize) {
+            throw new IOException("Hash table size does not match.");
+        }
+
+        Arrays.fill(ids, 0);
+        Arrays.fill(seqs, 0);
+        Arrays.fill(fps, 0);
+        size = in.readInt();
+        tombs = 0;
+        int[] used = new int[size];
+        int n = 0;
+
+        for (int i = in.readInt(); i != -1; i = in.readInt()) {
+            MemHandle id = new MemHandle(in.readInt(), in.readInt());
+            MemHandle seq = new MemHandle(in.readInt(), in.readInt());
+
+            if (id.getLength() == TOMB) {
+                ids[i] = TOMB & 0xffffffffL;
+                tombs++;
+            }
+            else {
+                ids[i] = pack(id);
+                seqs[i] = pack(seq);
+                if (n == used.length) {
+                    used = Arrays.copyOf(used, n * 2 + 1);
+                }
+                used[n++] = i;
+            }
+        }
+
+        if (in.available() > 0 && in.readInt() != 0) {
+            throw new IOException("Hash table size does not match.");
+        }
+        int[] stored = BucketHash.readFingerprints(in, n);
+        for (int k = 0; k < n; k++) {
+            int i = used[k];
+            fps[i] = stored != null ? stored[k]
+                : BucketHash.fingerprint(NucleotideCodec.decode(memManager
+                    .getSequence(unpack(ids[i])), idLength(i)));
+        }
+    }
+
+
+    /**
+     * Nothing to release for the in-memory table
+     */
+    public void close() {
+        // nothing to do
+    }
+
+
+    /**
+     * ID length of a slot
+     *
+     * @param i
+     *            slot
+     * @return length, 0 if never used, -1 if tombstone
+     */
+    private int idLength(int i) {
+        return (int)ids[i];
+    }
+
+
+    /**
+     * Pack a handle into a long
+     *
+     * @param h
+     *            handle
+     * @return position in the high half, length in the low half
+     */
+    private static long pack(MemHandle h) {
+        return ((long)h.getPosition() << 32) | (h.getLength() & 0xffffffffL);
+    }
+
+
+    /**
+     * Unpack a handle
+     *
+     * @param w
+     *            packed handle
+     * @return handle
+     */
+    private static MemHandle unpack(long w) {
+        return new MemHandle((int)(w >>> 32), (int)w);
+    }
+
+
+    /**
+     * Next slot in the probe sequence, wrapping around to the start of the
+     * 32 slot bucket
+     *
+     * @param i
+     *            current slot
+     * @return next slot
+     */
+    private static int nextSlot(int i) {
+        if ((i + 1) % BUCKET_SIZE == 0) {
+            return i - (BUCKET_SIZE - 1);
+        }
+        return i + 1;
+    }
+}
@@ -0,0 +1,137 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import student.TestCase;
+
+/**
+ * Test class for the packed bucket hash
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class PackedBucketHashTest extends TestCase {
+    private MemManager mem;
+    private PackedBucketHash hTable;
+
+
+    /**
+     * Set Up
+     *
+     * @throws IOException
+     */
+    public void setUp() throws IOException {
+        mem = new MemManager("mFile.bin");
+        hTable = new PackedBucketHash(64, mem);
+    }
+
+
+    /**
+     * Test insert, find, get and tombstones
+     *
+     * @throws IOException
+     */
+    public void testInsertFind() throws IOException {
+        MemHandle id = mem.insert("AAAAA", 5);
+        MemHandle seq = mem.insert("ACGT", 4);
+        assertEquals(6, hTable.insert("AAAAA", id, seq));
+        assertEquals(6, hTable.find("AAAAA"));
+        assertEquals(1, hTable.getSize());
+
+        TableEntry e = hTable.get(6);
+        assertEquals(6, e.getSlot());
+        assertEquals(id.getPosition(), e.getID().getPosition());
+        assertEquals(5, e.getID().getLength());
+        assertEquals(seq.getPosition(), e.getSequence().getPosition());
+        assertEquals(4, e.getSequence().getLength());
+        assertNull(hTable.get(7));
+
+        // same encoding, different length
+        assertEquals(-1, hTable.find("AAAA"));
+        assertEquals(-1, hTable.find("TTTT"));
+
+        hTable.insertTomb(6);
+        assertNull(hTable.get(6));
+        assertEquals(-1, hTable.find("AAAAA"));
+        assertEquals(0, hTable.getSize());
+        assertEquals(6, hTable.insert("AAAAA", id, seq));
+    }
+
+
+    /**
+     * Test random inserts and removals give the same slots as BucketHash,
+     * and the snapshots are interchangeable
+     *
+     * @throws IOException
+     */
+    public void testMatchesBucketHash() throws IOException {
+        hTable = new PackedBucketHash(1024, mem);
+        BucketHash plain = new BucketHash(1024, mem);
+        Random rnd = new Random(11);
+        String[] ids = Benchmark.sequences(rnd, 400, 6);
+
+        for (int k = 0; k < 2000; k++) {
+            String id = ids[rnd.nextInt(ids.length)];
+            int slot = plain.find(id);
+            assertEquals(slot, hTable.find(id));
+
+            if (slot == -1) {
+                MemHandle h = mem.insert(id, id.length());
+                assertEquals(plain.insert(id, h, h), hTable.insert(id, h, h));
+            }
+            else {
+                plain.insertTomb(slot);
+                hTable.insertTomb(slot);
+            }
+            assertEquals(plain.getSize(), hTable.getSize());
+        }
+
+        PackedBucketHash copy = new PackedBucketHash(1024, mem);
+        copy.restore(plain.snapshot());
+        assertEquals(plain.getSize(), copy.getSize());
+        for (String id : ids) {
+            assertEquals(plain.find(id), copy.find(id));
+        }
+
+        BucketHash back = new BucketHash(1024, mem);
+        back.restore(hTable.snapshot());
+        for (String id : ids) {
+            assertEquals(plain.find(id), back.find(id));
+        }
+    }
+
+
+    /**
+     * Test a snapshot carries the fingerprints, so restoring it reads no
+     * IDs, and an older one without them is still restored.
+     *
+     * @throws IOException
+     */
+    public void testSnapshotFingerprints() throws IOException {
+        hTable = new PackedBucketHash(1024, mem);
+        String[] ids = Benchmark.sequences(new Random(4), 200, 9);
+        for (String id : ids) {
+            if (hTable.find(id) == -1) {
+                MemHandle h = mem.insert(id, id.length());
+                hTable.insert(id, h, h);
+            }
+        }
+        hTable.insertTomb(hTable.find(ids[0]));
+        byte[] snap = hTable.snapshot();
+
+        // no memory manager to read IDs from
+        PackedBucketHash copy = new PackedBucketHash(1024, null);
+        copy.restore(snap);
+        assertTrue(Arrays.equals(snap, copy.snapshot()));
+
+        // before the fingerprints, the snapshot ended at the end mark
+        byte[] old = Arrays.copyOf(snap, snap.length - 16 - 4 * hTable
+            .getSize());
+        copy = new PackedBucketHash(1024, mem);
+        copy.restore(old);
+        assertTrue(Arrays.equals(snap, copy.snapshot()));
+        assertEquals(-1, copy.find(ids[0]));
+        for (int i = 1; i < ids.length; i++) {
+            assertEquals(hTable.find(ids[i]), copy.find(ids[i]));
+        }
+    }
+}
@@ -0,0 +1,208 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of decoded sequences, keyed by sequence ID.
+ *
+ * Entries are weighed by the memory their Strings take, and the least
+ * recently used entries are dropped once the total passes the budget, so a
+ * few very long sequences can't crowd out everything else unnoticed.
+ * Hits, misses and evictions are counted. All methods are synchronized so
+ * concurrent lookups can share it.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class SequenceCache {
+    // rough cost of a map entry and two String objects
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private LinkedHashMap<String, String> map;
+    private long maxBytes;
+    private long bytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+
+    /**
+     * Create an empty cache
+     *
+     * @param max
+     *            budget in bytes, 0 turns the cache off
+     */
+    public SequenceCache(long max) {
+        this.map = new LinkedHashMap<>(16, 0.75f, true); // access order
+        this.maxBytes = max;
+        this.bytes = 0;
+    }
+
+
+    /**
+     * Get a cached sequence
+     *
+     * @param seqID
+     *            sequence ID
+     * @return the sequence, null if not cached
+     */
+    public synchronized String get(String seqID) {
+        String seq = map.get(seqID);
+        if (seq == null) {
+            misses++;
+        }
+        else {
+            hits++;
+        }
+        return seq;
+    }
+
+
+    /**
+     * Cache a sequence, evicting the least recently used ones to stay in
+     * budget. A sequence bigger than the whole budget isn't cached.
+     *
+     * @param seqID
+     *            sequence ID
+     * @param seq
+     *            decoded sequence
+     */
+    public synchronized void put(String seqID, String seq) {
+        long w = weight(seqID, seq);
+        if (w > maxBytes) {
+            return;
+        }
+
+        String old = map.put(seqID, seq);
+        if (old != null) {
+            bytes -= weight(seqID, old);
+        }
+        bytes += w;
+        trim();
+    }
+
+
+    /**
+     * Drop a sequence, when it is removed or inserted again
+     *
+     * @param seqID
+     *            sequence ID
+     */
+    public synchronized void remove(String seqID) {
+        String old = map.remove(seqID);
+        if (old != null) {
+            bytes -= weight(seqID, old);
+        }
+    }
+
+
+    /**
+     * Drop everything
+     */
+    public synchronized void clear() {
+        map.clear();
+        bytes = 0;
+    }
+
+
+    /**
+     * Change the budget, evicting as needed
+     *
+     * @param max
+     *            budget in bytes, 0 turns the cache off
+     */
+    public synchronized void setMaxBytes(long max) {
+        maxBytes = max;
+        trim();
+    }
+
+
+    /**
+     * Get the budget
+     *
+     * @return bytes
+     */
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+
+    /**
+     * Estimated memory held by the cached entries
+     *
+     * @return bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+
+    /**
+     * Number of cached sequences
+     *
+     * @return size
+     */
+    public synchronized int size() {
+        return map.size();
+    }
+
+
+    /**
+     * Number of lookups that found their sequence
+     *
+     * @return hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+
+    /**
+     * Number of lookups that didn't
+     *
+     * @return misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+
+    /**
+     * Number of sequences dropped to stay in budget
+     *
+     * @return evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+
+    /**
+     * Evict least recently used entries until in budget
+     */
+    private void trim() {
+        Iterator<Map.Entry<String, String>> it = map.entrySet().iterator();
+
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, String> e = it.next();
+            bytes -= weight(e.getKey(), e.getValue());
+            it.remove();
+            evictions++;
+        }
+    }
+
+
+    /**
+     * Estimated memory of an entry
+     *
+     * @param seqID
+     *            sequence ID
+     * @param seq
+     *            sequence
+     * @return bytes
+     */
+    private static long weight(String seqID, String seq) {
+        return 2L * (seqID.length() + seq.length()) + ENTRY_OVERHEAD;
+    }
+}
@@ -0,0 +1,77 @@
+import java.io.IOException;
+import java.util.Arrays;
+import student.TestCase;
+
+/**
+ * Testing the decoded sequence cache.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class SequenceCacheTest extends TestCase {
+
+    /**
+     * Test least recently used entries go first, by weight.
+     */
+    public void testEviction() {
+        // each entry weighs 2 * (1 + 2) + 96 = 102 bytes
+        SequenceCache cache = new SequenceCache(310);
+        cache.put("A", "AC");
+        cache.put("C", "GT");
+        cache.put("G", "TT");
+        assertEquals(3, cache.size());
+        assertEquals(306, cache.getBytes());
+
+        assertEquals("AC", cache.get("A")); // A is now the newest
+        cache.put("T", "CC");
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get("C"));
+        assertEquals("AC", cache.get("A"));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // replacing an entry reweighs it
+        cache.put("A", "ACGTACGT");
+        assertEquals(2, cache.getEvictions());
+        assertEquals(216, cache.getBytes());
+        assertNull(cache.get("G"));
+
+        // too big for the whole budget, not cached
+        cache.put("X", new String(new char[200]));
+        assertNull(cache.get("X"));
+
+        cache.setMaxBytes(0);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+    }
+
+
+    /**
+     * Test the database drops cached sequences on remove and insert.
+     *
+     * @throws IOException
+     */
+    public void testDatabase() throws IOException {
+        DNADataBase db = new DNADataBase("mFile.bin", 64);
+        SequenceCache cache = db.getCache();
+
+        db.insert("AAAA", "8", "ACGTACGT");
+        assertEquals("ACGTACGT", db.lookup("AAAA"));
+        assertEquals("ACGTACGT", db.lookup("AAAA"));
+        assertEquals(1, cache.getHits());
+
+        db.remove("AAAA");
+        assertNull(db.lookup("AAAA"));
+        db.insert("AAAA", "4", "TTTT");
+        assertEquals("TTTT", db.lookup("AAAA"));
+
+        // a cache hit never sees a stale sequence after a batch insert
+        db.remove("AAAA");
+        db.insertAll(Arrays.asList(new SequenceRecord("AAAA", 2, "GG")));
+        assertEquals("GG", db.lookup("AAAA"));
+
+        cache.setMaxBytes(0);
+        assertEquals("GG", db.lookup("AAAA"));
+        assertEquals(0, cache.size());
+    }
+}
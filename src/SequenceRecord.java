@@ -0,0 +1,74 @@
+/**
+ * A sequence ID and its sequence, the sequence already 2 bit encoded,
+ * waiting to be inserted into the database.
+ * 
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class SequenceRecord {
+    private String iD;
+    private int length;
+    private byte[] sequence;
+
+
+    /**
+     * A record from a sequence String
+     * 
+     * @param id
+     *            sequence's ID
+     * @param len
+     *            sequence's length
+     * @param seq
+     *            actual sequence
+     */
+    public SequenceRecord(String id, int len, String seq) {
+        this(id, len, NucleotideCodec.encode(seq));
+    }
+
+
+    /**
+     * A record from an already encoded sequence
+     * 
+     * @param id
+     *            sequence's ID
+     * @param len
+     *            sequence's length
+     * @param encoded
+     *            2 bit encoded sequence
+     */
+    public SequenceRecord(String id, int len, byte[] encoded) {
+        this.iD = id;
+        this.length = len;
+        this.sequence = encoded;
+    }
+
+
+    /**
+     * Get the sequence ID
+     * 
+     * @return id
+     */
+    public String getID() {
+        return iD;
+    }
+
+
+    /**
+     * Get the sequence length
+     * 
+     * @return length
+     */
+    public int getLength() {
+        return length;
+    }
+
+
+    /**
+     * Get the encoded sequence
+     * 
+     * @return 2 bit encoded bytes
+     */
+    public byte[] getSequence() {
+        return sequence;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * The sfold string hash: the ID is summed four characters at a time as
+ * little-endian integers and the sum squared. Same values as before, but
+ * worked out from the characters in place instead of through a substring
+ * and char array per chunk. The square can overflow; that is kept, since
+ * changing it would move every ID in an existing table.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class SfoldHash implements HashStrategy {
+
+    /**
+     * Hash a sequence ID
+     *
+     * @param s
+     *            sequence ID
+     * @return non-negative hash
+     */
+    public long hash(String s) {
+        long sum = 0;
+        for (int i = 0; i < s.length(); i++) {
+            sum += (long)s.charAt(i) << (8 * (i % 4));
+        }
+
+        sum = (sum * sum) >> 8;
+        return Math.abs(sum);
+    }
+
+
+    /**
+     * Name of the strategy
+     *
+     * @return "sfold"
+     */
+    public String toString() {
+        return "sfold";
+    }
+}
@@ -1,7 +1,6 @@
-import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.Scanner;
 
 /**
  * Sorter class responsible for parsing all data.
@@ -12,6 +11,7 @@ import java.util.Scanner;
 public class Sorter {
     private String cFile; // command file name
     private String mFile; // memory manager file name
+    private String hFile; // hash table file name
 
     private DNADataBase dBase; // DNA Database
 
@@ -33,6 +33,33 @@ public class Sorter {
      * @throws NumberFormatException
      */
     public Sorter(String cF, String hF, String hTS, String mF)
+        throws NumberFormatException,
+        IOException {
+        this(cF, hF, hTS, mF, false);
+    }
+
+
+    /**
+     * Constructor that can keep the database between runs. A persistent
+     * database reopens its files and is checkpointed once the command file
+     * is done.
+     * 
+     * @param cF
+     *            command file name
+     * @param hF
+     *            hash file name
+     * @param hTS
+     *            desired hash table size
+     * @param mF
+     *            memory manager binary file name
+     * @param persist
+     *            true to keep the database between runs
+     * 
+     * @throws IOException
+     * @throws NumberFormatException
+     */
+    public Sorter(String cF, String hF, String hTS, String mF,
+        boolean persist)
         throws NumberFormatException,
         IOException {
         int hTSIZE = 0;
@@ -44,89 +71,25 @@ public class Sorter {
             // file names
             this.cFile = cF;
             this.mFile = mF;
+            this.hFile = hF;
             
             // initialize database
-            this.dBase = new DNADataBase(mFile, hTSIZE);
+            this.dBase = new DNADataBase(mFile, hFile, hTSIZE, persist);
 
             // parsing
             try {
                 // command file
-                File cmmdFile = new File(cFile);
-                
-                // scanner for file
-                Scanner fileScan = new Scanner(cmmdFile);
-                fileScan.useDelimiter("\\s+");
-
-                while (fileScan.hasNextLine()) {
-                    String line = fileScan.nextLine();
-
-                    // line count
-                    /*
-                     * Scanner lineCount = new Scanner(line);
-                     * int count = 0;
-                     * while (lineCount.hasNext()) {
-                     * lineCount.next();
-                     * count++;
-                     * }
-                     * lineCount.close();
-                     */
-
-                    Scanner lineScan = new Scanner(line); // line scanner
-
-                    while (lineScan.hasNext()) {
-                        String command = lineScan.next();
+                FileInputStream cmmdFile = new FileInputStream(cFile);
 
-                        String seqID = "";
-                        String len = "";
-                        String seq = "";
+                new CommandParser(cmmdFile, dBase).parse();
 
-                        switch (command) {
-                            case "insert":
-                                seqID = lineScan.next();
-                                len = lineScan.next();
-                                seq = fileScan.nextLine();
-
-                                if (stringCheck(seqID) && stringCheck(seq)) {
-                                    dBase.insert(seqID, len, seq);
-                                }
-
-                                break;
-                            case "remove":
-                                seqID = lineScan.next();
-
-                                if (stringCheck(seqID)) {
-                                    dBase.remove(seqID);
-                                }
-
-                                break;
-                            case "print":
-                                
-                                dBase.print();
-                                break;
-                            case "search":
-                                seqID = lineScan.next();
-
-                                if (stringCheck(seqID)) {
-                                    dBase.search(seqID);
-                                }
-
-                                break;
-                            default:
-                                // do nothing
-                                break;
-                        }
-
-                        // printTest(command, seqID, len, seq);
-                    }
-
-                    lineScan.close();
-                }
-
-                fileScan.close();
+                cmmdFile.close();
             }
             catch (FileNotFoundException e) {
                 e.printStackTrace();
             }
+
+            dBase.close();
         }
         else {
             // do nothing, database not initialized
@@ -135,33 +98,6 @@ public class Sorter {
     }
 
 
-    /**
-     * Check that the string contains valid characters A, C, G or T
-     * 
-     * @param sq
-     *            sequence to be checked
-     * 
-     * @return true if valid sequence
-     */
-    private boolean stringCheck(String sq) {
-        if (sq.length() == 0) {
-            System.out.println("Invalid Sequence: " + sq);
-            return false;
-        }
-
-        for (int i = 0; i < sq.length(); i++) {
-            if (sq.charAt(i) != 'A' && sq.charAt(i) != 'C' && sq.charAt(
-                i) != 'G' && sq.charAt(i) != 'T') {
-
-                System.out.println("Invalid Sequence: " + sq);
-
-                return false;
-            }
-        }
-
-        return true;
-    }
-
     /**
      * Helper method for testing if parser is working correctly.
      * 
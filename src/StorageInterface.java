@@ -0,0 +1,74 @@
+import java.io.IOException;
+
+/**
+ * The interface for the storage behind the memory manager.
+ * Reads and writes are positional and done in bulk, there is no file
+ * pointer to keep track of. Reads must be safe to run from several threads
+ * at once, a write never runs alongside another read or write.
+ * 
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public interface StorageInterface {
+
+
+    /**
+     * Read len bytes at pos into b
+     * 
+     * @param pos position in storage
+     * @param b destination
+     * @param off offset in b
+     * @param len number of bytes
+     * @throws IOException read past the end
+     */
+    public void read(long pos, byte[] b, int off, int len) throws IOException;
+
+
+    /**
+     * Write len bytes from b at pos, growing the storage if needed
+     * 
+     * @param pos position in storage
+     * @param b source
+     * @param off offset in b
+     * @param len number of bytes
+     * @throws IOException
+     */
+    public void write(long pos, byte[] b, int off, int len)
+        throws IOException;
+
+
+    /**
+     * Length of the stored data
+     * 
+     * @return length in bytes
+     * @throws IOException
+     */
+    public long length() throws IOException;
+
+
+    /**
+     * Grow or truncate the stored data
+     * 
+     * @param len new length in bytes
+     * @throws IOException
+     */
+    public void setLength(long len) throws IOException;
+
+
+    /**
+     * Force written data to disk
+     * 
+     * @throws IOException
+     */
+    public void force() throws IOException;
+
+
+    /**
+     * Close the storage
+     * 
+     * @throws IOException
+     */
+    public void close() throws IOException;
+
+
+}
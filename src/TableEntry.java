@@ -8,6 +8,7 @@ public class TableEntry {
     private MemHandle iD;
     private MemHandle sequence;
     private int slot;
+    private int fingerprint;
     
     /**
      * A Table Entry
@@ -50,4 +51,20 @@ public class TableEntry {
     public void setSlot(int i) {
         slot = i;
     }
+    
+    /**
+     * Get the fingerprint of the ID
+     * @return fingerprint
+     */
+    public int getFingerprint() {
+        return fingerprint;
+    }
+    
+    /**
+     * Set the fingerprint of the ID
+     * @param fp the fingerprint to set
+     */
+    public void setFingerprint(int fp) {
+        fingerprint = fp;
+    }
 }
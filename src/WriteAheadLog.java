@@ -0,0 +1,313 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the inserts and removes made since the last
+ * checkpoint, so a crash loses no acknowledged command.
+ *
+ * Each record is its body length, a CRC32 of the body, then the body: a
+ * type byte, the sequence ID and, for an insert, the length and 2-bit
+ * encoded bytes of the sequence. Records carry everything needed to redo
+ * them, so replay never reads the memory file past the checkpoint.
+ *
+ * Records are handed to the storage as they are appended, which survives a
+ * crash of the process, but are only forced to disk once groupSize of them
+ * are waiting (group commit), on sync, or before a checkpoint. One fsync
+ * thus covers many commands, at the cost of losing at most the last group
+ * if the machine itself goes down. A group size of 1 forces every record.
+ *
+ * A torn or corrupt record at the end of the log (the write a crash
+ * interrupted) ends replay and is cut off.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class WriteAheadLog {
+    /**
+     * Default number of records per forced group
+     */
+    public static final int GROUP_SIZE = 64;
+
+    private static final byte INSERT = 1;
+    private static final byte REMOVE = 2;
+    private static final int RECORD_HEADER = 8; // body length and CRC
+
+    private StorageInterface file;
+    private int groupSize;
+    private long length; // end of the log
+    private int pending; // records appended since the last force
+
+    private long records;
+    private long syncs;
+
+
+    /**
+     * Open a log with the default group size
+     *
+     * @param fileName
+     *            log file, created if missing
+     * @throws IOException
+     */
+    public WriteAheadLog(String fileName) throws IOException {
+        this(new FileStorage(fileName), GROUP_SIZE);
+    }
+
+
+    /**
+     * Open a log over the given storage. Existing records are kept for
+     * replay.
+     *
+     * @param storage
+     *            storage holding the log
+     * @param groupSize
+     *            records appended between forces
+     * @throws IOException
+     */
+    public WriteAheadLog(StorageInterface storage, int groupSize)
+        throws IOException {
+        if (groupSize <= 0) {
+            throw new IllegalArgumentException("Empty commit group.");
+        }
+
+        this.file = storage;
+        this.groupSize = groupSize;
+        this.length = storage.length();
+        this.pending = 0;
+    }
+
+
+    /**
+     * Log an insert
+     *
+     * @param seqID
+     *            sequence's ID
+     * @param len
+     *            sequence's length
+     * @param seq
+     *            2-bit encoded sequence
+     * @param nBytes
+     *            number of bytes of seq in use
+     * @throws IOException
+     */
+    public synchronized void logInsert(String seqID, int len, byte[] seq,
+        int nBytes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(nBytes + seqID
+            .length() + 16);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeByte(INSERT);
+        out.writeUTF(seqID);
+        out.writeInt(len);
+        out.writeInt(nBytes);
+        out.write(seq, 0, nBytes);
+        out.flush();
+        append(bytes.toByteArray());
+    }
+
+
+    /**
+     * Log a remove
+     *
+     * @param seqID
+     *            sequence's ID
+     * @throws IOException
+     */
+    public synchronized void logRemove(String seqID) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(seqID.length()
+            + 3);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeByte(REMOVE);
+        out.writeUTF(seqID);
+        out.flush();
+        append(bytes.toByteArray());
+    }
+
+
+    /**
+     * Force every appended record to disk
+     *
+     * @throws IOException
+     */
+    public synchronized void sync() throws IOException {
+        if (pending > 0) {
+            file.force();
+            pending = 0;
+            syncs++;
+        }
+    }
+
+
+    /**
+     * Redo every intact record through the given handler, then cut off
+     * anything after the last one.
+     *
+     * @param handler
+     *            receives the records in order
+     * @return number of records replayed
+     * @throws IOException
+     */
+    public synchronized int replay(Handler handler) throws IOException {
+        long pos = 0;
+        int n = 0;
+        byte[] head = new byte[RECORD_HEADER];
+        CRC32 crc = new CRC32();
+
+        while (pos + RECORD_HEADER <= length) {
+            file.read(pos, head, 0, RECORD_HEADER);
+            ByteBuffer hb = ByteBuffer.wrap(head);
+            int bodyLen = hb.getInt();
+            int sum = hb.getInt();
+
+            if (bodyLen <= 0 || pos + RECORD_HEADER + bodyLen > length) {
+                break; // torn
+            }
+
+            byte[] body = new byte[bodyLen];
+            file.read(pos + RECORD_HEADER, body, 0, bodyLen);
+            crc.reset();
+            crc.update(body, 0, bodyLen);
+            if ((int)crc.getValue() != sum) {
+                break; // corrupt
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                body));
+            byte type = in.readByte();
+            String seqID = in.readUTF();
+
+            if (type == INSERT) {
+                int len = in.readInt();
+                byte[] seq = new byte[in.readInt()];
+                in.readFully(seq);
+                handler.insert(seqID, len, seq);
+            }
+            else if (type == REMOVE) {
+                handler.remove(seqID);
+            }
+            else {
+                break;
+            }
+
+            pos += RECORD_HEADER + bodyLen;
+            n++;
+        }
+
+        if (pos < length) {
+            file.setLength(pos);
+            length = pos;
+        }
+        return n;
+    }
+
+
+    /**
+     * Empty the log, once a checkpoint holds everything in it
+     *
+     * @throws IOException
+     */
+    public synchronized void reset() throws IOException {
+        file.setLength(0);
+        file.force();
+        length = 0;
+        pending = 0;
+    }
+
+
+    /**
+     * Force the log and close it
+     *
+     * @throws IOException
+     */
+    public synchronized void close() throws IOException {
+        sync();
+        file.close();
+    }
+
+
+    /**
+     * Number of records appended since the log was opened
+     *
+     * @return records
+     */
+    public synchronized long getRecords() {
+        return records;
+    }
+
+
+    /**
+     * Number of forces done for appended records, each covering a group
+     *
+     * @return syncs
+     */
+    public synchronized long getSyncs() {
+        return syncs;
+    }
+
+
+    /**
+     * Length of the log in bytes
+     *
+     * @return length
+     */
+    public synchronized long length() {
+        return length;
+    }
+
+
+    /**
+     * Append one record, forcing the group once it is full
+     *
+     * @param body
+     *            record body
+     * @throws IOException
+     */
+    private void append(byte[] body) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+
+        ByteBuffer rec = ByteBuffer.allocate(RECORD_HEADER + body.length);
+        rec.putInt(body.length).putInt((int)crc.getValue()).put(body);
+        file.write(length, rec.array(), 0, rec.capacity());
+        length += rec.capacity();
+        records++;
+
+        if (++pending >= groupSize) {
+            sync();
+        }
+    }
+
+
+    /**
+     * Receives the records of a log being replayed
+     */
+    public interface Handler {
+        /**
+         * Redo an insert
+         *
+         * @param seqID
+         *            sequence's ID
+         * @param len
+         *            sequence's length
+         * @param seq
+         *            2-bit encoded sequence
+         * @throws IOException
+         */
+        void insert(String seqID, int len, byte[] seq) throws IOException;
+
+
+        /**
+         * Redo a remove
+         *
+         * @param seqID
+         *            sequence's ID
+         * @throws IOException
+         */
+        void remove(String seqID) throws IOException;
+    }
+}
@@ -0,0 +1,386 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import student.TestCase;
+
+/**
+ * Testing the write-ahead log and recovery after a crash.
+ *
+ * @author adaniel1 (Daniel Almeida) & yannik24 (Yannik Sood)
+ * @version 5/5/19
+ */
+public class WriteAheadLogTest extends TestCase {
+
+    /**
+     * Default setup for each test, no files left from before.
+     */
+    public void setUp() {
+        new File("wFile.bin").delete();
+        new File("wFile.wal").delete();
+        new File("wFile.bin.wal").delete();
+        new File("wFile.hash").delete();
+        new File("wFile.hash.undo0").delete();
+        new File("wFile.hash.undo1").delete();
+    }
+
+
+    /**
+     * Open the test database, recovering whatever is on disk
+     *
+     * @return database
+     * @throws IOException
+     */
+    private DNADataBase open() throws IOException {
+        MemManager mem = new MemManager(new FileStorage("wFile.bin"), true);
+        return new DNADataBase(mem, new BucketHash(64, mem),
+            new WriteAheadLog(new FileStorage("wFile.wal"), 4));
+    }
+
+
+    /**
+     * Test a database that is never closed comes back with every logged
+     * command, also when blocks freed after the checkpoint were reused.
+     *
+     * @throws IOException
+     */
+    public void testRecover() throws IOException {
+        DNADataBase db = open();
+        db.insert("AAAA", "8", "ACGTACGT");
+        db.insert("CCCC", "4", "GGGG");
+        db.checkpoint();
+
+        // AAAA's block would be the first one reused
+        db.remove("AAAA");
+        db.insert("GGGG", "8", "TTTTTTTT");
+        db.insert("CCCC", "4", "AAAA"); // exists, not logged
+        db.remove("TTTT"); // not found, not logged
+        // crash: no close
+
+        db = open();
+        assertNull(db.lookup("AAAA"));
+        assertEquals("GGGG", db.lookup("CCCC"));
+        assertEquals("TTTTTTTT", db.lookup("GGGG"));
+
+        // the replay was folded into a checkpoint, a clean close keeps it
+        db.close();
+        assertEquals(0, new File("wFile.wal").length());
+        db = open();
+        assertEquals("TTTTTTTT", db.lookup("GGGG"));
+        db.close();
+    }
+
+
+    /**
+     * Test records moved by compaction after a checkpoint are still found
+     * after a crash, the checkpoint's copies were left alone.
+     *
+     * @throws IOException
+     */
+    public void testCompactThenCrash() throws IOException {
+        DNADataBase db = open();
+        db.insert("AAAA", "8", "ACGTACGT");
+        db.insert("CCCC", "8", "GGGGTTTT");
+        db.insert("GGGG", "8", "TTTTAAAA");
+        db.remove("AAAA");
+        db.checkpoint(); // AAAA's blocks are free now
+
+        assertTrue(db.compact(10) > 0);
+        assertEquals("TTTTAAAA", db.lookup("GGGG"));
+        // crash: no close
+
+        db = open();
+        assertNull(db.lookup("AAAA"));
+        assertEquals("GGGGTTTT", db.lookup("CCCC"));
+        assertEquals("TTTTAAAA", db.lookup("GGGG"));
+        db.close();
+    }
+
+
+    /**
+     * Test a remove that triggers a checkpoint has its blocks free in that
+     * checkpoint, so they aren't lost to a crash before the next one.
+     *
+     * @throws IOException
+     */
+    public void testRemoveAtCheckpoint() throws IOException {
+        DNADataBase db = open();
+        db.setCheckpointLogBytes(0); // every logged change
+        String big = Benchmark.sequences(new Random(1), 1, 40000)[0];
+        db.insert("AAAA", "40000", big);
+        db.insert("CCCC", "4", "ACGT");
+        db.remove("AAAA");
+        // crash: no close
+
+        MemManager mem = new MemManager(new FileStorage("wFile.bin"), true);
+        db = new DNADataBase(mem, new BucketHash(64, mem),
+            new WriteAheadLog(new FileStorage("wFile.wal"), 4));
+        assertNull(db.lookup("AAAA"));
+        assertEquals("ACGT", db.lookup("CCCC"));
+        // AAAA's 10000 bytes are most of the file
+        assertTrue(mem.getFragmentation() > 0.5);
+        db.close();
+    }
+
+
+    /**
+     * Test random inserts and removes against a map, crashing now and then.
+     *
+     * @throws IOException
+     */
+    public void testRandomCrashes() throws IOException {
+        Random rnd = new Random(3);
+        String[] ids = Benchmark.sequences(rnd, 20, 16);
+        Map<String, String> model = new HashMap<>();
+
+        DNADataBase db = open();
+        for (int k = 0; k < 400; k++) {
+            String id = ids[rnd.nextInt(ids.length)];
+            int op = rnd.nextInt(20);
+
+            if (op < 10) {
+                int len = 1 + rnd.nextInt(30);
+                String seq = Benchmark.sequences(rnd, 1, len)[0];
+                db.insert(id, "" + seq.length(), seq);
+                if (!model.containsKey(id)) {
+                    model.put(id, seq);
+                }
+            }
+            else if (op < 18) {
+                db.remove(id);
+                model.remove(id);
+            }
+            else if (op < 19) {
+                db.checkpoint();
+            }
+            else { // crash
+                db = open();
+            }
+        }
+
+        db = open();
+        for (String id : ids) {
+            assertEquals(model.get(id), db.lookup(id));
+        }
+        db.close();
+    }
+
+
+    /**
+     * Test the default persistent database, with its hash table in its own
+     * file, comes back after a crash: hash pages written after the
+     * checkpoint point past the end of the recovered memory file until they
+     * are undone.
+     *
+     * @throws IOException
+     */
+    public void testDiskTableCrash() throws IOException {
+        DNADataBase db = new DNADataBase("wFile.bin", "wFile.hash", 64, true);
+        db.insert("AAAA", "8", "ACGTACGT");
+        db.close();
+
+        Random rnd = new Random(6);
+        String[] ids = Benchmark.sequences(rnd, 30, 12);
+        Map<String, String> model = new HashMap<>();
+        model.put("AAAA", "ACGTACGT");
+
+        for (int round = 0; round < 4; round++) {
+            db = new DNADataBase("wFile.bin", "wFile.hash", 64, true);
+            for (String id : model.keySet()) {
+                assertEquals(model.get(id), db.lookup(id));
+            }
+
+            for (int k = 0; k < 40; k++) {
+                String id = ids[rnd.nextInt(ids.length)];
+                if (rnd.nextInt(3) == 0) {
+                    db.remove(id);
+                    model.remove(id);
+                }
+                else {
+                    String seq = Benchmark.sequences(rnd, 1, 1 + rnd
+                        .nextInt(20))[0];
+                    db.insert(id, "" + seq.length(), seq);
+                    if (!model.containsKey(id)) {
+                        model.put(id, seq);
+                    }
+                }
+                if (k == 20 && round % 2 == 1) {
+                    db.checkpoint();
+                }
+            }
+            db.remove("AAAA");
+            model.remove("AAAA");
+            db.sync();
+            // crash: no close
+        }
+
+        db = new DNADataBase("wFile.bin", "wFile.hash", 64, true);
+        for (String id : ids) {
+            assertEquals(model.get(id), db.lookup(id));
+        }
+        db.close();
+    }
+
+
+    /**
+     * Test reopening with the wrong table size is refused without touching
+     * the files, and the right size still finds everything.
+     *
+     * @throws IOException
+     */
+    public void testReopenWrongSize() throws IOException {
+        DNADataBase db = new DNADataBase("wFile.bin", "wFile.hash", 64, true);
+        db.insert("AAAA", "8", "ACGTACGT");
+        db.insert("CCCC", "4", "GGGG");
+        db.close();
+        long length = new File("wFile.hash").length();
+
+        Exception thrown = null;
+        try {
+            new DNADataBase("wFile.bin", "wFile.hash", 128, true);
+        }
+        catch (IOException e) {
+            thrown = e;
+        }
+        assertNotNull(thrown);
+        assertEquals("Hash table size does not match.", thrown.getMessage());
+        assertEquals(length, new File("wFile.hash").length());
+
+        db = new DNADataBase("wFile.bin", "wFile.hash", 64, true);
+        assertEquals("ACGTACGT", db.lookup("AAAA"));
+        assertEquals("GGGG", db.lookup("CCCC"));
+        db.close();
+    }
+
+
+    /**
+     * Test reopening a database with another hash strategy is refused and
+     * leaves the files for a reopen with the right one
+     *
+     * @throws IOException
+     */
+    public void testReopenWrongStrategy() throws IOException {
+        DNADataBase db = new DNADataBase("wFile.bin", "wFile.hash", 64, true,
+            HashStrategy.MURMUR);
+        db.insert("AAAA", "8", "ACGTACGT");
+        db.insert("CCCC", "4", "GGGG");
+        db.close();
+
+        Exception thrown = null;
+        try {
+            new DNADataBase("wFile.bin", "wFile.hash", 64, true);
+        }
+        catch (IOException e) {
+            thrown = e;
+        }
+        assertNotNull(thrown);
+        assertEquals("Hash strategy does not match.", thrown.getMessage());
+
+        db = new DNADataBase("wFile.bin", "wFile.hash", 64, true,
+            HashStrategy.MURMUR);
+        assertEquals("ACGTACGT", db.lookup("AAAA"));
+        assertEquals("GGGG", db.lookup("CCCC"));
+        db.close();
+    }
+
+
+    /**
+     * Test the disk table forces its undo log once per batch of pages, not
+     * once per changed page, and still comes back after a crash.
+     *
+     * @throws IOException
+     */
+    public void testDiskTableForces() throws IOException {
+        MemManager mem = new MemManager(new FileStorage("wFile.bin"), true);
+        DiskBucketHash table = new DiskBucketHash("wFile.hash", 65536, mem,
+            false, true);
+        DNADataBase db = new DNADataBase(mem, table, new WriteAheadLog(
+            new FileStorage("wFile.wal"), 64));
+        long start = table.getUndoForces();
+
+        // 3000 IDs over 2048 buckets change more pages than are held
+        String[] ids = Benchmark.sequences(new Random(2), 3000, 16);
+        for (String id : ids) {
+            db.insert(id, "4", "ACGT");
+        }
+        assertTrue(table.getUndoForces() - start >= 1);
+        assertTrue(table.getUndoForces() - start <= 2);
+
+        db.checkpoint();
+        long after = table.getUndoForces();
+        for (int i = 0; i < 100; i++) {
+            db.remove(ids[i]);
+        }
+        assertEquals(after, table.getUndoForces());
+        db.sync();
+        // crash: no close
+
+        mem = new MemManager(new FileStorage("wFile.bin"), true);
+        db = new DNADataBase(mem, new DiskBucketHash("wFile.hash", 65536, mem,
+            true, true), new WriteAheadLog(new FileStorage("wFile.wal"), 64));
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i < 100 ? null : "ACGT", db.lookup(ids[i]));
+        }
+        db.close();
+    }
+
+
+    /**
+     * Test records are forced a group at a time.
+     *
+     * @throws IOException
+     */
+    public void testGroupCommit() throws IOException {
+        WriteAheadLog log = new WriteAheadLog(new FileStorage("wFile.wal"),
+            4);
+        for (int i = 0; i < 10; i++) {
+            log.logRemove("ID" + i);
+        }
+        assertEquals(10, log.getRecords());
+        assertEquals(2, log.getSyncs());
+
+        log.sync();
+        assertEquals(3, log.getSyncs());
+        log.sync(); // nothing waiting
+        assertEquals(3, log.getSyncs());
+        log.close();
+    }
+
+
+    /**
+     * Test a torn record at the end is cut off, and the ones before it
+     * replay.
+     *
+     * @throws IOException
+     */
+    public void testTornTail() throws IOException {
+        FileStorage file = new FileStorage("wFile.wal");
+        WriteAheadLog log = new WriteAheadLog(file, 1);
+        log.logInsert("AAAA", 4, NucleotideCodec.encode("ACGT"), 1);
+        log.logRemove("AAAA");
+        long good = log.length();
+        log.logInsert("CCCC", 8, NucleotideCodec.encode("ACGTACGT"), 2);
+        file.setLength(log.length() - 1);
+        log.close();
+
+        final StringBuilder seen = new StringBuilder();
+        log = new WriteAheadLog(new FileStorage("wFile.wal"), 1);
+        int n = log.replay(new WriteAheadLog.Handler() {
+            public void insert(String seqID, int len, byte[] seq) {
+                seen.append("+" + seqID + NucleotideCodec.decode(seq, len));
+            }
+
+
+            public void remove(String seqID) {
+                seen.append("-" + seqID);
+            }
+        });
+
+        assertEquals(2, n);
+        assertEquals("+AAAAACGT-AAAA", seen.toString());
+        assertEquals(good, log.length());
+        assertEquals(good, new File("wFile.wal").length());
+        log.close();
+    }
+}